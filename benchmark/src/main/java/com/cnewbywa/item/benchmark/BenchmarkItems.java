@@ -0,0 +1,63 @@
+package com.cnewbywa.item.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.bson.Document;
+
+import com.cnewbywa.item.model.Item;
+
+/**
+ * Test data shared by the benchmarks. Descriptions have the maximum length of 500 characters.
+ */
+public final class BenchmarkItems {
+
+	public static final Comparator<Document> NAME_ORDER = Comparator.<Document, String>comparing(document -> document.getString("name"))
+			.thenComparing(document -> document.getString("itemId"));
+
+	private static final String DESCRIPTION = "d".repeat(500);
+
+	private BenchmarkItems() {
+	}
+
+	public static Item createItem(int index) {
+		Instant now = Instant.now();
+		String name = String.format("item-%07d", index);
+		
+		return Item.builder()
+				.id(UUID.randomUUID().toString())
+				.itemId(UUID.randomUUID().toString())
+				.name(name)
+				.nameNormalized(Item.normalizeName(name))
+				.description(DESCRIPTION)
+				.createTime(now)
+				.createdBy("benchmark.user")
+				.updateTime(now)
+				.updatedBy("benchmark.user")
+				.version(index % 10)
+				.build();
+	}
+
+	// the list item fields as they are read from the database, sorted by name and itemId
+	public static List<Document> createListDocuments(int amount) {
+		List<Document> documents = new ArrayList<>(amount);
+		
+		for (int i = 0; i < amount; i++) {
+			documents.add(toListDocument(createItem(i)));
+		}
+		
+		documents.sort(NAME_ORDER);
+		
+		return documents;
+	}
+
+	public static Document toListDocument(Item item) {
+		return new Document("itemId", item.getItemId())
+				.append("name", item.getName())
+				.append("createTime", Date.from(item.getCreateTime()));
+	}
+}
@@ -0,0 +1,101 @@
+package com.cnewbywa.item.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stand-in for the Mongo backed {@link ItemRepository} serving the read paths from memory, so that the benchmarks
+ * measure the service and not the database. The list documents are kept in name and itemId order, which is the only
+ * sort supported. Repository methods not needed by the benchmarks throw {@link UnsupportedOperationException}.
+ */
+public class InMemoryItemRepository implements InvocationHandler {
+
+	private final Map<String, Item> items;
+	
+	private final List<Document> listDocuments;
+	
+	private final AtomicLong queries = new AtomicLong();
+
+	private InMemoryItemRepository(List<Item> items) {
+		this.items = items.stream().collect(Collectors.toMap(Item::getItemId, Function.identity()));
+		this.listDocuments = items.stream().map(BenchmarkItems::toListDocument).sorted(BenchmarkItems.NAME_ORDER).toList();
+	}
+
+	public static InMemoryItemRepository of(List<Item> items) {
+		return new InMemoryItemRepository(items);
+	}
+
+	public ItemRepository asRepository() {
+		return (ItemRepository) Proxy.newProxyInstance(ItemRepository.class.getClassLoader(), new Class<?>[] { ItemRepository.class }, this);
+	}
+
+	public List<Document> getListDocuments() {
+		return listDocuments;
+	}
+
+	// amount of repository calls made, one call is one round-trip to the database in the real repository
+	public long getQueries() {
+		return queries.get();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object invoke(Object proxy, Method method, Object[] args) {
+		if (method.getDeclaringClass() == Object.class) {
+			return switch (method.getName()) {
+				case "equals" -> proxy == args[0];
+				case "hashCode" -> System.identityHashCode(proxy);
+				default -> InMemoryItemRepository.class.getSimpleName();
+			};
+		}
+		
+		queries.incrementAndGet();
+		
+		return switch (method.getName()) {
+			case "streamListItems" -> Flux.fromIterable(listDocuments);
+			case "findListItems" -> findListItems((Pageable) args[0]);
+			case "findByKeyset" -> findByKeyset((List<Object>) args[1], (Integer) args[2]);
+			case "count", "estimatedCount" -> Mono.just((long) listDocuments.size());
+			case "findByItemId" -> Mono.justOrEmpty(items.get((String) args[0]));
+			case "findByItemIdIn" -> Flux.fromStream(((Collection<String>) args[0]).stream().map(items::get).filter(item -> item != null));
+			default -> throw new UnsupportedOperationException(method.getName());
+		};
+	}
+
+	// the database skips the documents before the page, only the page is sent to the service
+	private Flux<Document> findListItems(Pageable pageable) {
+		int from = (int) Math.min(pageable.getOffset(), listDocuments.size());
+		
+		return Flux.fromIterable(listDocuments.subList(from, Math.min(from + pageable.getPageSize(), listDocuments.size())));
+	}
+
+	// the database seeks the index to the position after the last item of the previous page
+	private Flux<Document> findByKeyset(List<Object> lastValues, int limit) {
+		int from = 0;
+		
+		if (lastValues != null) {
+			int index = Collections.binarySearch(listDocuments, new Document("name", lastValues.get(0)).append("itemId", lastValues.get(1)), BenchmarkItems.NAME_ORDER);
+			
+			from = index >= 0 ? index + 1 : -(index + 1);
+		}
+		
+		return Flux.fromIterable(listDocuments.subList(from, Math.min(from + limit, listDocuments.size())));
+	}
+}
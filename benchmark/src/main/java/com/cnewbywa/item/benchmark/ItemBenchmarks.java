@@ -0,0 +1,33 @@
+package com.cnewbywa.item.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled and writes the results as JSON to target/jmh-result.json,
+ * so that allocation rates can be compared between runs. Takes the normal JMH command line options.
+ */
+public class ItemBenchmarks {
+
+	private ItemBenchmarks() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+		
+		new Runner(new OptionsBuilder()
+				.parent(commandLineOptions)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON))
+				.result(commandLineOptions.getResult().orElse("target/jmh-result.json"))
+				.build()).run();
+	}
+}
@@ -0,0 +1,262 @@
+package com.cnewbywa.item.benchmark.load;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import com.cnewbywa.item.ItemReactiveApplication;
+import com.cnewbywa.item.model.BulkItemResultDto;
+import com.cnewbywa.item.model.ItemCursorResponseDto;
+import com.cnewbywa.item.model.ItemDto;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Starts the service with the perf profile against a Mongo container, or the database given with --mongo-uri, 
+ * and locally signed access tokens. Seeds the items and then starts requests at a fixed rate, mixing the operations
+ * by their weights, and reports throughput and latency percentiles per endpoint. See {@link LoadTestOptions} for
+ * the options.
+ */
+public class ItemLoadTest {
+
+	private static final int PAGE_SIZE = 20;
+	
+	private static final String SORT = "name,asc";
+	
+	private static final String DESCRIPTION = "Description of a load test item ".repeat(15);
+	
+	// seeded names combine the words, so that searches match a realistic share of the items instead of all or one
+	private static final List<String> ADJECTIVES = List.of("red", "green", "blue", "small", "large", "old", "new", "wooden", "steel", "plastic", 
+			"soft", "hard", "light", "heavy", "round", "square", "bright", "dark", "cheap", "fancy");
+	
+	private static final List<String> NOUNS = List.of("chair", "table", "lamp", "shelf", "sofa", "desk", "bed", "mirror", "rug", "clock", 
+			"vase", "stool", "bench", "cabinet", "drawer", "curtain", "pillow", "blanket", "basket", "frame");
+	
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final LoadTestOptions options;
+	
+	private final WebClient webClient;
+	
+	private final String authorization;
+	
+	private final Operation[] operations;
+	
+	private final int[] cumulativeWeights;
+	
+	private final AtomicInteger outstanding = new AtomicInteger();
+	
+	private final AtomicReference<String> cursor = new AtomicReference<>();
+	
+	private List<String> itemIds;
+
+	private ItemLoadTest(LoadTestOptions options, WebClient webClient, String token) {
+		this.options = options;
+		this.webClient = webClient;
+		this.authorization = "Bearer " + token;
+		this.operations = options.mix().keySet().toArray(Operation[]::new);
+		this.cumulativeWeights = new int[operations.length];
+		
+		int total = 0;
+		
+		for (int i = 0; i < operations.length; i++) {
+			total += options.mix().get(operations[i]);
+			cumulativeWeights[i] = total;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestOptions options = LoadTestOptions.parse(args);
+		MongoDBContainer mongoDBContainer = null;
+		String mongoUri = options.mongoUri();
+		
+		if (mongoUri == null) {
+			mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+			mongoDBContainer.start();
+			mongoUri = mongoDBContainer.getReplicaSetUrl("items");
+		}
+		
+		LocalTokenIssuer tokenIssuer = new LocalTokenIssuer();
+		Path publicKey = tokenIssuer.writePublicKey(Files.createTempDirectory("item-load-test"));
+		
+		List<String> serviceArgs = new ArrayList<>(List.of(
+				"--server.port=0",
+				"--spring.data.mongodb.uri=" + mongoUri,
+				"--spring.security.oauth2.resourceserver.jwt.public-key-location=" + publicKey.toUri(),
+				"--item.keystore.password=" + options.keystorePassword()));
+		
+		if (options.mongoPoolSize() != null) {
+			serviceArgs.add("--application.mongo.pool.max-size=" + options.mongoPoolSize());
+		}
+		
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ItemReactiveApplication.class).profiles("perf").run(
+				serviceArgs.toArray(String[]::new))) {
+			
+			ItemLoadTest loadTest = new ItemLoadTest(options, createWebClient(context, options), 
+					tokenIssuer.issue("load.test.user", options.warmup().plus(options.duration()).plusHours(1)));
+			
+			loadTest.seed();
+			loadTest.run(options.warmup(), new LatencyStats());
+			
+			LatencyStats stats = new LatencyStats();
+			
+			loadTest.run(options.duration(), stats);
+			stats.report(options.duration(), System.out);
+		} finally {
+			if (mongoDBContainer != null) {
+				mongoDBContainer.stop();
+			}
+		}
+	}
+
+	private static WebClient createWebClient(ConfigurableApplicationContext context, LoadTestOptions options) {
+		ConnectionProvider connectionProvider = ConnectionProvider.builder("item-load-test")
+				.maxConnections(options.connections())
+				.pendingAcquireMaxCount(-1)
+				.build();
+		
+		return WebClient.builder()
+				.baseUrl("http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port"))
+				.clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+				.build();
+	}
+
+	private void seed() {
+		Flux<ItemDto> items = Flux.range(0, options.items()).map(i -> new ItemDto(String.format("%s %s %07d", 
+				ADJECTIVES.get(i % ADJECTIVES.size()), NOUNS.get(i / ADJECTIVES.size() % NOUNS.size()), i), DESCRIPTION));
+		
+		itemIds = webClient.post().uri("/items/bulk")
+				.header(HttpHeaders.AUTHORIZATION, authorization)
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.body(items, ItemDto.class)
+				.retrieve()
+				.bodyToFlux(BulkItemResultDto.class)
+				.map(BulkItemResultDto::getId)
+				.collectList()
+				.block();
+		
+		System.out.printf("Seeded %d items%n", itemIds.size());
+	}
+
+	/*
+	 * Open workload: requests are started on schedule whether or not the earlier ones have completed.
+	 */
+	private void run(Duration duration, LatencyStats stats) {
+		long interval = 1_000_000_000L / options.rate();
+		long end = System.nanoTime() + duration.toNanos();
+		
+		for (long scheduled = System.nanoTime(); scheduled < end; scheduled += interval) {
+			LockSupport.parkNanos(scheduled - System.nanoTime());
+			
+			if (outstanding.get() >= options.maxOutstanding()) {
+				stats.drop();
+			} else {
+				start(nextOperation(), scheduled, stats);
+			}
+		}
+		
+		while (outstanding.get() > 0) {
+			LockSupport.parkNanos(1_000_000);
+		}
+	}
+
+	private void start(Operation operation, long scheduled, LatencyStats stats) {
+		outstanding.incrementAndGet();
+		
+		send(operation)
+				.timeout(REQUEST_TIMEOUT)
+				.onErrorReturn(false)
+				.subscribe(success -> {
+					stats.record(operation, scheduled, success);
+					outstanding.decrementAndGet();
+				});
+	}
+
+	private Mono<Boolean> send(Operation operation) {
+		return switch (operation) {
+			case GET -> exchange(webClient.get().uri("/items/{id}", randomItemId()));
+			case PAGING -> exchange(webClient.get().uri(builder -> builder.path("/items/paging").queryParam("page", randomPage())
+					.queryParam("size", PAGE_SIZE).queryParam("sort", SORT).build()));
+			case SKIP -> exchange(webClient.get().uri(builder -> builder.path("/items/skip").queryParam("page", randomPage())
+					.queryParam("size", PAGE_SIZE).queryParam("sort", SORT).build()));
+			case CURSOR -> nextCursorPage();
+			case SEARCH -> exchange(webClient.get().uri(builder -> builder.path("/items/search").queryParam("q", randomPrefix())
+					.queryParam("size", PAGE_SIZE).build()));
+			case TEXT_SEARCH -> exchange(webClient.get().uri(builder -> builder.path("/items/search").queryParam("q", randomWord(NOUNS))
+					.queryParam("mode", "text").queryParam("size", PAGE_SIZE).build()));
+			case CREATE -> exchange(webClient.post().uri("/items").contentType(MediaType.APPLICATION_JSON)
+					.bodyValue(new ItemDto("load-" + ThreadLocalRandom.current().nextInt(1_000_000), DESCRIPTION)));
+			case UPDATE -> exchange(webClient.put().uri("/items/{id}", randomItemId()).contentType(MediaType.APPLICATION_JSON)
+					.bodyValue(new ItemDto("updated-" + ThreadLocalRandom.current().nextInt(1_000_000), DESCRIPTION)));
+		};
+	}
+
+	private Mono<Boolean> exchange(WebClient.RequestHeadersSpec<?> request) {
+		return request.header(HttpHeaders.AUTHORIZATION, authorization)
+				.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().is2xxSuccessful()));
+	}
+
+	// walks through the items page by page, starting again from the first page after the last one
+	private Mono<Boolean> nextCursorPage() {
+		String current = cursor.get();
+		
+		return webClient.get()
+				.uri(builder -> builder.path("/items/cursor").queryParamIfPresent("cursor", Optional.ofNullable(current))
+						.queryParam("size", PAGE_SIZE).queryParam("sort", SORT).build())
+				.header(HttpHeaders.AUTHORIZATION, authorization)
+				.exchangeToMono(response -> response.statusCode().is2xxSuccessful() 
+						? response.bodyToMono(ItemCursorResponseDto.class).doOnNext(page -> cursor.compareAndSet(current, page.getNextCursor())).thenReturn(true)
+						: response.releaseBody().thenReturn(false));
+	}
+
+	private Operation nextOperation() {
+		int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			if (value < cumulativeWeights[i]) {
+				return operations[i];
+			}
+		}
+		
+		return operations[operations.length - 1];
+	}
+
+	private String randomItemId() {
+		return itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+	}
+
+	private String randomWord(List<String> words) {
+		return words.get(ThreadLocalRandom.current().nextInt(words.size()));
+	}
+
+	// an adjective alone or with the beginning of a noun
+	private String randomPrefix() {
+		String noun = randomWord(NOUNS);
+		
+		return randomWord(ADJECTIVES) + " " + noun.substring(0, ThreadLocalRandom.current().nextInt(noun.length()));
+	}
+
+	private int randomPage() {
+		return ThreadLocalRandom.current().nextInt(Math.max(itemIds.size() / PAGE_SIZE, 1));
+	}
+}
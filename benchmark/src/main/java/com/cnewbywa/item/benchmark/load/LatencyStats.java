@@ -0,0 +1,66 @@
+package com.cnewbywa.item.benchmark.load;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and error counts per operation. Latencies are measured from the time a request was scheduled to start,
+ * not from when it was actually sent, so that a stalled service is not hidden by requests starting late.
+ */
+class LatencyStats {
+
+	private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+	
+	private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+	
+	private final AtomicLong dropped = new AtomicLong();
+
+	LatencyStats() {
+		for (Operation operation : Operation.values()) {
+			histograms.put(operation, new ConcurrentHistogram(3));
+			errors.put(operation, new AtomicLong());
+		}
+	}
+
+	void record(Operation operation, long scheduledNanos, boolean success) {
+		histograms.get(operation).recordValue(Math.max((System.nanoTime() - scheduledNanos) / 1_000, 0));
+		
+		if (!success) {
+			errors.get(operation).incrementAndGet();
+		}
+	}
+
+	void drop() {
+		dropped.incrementAndGet();
+	}
+
+	void report(Duration duration, PrintStream out) {
+		double seconds = duration.toMillis() / 1_000.0;
+		Histogram total = new Histogram(3);
+		
+		out.printf("%-20s %10s %8s %10s %10s %10s %10s %10s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+		
+		histograms.forEach((operation, histogram) -> {
+			if (histogram.getTotalCount() > 0) {
+				print(out, operation.getEndpoint(), histogram, errors.get(operation).get(), seconds);
+				total.add(histogram);
+			}
+		});
+		
+		print(out, "total", total, errors.values().stream().mapToLong(AtomicLong::get).sum(), seconds);
+		
+		out.printf("Dropped requests: %d%n", dropped.get());
+	}
+
+	private void print(PrintStream out, String name, Histogram histogram, long errorCount, double seconds) {
+		out.printf("%-20s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(), errorCount, histogram.getTotalCount() / seconds,
+				histogram.getValueAtPercentile(50) / 1_000.0, histogram.getValueAtPercentile(99) / 1_000.0, 
+				histogram.getValueAtPercentile(99.9) / 1_000.0, histogram.getMaxValue() / 1_000.0);
+	}
+}
@@ -0,0 +1,66 @@
+package com.cnewbywa.item.benchmark.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of the load test, given as --name=value arguments.
+ * 
+ * @param items amount of items seeded before the test
+ * @param rate requests per second started regardless of how fast the service answers
+ * @param warmup time the workload is run before measuring
+ * @param duration time the workload is measured
+ * @param mix relative weights of the operations
+ * @param connections maximum amount of HTTP connections to the service
+ * @param maxOutstanding requests in flight after which new requests are dropped instead of started
+ * @param mongoUri database to use, a Mongo container is started when not given
+ * @param keystorePassword password of the service keystore, needed to load the SSL bundle even though the perf profile disables SSL
+ * @param mongoPoolSize maximum size of the Mongo connection pool of the service, the configured size when not given
+ */
+record LoadTestOptions(int items, int rate, Duration warmup, Duration duration, Map<Operation, Integer> mix, int connections, 
+		int maxOutstanding, String mongoUri, String keystorePassword, Integer mongoPoolSize) {
+
+	private static final String DEFAULT_MIX = "get=60,paging=15,cursor=10,create=10,update=5,skip=0,search=0,text-search=0";
+
+	static LoadTestOptions parse(String[] args) {
+		Map<String, String> values = new HashMap<>();
+		
+		for (String arg : args) {
+			if (!arg.startsWith("--") || !arg.contains("=")) {
+				throw new IllegalArgumentException("Arguments must be given as --name=value: " + arg);
+			}
+			
+			values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+		
+		return new LoadTestOptions(
+				Integer.parseInt(values.getOrDefault("items", "10000")),
+				Integer.parseInt(values.getOrDefault("rate", "500")),
+				Duration.parse(values.getOrDefault("warmup", "PT10S")),
+				Duration.parse(values.getOrDefault("duration", "PT60S")),
+				parseMix(values.getOrDefault("mix", DEFAULT_MIX)),
+				Integer.parseInt(values.getOrDefault("connections", "200")),
+				Integer.parseInt(values.getOrDefault("max-outstanding", "10000")),
+				values.get("mongo-uri"),
+				values.getOrDefault("keystore-password", "itemservice"),
+				values.containsKey("mongo-pool-size") ? Integer.valueOf(values.get("mongo-pool-size")) : null);
+	}
+
+	private static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		
+		for (String weight : mix.split(",")) {
+			String[] parts = weight.split("=");
+			
+			weights.put(Operation.fromName(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+		}
+		
+		if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+			throw new IllegalArgumentException("Operation mix must have at least one positive weight: " + mix);
+		}
+		
+		return weights;
+	}
+}
@@ -0,0 +1,62 @@
+package com.cnewbywa.item.benchmark.load;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Signs access tokens with a generated RSA key, standing in for the authorization server. The service verifies them
+ * with the public key written to a PEM file, configured as the public key location of the resource server.
+ */
+public class LocalTokenIssuer {
+
+	private final KeyPair keyPair;
+
+	public LocalTokenIssuer() throws NoSuchAlgorithmException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		
+		generator.initialize(2048);
+		
+		this.keyPair = generator.generateKeyPair();
+	}
+
+	public Path writePublicKey(Path directory) throws IOException {
+		String pem = "-----BEGIN PUBLIC KEY-----\n" 
+				+ Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(keyPair.getPublic().getEncoded())
+				+ "\n-----END PUBLIC KEY-----\n";
+		
+		Files.createDirectories(directory);
+		
+		return Files.writeString(directory.resolve("public-key.pem"), pem);
+	}
+
+	public String issue(String user, Duration validity) throws JOSEException {
+		Instant now = Instant.now();
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.subject(user)
+				.issueTime(Date.from(now))
+				.expirationTime(Date.from(now.plus(validity)))
+				.build();
+		SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), claims);
+		
+		jwt.sign(new RSASSASigner((RSAPrivateKey) keyPair.getPrivate()));
+		
+		return jwt.serialize();
+	}
+}
@@ -0,0 +1,36 @@
+package com.cnewbywa.item.benchmark.load;
+
+import java.util.Arrays;
+
+/**
+ * Requests of the workload, named after the endpoints they call.
+ */
+enum Operation {
+
+	GET("get", "GET /items/{id}"),
+	PAGING("paging", "GET /items/paging"),
+	SKIP("skip", "GET /items/skip"),
+	CURSOR("cursor", "GET /items/cursor"),
+	SEARCH("search", "GET /items/search?mode=prefix"),
+	TEXT_SEARCH("text-search", "GET /items/search?mode=text"),
+	CREATE("create", "POST /items"),
+	UPDATE("update", "PUT /items/{id}");
+
+	private final String name;
+	
+	private final String endpoint;
+
+	Operation(String name, String endpoint) {
+		this.name = name;
+		this.endpoint = endpoint;
+	}
+
+	String getEndpoint() {
+		return endpoint;
+	}
+
+	static Operation fromName(String name) {
+		return Arrays.stream(values()).filter(operation -> operation.name.equals(name)).findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("Unknown operation: " + name));
+	}
+}
@@ -0,0 +1,246 @@
+package com.cnewbywa.item.benchmark.startup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.cnewbywa.item.benchmark.load.LocalTokenIssuer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates an AppCDS archive of the service for faster JVM startup. Extracts the executable jar, because classes
+ * loaded from the jars nested in it cannot be archived, and writes a Java argument file starting the application from
+ * the extracted class path. Then runs the service with -XX:ArchiveClassesAtExit, calls every endpoint a few times
+ * in the ways the clients call them, and stops the service, at which point the JVM writes the classes it loaded to
+ * the archive. The archive can only be used with the same JDK and the same class path.
+ * 
+ * Options, given as --name=value arguments: jar, output, java, iterations, timeout, mongo-uri and keystore-password.
+ */
+public class CdsTrainingRun {
+
+	private static final String DEFAULT_JAR = "../target/simple-reactive-item-service-0.0.1-SNAPSHOT-exec.jar";
+	
+	private static final String CBOR = "application/cbor";
+	
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	
+	private final ServiceProcess service;
+	
+	private final String authorization;
+	
+	private int failures;
+
+	private CdsTrainingRun(ServiceProcess service, String authorization) {
+		this.service = service;
+		this.authorization = authorization;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = ServiceProcess.parseOptions(args);
+		Path jar = Path.of(options.getOrDefault("jar", DEFAULT_JAR)).toAbsolutePath();
+		Path output = Path.of(options.getOrDefault("output", "target/cds")).toAbsolutePath();
+		String java = options.getOrDefault("java", Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		int iterations = Integer.parseInt(options.getOrDefault("iterations", "10"));
+		Duration timeout = Duration.parse(options.getOrDefault("timeout", "PT2M"));
+		
+		Path argumentFile = extract(jar, output);
+		Path archive = output.resolve("item-service.jsa");
+		
+		Files.deleteIfExists(archive);
+		
+		MongoDBContainer mongoDBContainer = null;
+		String mongoUri = options.get("mongo-uri");
+		
+		if (mongoUri == null) {
+			mongoDBContainer = ServiceProcess.startMongo();
+			mongoUri = mongoDBContainer.getReplicaSetUrl("items");
+		}
+		
+		LocalTokenIssuer tokenIssuer = new LocalTokenIssuer();
+		Path publicKey = tokenIssuer.writePublicKey(output);
+		
+		try {
+			long start = System.nanoTime();
+			
+			try (ServiceProcess service = ServiceProcess.start(List.of(java, "-XX:ArchiveClassesAtExit=" + archive, "@" + argumentFile), mongoUri, publicKey, 
+					options.getOrDefault("keystore-password", "itemservice"), output.resolve("training.log"))) {
+				service.awaitReady(start, timeout);
+				
+				CdsTrainingRun trainingRun = new CdsTrainingRun(service, "Bearer " + tokenIssuer.issue("cds.training.user", Duration.ofHours(1)));
+				
+				for (int i = 0; i < iterations; i++) {
+					trainingRun.callEndpoints(i);
+				}
+				
+				System.out.printf("Called the endpoints %d times, %d unexpected responses%n", iterations, trainingRun.failures);
+			}
+		} finally {
+			if (mongoDBContainer != null) {
+				mongoDBContainer.stop();
+			}
+		}
+		
+		if (!Files.exists(archive)) {
+			throw new IllegalStateException("The archive was not written, see " + output.resolve("training.log"));
+		}
+		
+		System.out.printf("Archive written to %s (%d MB)%nStart the service with:%n%s -XX:SharedArchiveFile=%s @%s%n", archive, 
+				Files.size(archive) / (1024 * 1024), java, archive, argumentFile);
+	}
+
+	/*
+	 * Unpacks the jar and returns an argument file with the class path of the extracted jar in the order of 
+	 * BOOT-INF/classpath.idx, and its main class.
+	 */
+	private static Path extract(Path jar, Path output) throws IOException {
+		Path directory = output.resolve("app");
+		
+		if (Files.exists(directory)) {
+			try (Stream<Path> paths = Files.walk(directory)) {
+				for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(path);
+				}
+			}
+		}
+		
+		String mainClass;
+		
+		try (JarFile jarFile = new JarFile(jar.toFile())) {
+			mainClass = jarFile.getManifest().getMainAttributes().getValue("Start-Class");
+			
+			for (ZipEntry entry : jarFile.stream().toList()) {
+				Path target = directory.resolve(entry.getName()).normalize();
+				
+				if (!target.startsWith(directory)) {
+					throw new IOException("Entry outside the jar directory: " + entry.getName());
+				}
+				
+				if (entry.isDirectory()) {
+					Files.createDirectories(target);
+				} else {
+					Files.createDirectories(target.getParent());
+					
+					try (InputStream input = jarFile.getInputStream(entry)) {
+						Files.copy(input, target);
+					}
+				}
+			}
+		}
+		
+		List<String> classPath = new ArrayList<>(List.of(directory.resolve("BOOT-INF/classes").toString()));
+		
+		// lines like - "BOOT-INF/lib/caffeine-3.1.6.jar"
+		Files.readAllLines(directory.resolve("BOOT-INF/classpath.idx")).stream()
+				.map(line -> line.replaceFirst("^- \"(.*)\"$", "$1"))
+				.forEach(library -> classPath.add(directory.resolve(library).toString()));
+		
+		Path argumentFile = output.resolve("java-args");
+		
+		Files.writeString(argumentFile, "-cp \"" + String.join(File.pathSeparator, classPath).replace("\\", "\\\\") 
+				+ "\"\n" + mainClass + "\n");
+		
+		return argumentFile;
+	}
+
+	private void callEndpoints(int iteration) throws IOException, InterruptedException {
+		String name = "Training item " + iteration;
+		JsonNode item = json(send(authorized("/items").header("Content-Type", "application/json")
+				.POST(body(Map.of("name", name, "description", "Description of " + name)))));
+		String id = item.get("id").asText();
+		String version = "\"" + item.get("version").asText() + "\"";
+		
+		send(service.request("/items/" + id).header("Authorization", authorization).GET());
+		send(authorized("/items/" + id).header("Accept", CBOR).GET());
+		send(authorized("/items/" + id).header("If-None-Match", version).GET());
+		send(authorized("/items/" + id).header("Content-Type", "application/json").header("If-Match", version)
+				.PUT(body(Map.of("name", name + " updated", "description", "Updated description of " + name))));
+		
+		send(service.request("/items?sort=name,asc").header("Accept", "application/json").GET());
+		send(service.request("/items?sort=name,asc").header("Accept", "application/x-ndjson").GET());
+		send(service.request("/items/paging?page=0&size=20&sort=name,asc").header("Accept-Encoding", "gzip").GET());
+		send(service.request("/items/paging?page=0&size=20&sort=name,asc").header("Accept", CBOR).GET());
+		send(service.request("/items/skip?page=0&size=20&sort=createTime,desc").GET());
+		
+		JsonNode page = json(send(service.request("/items/cursor?size=2&sort=name,asc").GET()));
+		
+		if (page.hasNonNull("nextCursor")) {
+			send(service.request("/items/cursor?size=2&sort=name,asc&cursor=" + encode(page.get("nextCursor").asText())).GET());
+		}
+		
+		send(service.request("/items/search?q=" + encode("training it")).GET());
+		send(service.request("/items/search?mode=text&q=training").GET());
+		send(service.request("/items/suggest?q=train").GET());
+		
+		String bulkItems = "{\"name\":\"Bulk " + name + " 1\",\"description\":\"Bulk\"}\n{\"name\":\"Bulk " + name + " 2\",\"description\":\"Bulk\"}\n";
+		List<String> bulkIds = new ArrayList<>();
+		
+		for (String line : new String(send(authorized("/items/bulk").header("Content-Type", "application/x-ndjson").header("Accept", "application/x-ndjson")
+				.POST(HttpRequest.BodyPublishers.ofString(bulkItems))).body(), StandardCharsets.UTF_8).split("\n")) {
+			if (!line.isBlank()) {
+				bulkIds.add(OBJECT_MAPPER.readTree(line).get("id").asText());
+			}
+		}
+		
+		List<Map<String, String>> updates = bulkIds.stream().map(bulkId -> Map.of("id", bulkId, "name", "Updated", "description", "Updated")).toList();
+		List<Map<String, String>> deletes = bulkIds.stream().map(bulkId -> Map.of("id", bulkId)).toList();
+		
+		send(authorized("/items/bulk").header("Content-Type", "application/json").PUT(body(updates)));
+		send(authorized("/items/bulk").header("Content-Type", "application/json").method("DELETE", body(deletes)));
+		send(authorized("/items/" + id).DELETE());
+		
+		// error responses load their own classes
+		send(service.request("/items/paging?page=0&size=100000&sort=name,asc").GET(), 400);
+		send(authorized("/items/" + id).GET(), 404);
+	}
+
+	private HttpRequest.Builder authorized(String path) {
+		return service.request(path).header("Authorization", authorization);
+	}
+
+	private HttpResponse<byte[]> send(HttpRequest.Builder request, int... expectedStatuses) throws IOException, InterruptedException {
+		HttpResponse<byte[]> response = service.send(request.build());
+		int status = response.statusCode();
+		boolean expected = expectedStatuses.length == 0 ? status < 400 : IntStream.of(expectedStatuses).anyMatch(expectedStatus -> expectedStatus == status);
+		
+		if (!expected) {
+			failures++;
+			System.out.printf("Unexpected %d from %s %s%n", status, response.request().method(), response.request().uri());
+		}
+		
+		return response;
+	}
+
+	private JsonNode json(HttpResponse<byte[]> response) throws IOException {
+		if (response.statusCode() >= 400) {
+			throw new IllegalStateException("Training cannot continue after " + response.statusCode() + " from " + response.request().uri());
+		}
+		
+		return OBJECT_MAPPER.readTree(response.body());
+	}
+
+	private HttpRequest.BodyPublisher body(Object value) throws IOException {
+		return HttpRequest.BodyPublishers.ofByteArray(OBJECT_MAPPER.writeValueAsBytes(value));
+	}
+
+	private String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,140 @@
+package com.cnewbywa.item.benchmark.startup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * The built service running as a separate process with the perf profile, against the given database and verifying
+ * access tokens with the given public key. Closing the process stops it like the platform would, with SIGTERM.
+ */
+class ServiceProcess implements AutoCloseable {
+
+	private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+	
+	private static final Duration STOP_TIMEOUT = Duration.ofSeconds(60);
+	
+	private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+	private final Process process;
+	
+	private final int port;
+
+	private ServiceProcess(Process process, int port) {
+		this.process = process;
+		this.port = port;
+	}
+
+	static ServiceProcess start(List<String> command, String mongoUri, Path publicKey, String keystorePassword, Path log) throws IOException {
+		int port = findFreePort();
+		List<String> processCommand = new ArrayList<>(command);
+		
+		processCommand.addAll(List.of(
+				"--spring.profiles.active=perf",
+				"--server.port=" + port,
+				"--spring.data.mongodb.uri=" + mongoUri,
+				"--spring.security.oauth2.resourceserver.jwt.public-key-location=" + publicKey.toUri(),
+				"--item.keystore.password=" + keystorePassword));
+		
+		Process process = new ProcessBuilder(processCommand)
+				.redirectErrorStream(true)
+				.redirectOutput(log.toFile())
+				.start();
+		
+		return new ServiceProcess(process, port);
+	}
+
+	static MongoDBContainer startMongo() {
+		MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+		
+		mongoDBContainer.start();
+		
+		return mongoDBContainer;
+	}
+
+	static Map<String, String> parseOptions(String[] args, String... required) {
+		Map<String, String> values = new HashMap<>();
+		
+		for (String arg : args) {
+			if (!arg.startsWith("--") || !arg.contains("=")) {
+				throw new IllegalArgumentException("Arguments must be given as --name=value: " + arg);
+			}
+			
+			values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+		
+		for (String name : required) {
+			if (!values.containsKey(name)) {
+				throw new IllegalArgumentException("--" + name + " must be given");
+			}
+		}
+		
+		return values;
+	}
+
+	void awaitReady(long start, Duration timeout) throws IOException, InterruptedException {
+		HttpRequest request = request("/actuator/health/readiness").build();
+		
+		while (System.nanoTime() - start < timeout.toNanos()) {
+			if (!process.isAlive()) {
+				throw new IllegalStateException("Service exited with " + process.exitValue() + " before it was ready");
+			}
+			
+			try {
+				if (HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+					return;
+				}
+			} catch (IOException e) {
+				// not listening yet
+			}
+			
+			Thread.sleep(POLL_INTERVAL.toMillis());
+		}
+		
+		throw new IllegalStateException("Service was not ready in " + timeout);
+	}
+
+	HttpRequest.Builder request(String path) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).timeout(Duration.ofSeconds(30));
+	}
+
+	HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+		return HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	/*
+	 * Waits for the service to stop and kills it only when it does not, a JVM writes the class data archive requested
+	 * with -XX:ArchiveClassesAtExit only when it exits normally.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		process.destroy();
+		
+		if (!process.waitFor(STOP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+			process.destroyForcibly().waitFor();
+		}
+	}
+
+	int exitValue() {
+		return process.exitValue();
+	}
+
+	private static int findFreePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
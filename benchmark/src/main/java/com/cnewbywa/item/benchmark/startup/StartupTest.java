@@ -0,0 +1,97 @@
+package com.cnewbywa.item.benchmark.startup;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.cnewbywa.item.benchmark.load.LocalTokenIssuer;
+
+/**
+ * Starts the built service as a separate process, the jar on the JVM or the native executable, and measures the time
+ * until the readiness probe reports it ready and the latencies of the first requests after that: a public list page
+ * and an authenticated single item. Runs the given command several times with the perf profile and reports the median,
+ * minimum and maximum of each. The output of the service is written to target/startup.
+ * 
+ * Options, given as --name=value arguments: command (required), runs, timeout, mongo-uri and keystore-password.
+ */
+public class StartupTest {
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = ServiceProcess.parseOptions(args, "command");
+		List<String> command = Arrays.asList(options.get("command").trim().split("\\s+"));
+		int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+		Duration timeout = Duration.parse(options.getOrDefault("timeout", "PT2M"));
+		MongoDBContainer mongoDBContainer = null;
+		String mongoUri = options.get("mongo-uri");
+		
+		if (mongoUri == null) {
+			mongoDBContainer = ServiceProcess.startMongo();
+			mongoUri = mongoDBContainer.getReplicaSetUrl("items");
+		}
+		
+		Path directory = Files.createDirectories(Path.of("target", "startup"));
+		LocalTokenIssuer tokenIssuer = new LocalTokenIssuer();
+		Path publicKey = tokenIssuer.writePublicKey(directory);
+		String authorization = "Bearer " + tokenIssuer.issue("startup.test.user", Duration.ofHours(1));
+		List<Long> ready = new ArrayList<>();
+		List<Long> firstList = new ArrayList<>();
+		List<Long> firstItem = new ArrayList<>();
+		
+		try {
+			for (int run = 1; run <= runs; run++) {
+				long start = System.nanoTime();
+				
+				try (ServiceProcess service = ServiceProcess.start(command, mongoUri, publicKey, options.getOrDefault("keystore-password", "itemservice"), 
+						directory.resolve("run-" + run + ".log"))) {
+					service.awaitReady(start, timeout);
+					ready.add(elapsedMillis(start));
+					firstList.add(time(service, service.request("/items/paging?page=0&size=20&sort=name,asc").GET().build()));
+					firstItem.add(time(service, service.request("/items/" + UUID.randomUUID()).header("Authorization", authorization).GET().build()));
+				}
+				
+				System.out.printf("Run %d: ready in %d ms, first list %d ms, first item %d ms%n", run, ready.get(run - 1), 
+						firstList.get(run - 1), firstItem.get(run - 1));
+			}
+		} finally {
+			if (mongoDBContainer != null) {
+				mongoDBContainer.stop();
+			}
+		}
+		
+		System.out.printf("%nCommand: %s%n", String.join(" ", command));
+		report("Time to ready", ready);
+		report("First list request", firstList);
+		report("First authenticated request", firstItem);
+	}
+
+	/*
+	 * Latency of a request, any response counts since the time to answer is measured, not the result.
+	 */
+	private static long time(ServiceProcess service, HttpRequest request) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		
+		service.send(request);
+		
+		return elapsedMillis(start);
+	}
+
+	private static long elapsedMillis(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private static void report(String name, List<Long> values) {
+		List<Long> sorted = values.stream().sorted().toList();
+		
+		System.out.printf("%-28s median %6d ms, min %6d ms, max %6d ms%n", name, sorted.get(sorted.size() / 2), sorted.get(0), sorted.get(sorted.size() - 1));
+	}
+}
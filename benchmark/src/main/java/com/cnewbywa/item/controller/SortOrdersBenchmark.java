@@ -0,0 +1,59 @@
+package com.cnewbywa.item.controller;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import com.cnewbywa.item.configuration.ItemIndexProperties;
+import com.cnewbywa.item.configuration.ItemListingProperties;
+import com.cnewbywa.item.model.ItemCursorResponseDto;
+import com.cnewbywa.item.service.ItemIndexService;
+import com.cnewbywa.item.service.ItemMetrics;
+import com.cnewbywa.item.service.ItemService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Parsing of the sort request parameter and the check of the sort against the indexes, through the cursor endpoint.
+ * The returned Mono is not subscribed, so no items are read. Spring splits a single "name,desc" parameter into two
+ * values, several sort parameters are passed as they are.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortOrdersBenchmark {
+
+	private static final int PAGE_SIZE = 100;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	
+	private final ItemController itemController = new ItemController(new ItemService(null, null, null, null, new ItemMetrics(meterRegistry), null, null), 
+			null, new ItemIndexService(null, new ItemIndexProperties(), meterRegistry), new ItemListingProperties());
+	
+	private final String[] singleSort = { "name", "desc" };
+	
+	private final String[] multipleSorts = { "name,asc", "itemId,asc" };
+
+	@Benchmark
+	public Mono<ResponseEntity<ItemCursorResponseDto>> singleSort() {
+		return itemController.getItemsWithCursor(null, PAGE_SIZE, singleSort);
+	}
+
+	@Benchmark
+	public Mono<ResponseEntity<ItemCursorResponseDto>> multipleSorts() {
+		return itemController.getItemsWithCursor(null, PAGE_SIZE, multipleSorts);
+	}
+}
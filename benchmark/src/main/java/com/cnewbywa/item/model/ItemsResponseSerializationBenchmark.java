@@ -0,0 +1,118 @@
+package com.cnewbywa.item.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.cnewbywa.item.benchmark.BenchmarkItems;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Serialization of a page of list items, as one JSON document, as newline delimited JSON and as CBOR, with and without
+ * gzip at the default level of the server. The object mappers are configured like the ones of the service.
+ * The payload sizes of the formats are printed after the setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemsResponseSerializationBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int amount;
+	
+	private ObjectMapper objectMapper;
+	
+	private ObjectMapper cborMapper;
+	
+	private ObjectWriter itemWriter;
+	
+	private ItemsResponseDto response;
+
+	@Setup
+	public void setup() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+		cborMapper = Jackson2ObjectMapperBuilder.json()
+				.factory(new CBORFactory())
+				.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.featuresToDisable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS)
+				.build();
+		itemWriter = objectMapper.writerFor(ItemListResponseDto.class);
+		
+		List<ItemListResponseDto> items = BenchmarkItems.createListDocuments(amount).stream()
+				.map(document -> new ItemListResponseDto(document.getString("itemId"), document.getString("name"), document.getDate("createTime").toInstant()))
+				.toList();
+		
+		response = new ItemsResponseDto(items, items.size(), items.size());
+		
+		try {
+			System.out.printf("%nPayload bytes of %d items: json %d, json gzip %d, ndjson %d, cbor %d, cbor gzip %d%n", amount, 
+					json().length, jsonGzip().length, ndjson().length, cbor().length, cborGzip().length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Benchmark
+	public byte[] json() throws IOException {
+		return objectMapper.writeValueAsBytes(response);
+	}
+
+	@Benchmark
+	public byte[] jsonGzip() throws IOException {
+		return gzip(json());
+	}
+
+	@Benchmark
+	public byte[] cbor() throws IOException {
+		return cborMapper.writeValueAsBytes(response);
+	}
+
+	@Benchmark
+	public byte[] cborGzip() throws IOException {
+		return gzip(cbor());
+	}
+
+	@Benchmark
+	public byte[] ndjson() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		for (ItemListResponseDto item : response.getItems()) {
+			output.write(itemWriter.writeValueAsBytes(item));
+			output.write('\n');
+		}
+		
+		return output.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] payload) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(payload.length / 4);
+		
+		try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+			gzip.write(payload);
+		}
+		
+		return output.toByteArray();
+	}
+}
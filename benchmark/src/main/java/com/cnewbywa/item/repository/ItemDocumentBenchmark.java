@@ -0,0 +1,103 @@
+package com.cnewbywa.item.repository;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.cnewbywa.item.benchmark.BenchmarkItems;
+import com.cnewbywa.item.model.Item;
+
+/**
+ * BSON encoding and decoding of a full item document, as the list queries read it before the projection, and of the
+ * projected itemId, name and createTime document they read now. The full document is written by the mapping converter
+ * of the repository, so it has the same fields as the stored one. The size of both documents is printed after the
+ * setup, the allocation per operation comes from the GC profiler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemDocumentBenchmark {
+
+	private final DocumentCodec documentCodec = new DocumentCodec();
+	
+	private Document fullDocument;
+	private Document listDocument;
+	private byte[] fullBytes;
+	private byte[] listBytes;
+
+	@Setup
+	public void setup() {
+		MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+		Item item = BenchmarkItems.createItem(1);
+		
+		converter.afterPropertiesSet();
+		
+		fullDocument = new Document();
+		converter.write(item, fullDocument);
+		listDocument = BenchmarkItems.toListDocument(item);
+		
+		fullBytes = encode(fullDocument);
+		listBytes = encode(listDocument);
+		
+		System.out.printf("%nFull item document has %d bytes, projected list document %d bytes%n", fullBytes.length, listBytes.length);
+	}
+
+	@Benchmark
+	public byte[] encodeFull() {
+		return encode(fullDocument);
+	}
+
+	@Benchmark
+	public byte[] encodeProjected() {
+		return encode(listDocument);
+	}
+
+	@Benchmark
+	public Document decodeFull() {
+		return decode(fullBytes);
+	}
+
+	@Benchmark
+	public Document decodeProjected() {
+		return decode(listBytes);
+	}
+
+	private byte[] encode(Document document) {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		
+		try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+			documentCodec.encode(writer, document, EncoderContext.builder().build());
+		}
+		
+		return buffer.toByteArray();
+	}
+
+	private Document decode(byte[] bytes) {
+		try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+			return documentCodec.decode(reader, DecoderContext.builder().build());
+		}
+	}
+}
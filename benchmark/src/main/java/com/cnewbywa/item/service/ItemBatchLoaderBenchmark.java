@@ -0,0 +1,84 @@
+package com.cnewbywa.item.service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cnewbywa.item.benchmark.BenchmarkItems;
+import com.cnewbywa.item.benchmark.InMemoryItemRepository;
+import com.cnewbywa.item.configuration.ItemBatchProperties;
+import com.cnewbywa.item.model.Item;
+
+/**
+ * Concurrent single item lookups with and without batching. The in-memory repository answers immediately,
+ * so the throughput shows the cost of the batch window. The amount of queries printed after each iteration,
+ * compared with the amount of lookups, shows how many database round-trips the batching saves.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ItemBatchLoaderBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean batching;
+	
+	private InMemoryItemRepository repository;
+	
+	private ItemBatchLoader itemBatchLoader;
+	
+	private List<String> itemIds;
+	
+	private long queries;
+
+	@Setup
+	public void setup() {
+		List<Item> items = IntStream.range(0, 10_000).mapToObj(BenchmarkItems::createItem).toList();
+		ItemBatchProperties properties = new ItemBatchProperties();
+		
+		properties.setEnabled(batching);
+		
+		repository = InMemoryItemRepository.of(items);
+		itemBatchLoader = new ItemBatchLoader(repository.asRepository(), properties);
+		itemIds = items.stream().map(Item::getItemId).toList();
+	}
+
+	@Setup(Level.Iteration)
+	public void startIteration() {
+		queries = repository.getQueries();
+	}
+
+	@TearDown(Level.Iteration)
+	public void endIteration() {
+		System.out.println("Queries during iteration: " + (repository.getQueries() - queries));
+	}
+
+	@TearDown
+	public void tearDown() {
+		itemBatchLoader.destroy();
+	}
+
+	@Benchmark
+	public Item load() {
+		return itemBatchLoader.load(itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()))).block();
+	}
+}
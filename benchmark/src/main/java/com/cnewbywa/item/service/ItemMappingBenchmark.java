@@ -0,0 +1,90 @@
+package com.cnewbywa.item.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import com.cnewbywa.item.benchmark.BenchmarkItems;
+import com.cnewbywa.item.benchmark.InMemoryItemRepository;
+import com.cnewbywa.item.configuration.ItemBatchProperties;
+import com.cnewbywa.item.configuration.ItemCacheProperties;
+import com.cnewbywa.item.configuration.ItemOutboxProperties;
+import com.cnewbywa.item.configuration.ItemSuggestProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Mapping of a full item and of a projected list document to the response DTOs, read through the service from an 
+ * in-memory repository of one item with the cache and the batching disabled. Both reads have the overhead of a 
+ * one-item reactive pipeline, so the difference between them is the mapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemMappingBenchmark {
+
+	private static final Sort SORT = Sort.by(Sort.Direction.ASC, "name");
+
+	private ItemService itemService;
+	
+	private ItemBatchLoader itemBatchLoader;
+	
+	private String itemId;
+
+	@Setup
+	public void setup() {
+		Item item = BenchmarkItems.createItem(1);
+		ItemRepository itemRepository = InMemoryItemRepository.of(List.of(item)).asRepository();
+		ItemBatchProperties batchProperties = new ItemBatchProperties();
+		ItemCacheProperties cacheProperties = new ItemCacheProperties();
+		
+		batchProperties.setEnabled(false);
+		cacheProperties.setEnabled(false);
+		
+		itemBatchLoader = new ItemBatchLoader(itemRepository, batchProperties);
+		ItemOutboxProperties outboxProperties = new ItemOutboxProperties();
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		
+		outboxProperties.setEnabled(false);
+		
+		itemService = new ItemService(itemRepository, new ItemCountService(itemRepository), 
+				new ItemCache(cacheProperties, meterRegistry), itemBatchLoader, new ItemMetrics(meterRegistry), 
+				new ItemOutbox(null, outboxProperties, Optional.empty()), new ItemSuggestIndex(itemRepository, new ItemSuggestProperties(), meterRegistry));
+		itemId = item.getItemId();
+	}
+
+	@TearDown
+	public void tearDown() {
+		itemBatchLoader.destroy();
+	}
+
+	@Benchmark
+	public ItemResponseDto createResponseDto() {
+		return itemService.getItem(itemId).block();
+	}
+
+	@Benchmark
+	public ItemListResponseDto createListResponseDto() {
+		return itemService.getItems(SORT).blockLast();
+	}
+}
@@ -0,0 +1,106 @@
+package com.cnewbywa.item.service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.cnewbywa.item.benchmark.BenchmarkItems;
+import com.cnewbywa.item.benchmark.InMemoryItemRepository;
+import com.cnewbywa.item.configuration.ItemBatchProperties;
+import com.cnewbywa.item.configuration.ItemCacheProperties;
+import com.cnewbywa.item.configuration.ItemOutboxProperties;
+import com.cnewbywa.item.configuration.ItemSuggestProperties;
+import com.cnewbywa.item.model.ItemCursor;
+import com.cnewbywa.item.model.ItemCursorResponseDto;
+import com.cnewbywa.item.model.ItemsResponseDto;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * First and deep page of the three listing strategies. Skip and take pulls every item before the page through
+ * the service, paging and cursor only receive the page. The cost of skipping in the database itself is not
+ * included here, the load test measures it against a seeded collection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemPagingBenchmark {
+
+	private static final int ITEMS = 100_000;
+	
+	private static final int PAGE_SIZE = 10;
+	
+	private static final Sort SORT = Sort.by(Sort.Direction.ASC, "name");
+
+	@Param({ "0", "9999" })
+	public int page;
+	
+	private ItemService itemService;
+	
+	private ItemBatchLoader itemBatchLoader;
+	
+	private Pageable pageable;
+	
+	private String cursor;
+
+	@Setup
+	public void setup() {
+		InMemoryItemRepository repository = InMemoryItemRepository.of(IntStream.range(0, ITEMS).mapToObj(BenchmarkItems::createItem).toList());
+		ItemRepository itemRepository = repository.asRepository();
+		ItemBatchProperties batchProperties = new ItemBatchProperties();
+		
+		batchProperties.setEnabled(false);
+		
+		itemBatchLoader = new ItemBatchLoader(itemRepository, batchProperties);
+		ItemOutboxProperties outboxProperties = new ItemOutboxProperties();
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		
+		outboxProperties.setEnabled(false);
+		
+		itemService = new ItemService(itemRepository, new ItemCountService(itemRepository), 
+				new ItemCache(new ItemCacheProperties(), meterRegistry), itemBatchLoader, new ItemMetrics(meterRegistry), 
+				new ItemOutbox(null, outboxProperties, Optional.empty()), new ItemSuggestIndex(itemRepository, new ItemSuggestProperties(), meterRegistry));
+		pageable = PageRequest.of(page, PAGE_SIZE, SORT);
+		cursor = page == 0 ? null : ItemCursor.of(ItemCursor.withTieBreaker(SORT), repository.getListDocuments().get(page * PAGE_SIZE - 1)).encode();
+	}
+
+	@TearDown
+	public void tearDown() {
+		itemBatchLoader.destroy();
+	}
+
+	@Benchmark
+	public ItemsResponseDto paging() {
+		return itemService.getItemsWithPaging(pageable, false).block();
+	}
+
+	@Benchmark
+	public ItemsResponseDto skipAndTake() {
+		return itemService.getItemsWithSkipAndTake(pageable, false).block();
+	}
+
+	@Benchmark
+	public ItemCursorResponseDto cursor() {
+		return itemService.getItemsWithCursor(cursor, PAGE_SIZE, SORT).block();
+	}
+}
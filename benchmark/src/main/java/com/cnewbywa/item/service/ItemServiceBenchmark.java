@@ -0,0 +1,93 @@
+package com.cnewbywa.item.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import com.cnewbywa.item.benchmark.BenchmarkItems;
+import com.cnewbywa.item.benchmark.InMemoryItemRepository;
+import com.cnewbywa.item.configuration.ItemBatchProperties;
+import com.cnewbywa.item.configuration.ItemCacheProperties;
+import com.cnewbywa.item.configuration.ItemOutboxProperties;
+import com.cnewbywa.item.configuration.ItemSuggestProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The service pipeline from the repository to the response DTOs, with an in-memory repository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemServiceBenchmark {
+
+	private static final Sort SORT = Sort.by(Sort.Direction.ASC, "name");
+
+	@Param({ "100", "1000", "10000" })
+	public int amount;
+	
+	private ItemService itemService;
+	
+	private ItemBatchLoader itemBatchLoader;
+	
+	private List<String> itemIds;
+
+	@Setup
+	public void setup() {
+		List<Item> items = IntStream.range(0, amount).mapToObj(BenchmarkItems::createItem).toList();
+		ItemRepository itemRepository = InMemoryItemRepository.of(items).asRepository();
+		ItemBatchProperties batchProperties = new ItemBatchProperties();
+		
+		batchProperties.setEnabled(false);
+		
+		itemBatchLoader = new ItemBatchLoader(itemRepository, batchProperties);
+		ItemOutboxProperties outboxProperties = new ItemOutboxProperties();
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		
+		outboxProperties.setEnabled(false);
+		
+		itemService = new ItemService(itemRepository, new ItemCountService(itemRepository), 
+				new ItemCache(new ItemCacheProperties(), meterRegistry), itemBatchLoader, new ItemMetrics(meterRegistry), 
+				new ItemOutbox(null, outboxProperties, Optional.empty()), new ItemSuggestIndex(itemRepository, new ItemSuggestProperties(), meterRegistry));
+		itemIds = items.stream().map(Item::getItemId).toList();
+	}
+
+	@TearDown
+	public void tearDown() {
+		itemBatchLoader.destroy();
+	}
+
+	@Benchmark
+	public List<ItemListResponseDto> getItems() {
+		return itemService.getItems(SORT).collectList().block();
+	}
+
+	// all items fit in the cache, so after the first round this is the cache hit path
+	@Benchmark
+	public ItemResponseDto getItem() {
+		return itemService.getItem(itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()))).block();
+	}
+}
@@ -0,0 +1,82 @@
+package com.cnewbywa.item.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cnewbywa.item.benchmark.BenchmarkItems;
+import com.cnewbywa.item.configuration.ItemSuggestProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemSuggestionDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Top 10 suggestions for prefixes of 6 to 9 characters of the item-0000000 names, the shorter ones matching
+ * up to 100 000 names. The heap used by the index is printed per item after the setup, measured as the difference
+ * of the used heap after a full GC before and after filling the index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ItemSuggestIndexBenchmark {
+
+	private static final int LIMIT = 10;
+
+	@Param({ "100000", "1000000" })
+	public int items;
+	
+	private ItemSuggestIndex itemSuggestIndex;
+
+	@Setup
+	public void setup() {
+		ItemSuggestProperties properties = new ItemSuggestProperties();
+		
+		properties.setMaxEntries(items);
+		
+		long before = usedHeap();
+		
+		itemSuggestIndex = new ItemSuggestIndex(null, properties, new SimpleMeterRegistry());
+		
+		for (int i = 0; i < items; i++) {
+			Item item = BenchmarkItems.createItem(i);
+			
+			itemSuggestIndex.put(item.getItemId(), item.getName());
+		}
+		
+		System.out.printf("%nSuggest index of %d items uses %d bytes per item%n", items, (usedHeap() - before) / items);
+	}
+
+	@Benchmark
+	public List<ItemSuggestionDto> suggest() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String name = String.format("item-%07d", random.nextInt(items));
+		
+		return itemSuggestIndex.suggest(name.substring(0, 6 + random.nextInt(4)), LIMIT);
+	}
+
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		
+		System.gc();
+		
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
@@ -2,7 +2,19 @@ db = db.getSiblingDB("items");
  
 db.createCollection("item");
 
-db.item.createIndex({ itemId: -1 });
+// pre-images let the change stream tell which item was deleted, needs a replica set
+db.runCommand({ collMod: "item", changeStreamPreAndPostImages: { enabled: true } });
+
+db.item.createIndex({ itemId: 1 }, { name: "itemId_unique", unique: true });
+db.item.createIndex({ name: 1, itemId: 1 }, { name: "name_itemId" });
+db.item.createIndex({ createTime: 1, itemId: 1 }, { name: "createTime_itemId" });
+db.item.createIndex({ nameNormalized: 1, itemId: 1 }, { name: "nameNormalized_itemId" });
+db.item.createIndex({ name: "text", description: "text" }, { name: "name_description_text", weights: { name: 10, description: 1 }, default_language: "none" });
+
+db.createCollection("itemEvent");
+
+db.itemEvent.createIndex({ publishTime: 1 }, { expireAfterSeconds: 604800 });
+db.itemEvent.createIndex({ publishTime: 1, itemId: 1, version: 1 });
 
 db = db.getSiblingDB("admin");
 
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +15,8 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
 import org.springframework.test.context.ActiveProfiles;
@@ -24,12 +27,23 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import com.cnewbywa.item.model.BulkItemDto;
+import com.cnewbywa.item.model.BulkItemResultDto;
+import com.cnewbywa.item.model.BulkItemStatus;
 import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemCursorResponseDto;
 import com.cnewbywa.item.model.ItemDto;
+import com.cnewbywa.item.model.ItemEvent;
+import com.cnewbywa.item.model.ItemEventType;
 import com.cnewbywa.item.model.ItemListResponseDto;
 import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.model.ItemSuggestionDto;
 import com.cnewbywa.item.model.ItemsResponseDto;
+import com.cnewbywa.item.repository.ItemEventRepository;
 import com.cnewbywa.item.repository.ItemRepository;
+import com.cnewbywa.item.service.ItemIndexService;
+
+import reactor.test.StepVerifier;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @TestPropertySource(locations = { "classpath:application-it-test.yml" })
@@ -44,6 +58,12 @@ class ItemControllerIntegrationTest {
 	@Autowired
 	private ItemRepository itemRepository;
 	
+	@Autowired
+	private ItemEventRepository itemEventRepository;
+	
+	@Autowired
+	private ItemIndexService itemIndexService;
+	
 	@LocalServerPort
 	private int port;
 	
@@ -67,6 +87,7 @@ class ItemControllerIntegrationTest {
 	@AfterEach
 	void destroy() {
 		itemRepository.deleteAll().block();
+		itemEventRepository.deleteAll().block();
 	}
 	
 	@Test
@@ -90,6 +111,136 @@ class ItemControllerIntegrationTest {
     		});
 	}
 	
+	@Test
+	void testGetItem_NotModified() {
+		String eTag = webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.get().uri("/items/" + item1Id)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+        	.expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache, private")
+        	.returnResult(ItemResponseDto.class).getResponseHeaders().getETag();
+		
+		assertEquals("\"0\"", eTag);
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.get().uri("/items/" + item1Id).ifNoneMatch(eTag)
+        	.exchange()
+        	.expectStatus().isNotModified()
+        	.expectBody().isEmpty();
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.put().uri("/items/" + item1Id).bodyValue(new ItemDto("Item 1 updated", "Description for Item 1"))
+        	.exchange()
+        	.expectStatus().isOk();
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.get().uri("/items/" + item1Id).ifNoneMatch(eTag)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+	}
+	
+	@Test
+	void testGetItemsWithPaging_NotModified() {
+		String eTag = webClient
+        	.get().uri("/items/paging?page=0&size=2&sort=name,asc")
+        	.exchange()
+        	.expectStatus().isOk()
+        	.returnResult(ItemsResponseDto.class).getResponseHeaders().getETag();
+		
+		assertNotNull(eTag);
+		
+		webClient
+        	.get().uri("/items/paging?page=0&size=2&sort=name,asc").ifNoneMatch(eTag)
+        	.exchange()
+        	.expectStatus().isNotModified();
+		
+		webClient
+        	.get().uri("/items/paging?page=0&size=3&sort=name,asc").ifNoneMatch(eTag)
+        	.exchange()
+        	.expectStatus().isOk();
+	}
+	
+	@Test
+	void testGetItemAsCbor() {
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.get().uri("/items/" + item1Id)
+        	.accept(MediaType.APPLICATION_CBOR)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().contentType(MediaType.APPLICATION_CBOR)
+        	.expectBody(ItemResponseDto.class)
+        	.consumeWith(result -> {
+    			ItemResponseDto dto = result.getResponseBody();
+    			
+    			assertNotNull(dto);
+    			assertEquals(item1Id, dto.getId());
+    			assertEquals("Item 1", dto.getName());
+    			assertNotNull(dto.getCreateTime());
+    		});
+	}
+	
+	@Test
+	void testGetItemsWithPaging_Compressed() {
+		itemRepository.saveAll(IntStream.range(0, 100)
+				.mapToObj(i -> Item.builder().name("Compressed item " + i).description("Description").createdBy("user").build())
+				.toList()).blockLast();
+		
+		webClient
+        	.get().uri("/items/paging?page=0&size=100&sort=name,asc")
+        	.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip");
+		
+		// below the minimum response size
+		webClient
+        	.get().uri("/items/paging?page=0&size=1&sort=name,asc")
+        	.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING);
+	}
+	
+	@Test
+	void testGetItemsWithPaging_PageSizeExceeded() {
+		webClient
+        	.get().uri("/items/paging?page=0&size=1001&sort=name,asc")
+        	.exchange()
+        	.expectStatus().isBadRequest();
+		
+		webClient
+        	.get().uri("/items/cursor?size=1001&sort=name,asc")
+        	.exchange()
+        	.expectStatus().isBadRequest();
+	}
+	
+	@Test
+	void testGetItem_ChangedByOtherInstance() throws InterruptedException {
+		assertEquals("Item 1", getItemName(item1Id));
+		
+		// written directly to the database like another instance would, the cache is invalidated from the change stream
+		Item item = itemRepository.findByItemId(item1Id).block();
+		item.setName("Item 1 changed");
+		itemRepository.save(item).block();
+		
+		String name = getItemName(item1Id);
+		
+		for (int i = 0; i < 50 && !"Item 1 changed".equals(name); i++) {
+			Thread.sleep(100);
+			
+			name = getItemName(item1Id);
+		}
+		
+		assertEquals("Item 1 changed", name);
+	}
+	
 	@Test
 	void testGetItemWithoutAuthenticatedUser() {
 		webClient
@@ -182,10 +333,42 @@ class ItemControllerIntegrationTest {
     		});
 	}
 	
+	@Test
+	void testGetItemsAsNdjson() {
+		webClient
+        	.get().uri("/items?sort=name,asc")
+        	.accept(MediaType.APPLICATION_NDJSON)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        	.returnResult(ItemListResponseDto.class)
+        	.getResponseBody()
+        	.as(StepVerifier::create)
+        	.consumeNextWith(dto -> assertEquals(item1Id, dto.getId()))
+        	.consumeNextWith(dto -> assertEquals(item2Id, dto.getId()))
+        	.consumeNextWith(dto -> assertEquals(item3Id, dto.getId()))
+        	.verifyComplete();
+	}
+	
+	@Test
+	void testGetItemsAsServerSentEvents() {
+		webClient
+        	.get().uri("/items?sort=name,asc")
+        	.accept(MediaType.TEXT_EVENT_STREAM)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+        	.returnResult(ItemListResponseDto.class)
+        	.getResponseBody()
+        	.as(StepVerifier::create)
+        	.expectNextCount(3)
+        	.verifyComplete();
+	}
+	
 	@Test
 	void testGetItemsWithPagingPage0() {
 		webClient
-        	.get().uri("/items/paging?page=0&size=2&sort=name,asc")
+        	.get().uri("/items/paging?page=0&size=2&sort=name,asc&exactCount=true")
         	.exchange()
         	.expectStatus().isOk()
         	.expectHeader().contentType(MediaType.APPLICATION_JSON)
@@ -213,7 +396,7 @@ class ItemControllerIntegrationTest {
 	@Test
 	void testGetItemsWithPagingPage1() {
 		webClient
-        	.get().uri("/items/paging?page=1&size=2&sort=name,asc")
+        	.get().uri("/items/paging?page=1&size=2&sort=name,asc&exactCount=true")
         	.exchange()
         	.expectStatus().isOk()
         	.expectHeader().contentType(MediaType.APPLICATION_JSON)
@@ -234,7 +417,7 @@ class ItemControllerIntegrationTest {
 	@Test
 	void testGetItemsWithSkipAndTakePage0() {
 		webClient
-        	.get().uri("/items/skip?page=0&size=2&sort=name,asc")
+        	.get().uri("/items/skip?page=0&size=2&sort=name,asc&exactCount=true")
         	.exchange()
         	.expectStatus().isOk()
         	.expectHeader().contentType(MediaType.APPLICATION_JSON)
@@ -262,7 +445,7 @@ class ItemControllerIntegrationTest {
 	@Test
 	void testGetItemsWithSkipAndTakePage1() {
 		webClient
-        	.get().uri("/items/skip?page=1&size=2&sort=name,asc")
+        	.get().uri("/items/skip?page=1&size=2&sort=name,asc&exactCount=true")
         	.exchange()
         	.expectStatus().isOk()
         	.expectHeader().contentType(MediaType.APPLICATION_JSON)
@@ -280,6 +463,138 @@ class ItemControllerIntegrationTest {
     		});
 	}
 	
+	@Test
+	void testGetItemsWithCursor() {
+		ItemCursorResponseDto firstPage = webClient
+        	.get().uri("/items/cursor?size=2&sort=name,asc")
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().contentType(MediaType.APPLICATION_JSON)
+        	.expectBody(ItemCursorResponseDto.class)
+        	.returnResult().getResponseBody();
+		
+		assertNotNull(firstPage);
+		assertEquals(2, firstPage.getAmount());
+		assertEquals(item1Id, firstPage.getItems().get(0).getId());
+		assertEquals(item2Id, firstPage.getItems().get(1).getId());
+		assertNotNull(firstPage.getNextCursor());
+		
+		webClient
+        	.get().uri("/items/cursor?size=2&sort=name,asc&cursor=" + firstPage.getNextCursor())
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectBody(ItemCursorResponseDto.class)
+        	.consumeWith(result -> {
+        		ItemCursorResponseDto dto = result.getResponseBody();
+    			
+    			assertNotNull(dto);
+    			assertEquals(1, dto.getAmount());
+    			assertEquals(item3Id, dto.getItems().get(0).getId());
+    			assertEquals("Item 3", dto.getItems().get(0).getName());
+    			assertNotNull(dto.getItems().get(0).getCreateTime());
+    			assertNull(dto.getNextCursor());
+    		});
+	}
+	
+	@Test
+	void testGetItemsWithCursor_InvalidCursor() {
+		webClient
+        	.get().uri("/items/cursor?size=2&sort=name,asc&cursor=invalid")
+        	.exchange()
+        	.expectStatus().isBadRequest();
+	}
+	
+	@Test
+	void testSearchItemsByPrefix() {
+		// the items of the setup are saved without a normalized name
+		itemIndexService.backfillNormalizedNames().block();
+		
+		ItemCursorResponseDto firstPage = webClient
+        	.get().uri("/items/search?q=ITEM&size=2")
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().contentType(MediaType.APPLICATION_JSON)
+        	.expectBody(ItemCursorResponseDto.class)
+        	.returnResult().getResponseBody();
+		
+		assertNotNull(firstPage);
+		assertEquals(2, firstPage.getAmount());
+		assertEquals(item1Id, firstPage.getItems().get(0).getId());
+		assertEquals(item2Id, firstPage.getItems().get(1).getId());
+		assertNotNull(firstPage.getNextCursor());
+		
+		webClient
+        	.get().uri("/items/search?q=ITEM&size=2&cursor=" + firstPage.getNextCursor())
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectBody(ItemCursorResponseDto.class)
+        	.consumeWith(result -> {
+        		ItemCursorResponseDto dto = result.getResponseBody();
+    			
+    			assertNotNull(dto);
+    			assertEquals(1, dto.getAmount());
+    			assertEquals(item3Id, dto.getItems().get(0).getId());
+    			assertNull(dto.getNextCursor());
+    		});
+	}
+	
+	@Test
+	void testSearchItemsByText() {
+		itemIndexService.ensureIndexes().blockLast();
+		
+		String itemId = itemRepository.save(Item.builder().name("Red chair").description("Description for chair").createdBy("user").build()).block().getItemId();
+		
+		webClient
+        	.get().uri("/items/search?q=chair&mode=text")
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectBody(ItemCursorResponseDto.class)
+        	.consumeWith(result -> {
+        		ItemCursorResponseDto dto = result.getResponseBody();
+    			
+    			assertNotNull(dto);
+    			assertEquals(1, dto.getAmount());
+    			assertEquals(itemId, dto.getItems().get(0).getId());
+    			assertNull(dto.getNextCursor());
+    		});
+	}
+	
+	@Test
+	void testSuggestItems() {
+		ItemResponseDto added = webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.post().uri("/items").bodyValue(new ItemDto("Wooden stool", "Stool made of oak"))
+        	.exchange()
+        	.expectStatus().isCreated()
+        	.expectBody(ItemResponseDto.class)
+        	.returnResult().getResponseBody();
+		
+		assertNotNull(added);
+		
+		webClient
+        	.get().uri("/items/suggest?q=WOOD")
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().contentType(MediaType.APPLICATION_JSON)
+        	.expectBodyList(ItemSuggestionDto.class)
+        	.consumeWith(result -> {
+        		List<ItemSuggestionDto> suggestions = result.getResponseBody();
+    			
+    			assertNotNull(suggestions);
+    			assertEquals(1, suggestions.size());
+    			assertEquals(added.getId(), suggestions.get(0).getId());
+    			assertEquals("Wooden stool", suggestions.get(0).getName());
+    		});
+	}
+	
+	@Test
+	void testSearchItems_InvalidMode() {
+		webClient
+        	.get().uri("/items/search?q=item&mode=fuzzy")
+        	.exchange()
+        	.expectStatus().isBadRequest();
+	}
+	
 	@Test
 	void testGetItem_NotFound() {
 		webClient
@@ -299,6 +614,7 @@ class ItemControllerIntegrationTest {
         	.exchange()
         	.expectStatus().isCreated()
         	.expectHeader().contentType(MediaType.APPLICATION_JSON)
+        	.expectHeader().exists(ItemReadYourWritesFilter.LAST_WRITE_HEADER)
         	.expectBody(ItemResponseDto.class)
         	.consumeWith(result -> {
     			ItemResponseDto dto = result.getResponseBody();
@@ -312,6 +628,25 @@ class ItemControllerIntegrationTest {
     		});
 	}
 	
+	@Test
+	void testAddItem_AppendsEvent() {
+		ItemResponseDto dto = webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.post().uri("/items").bodyValue(new ItemDto("Test item", "Test item description"))
+        	.exchange()
+        	.expectStatus().isCreated()
+        	.expectBody(ItemResponseDto.class)
+        	.returnResult()
+        	.getResponseBody();
+		
+		List<ItemEvent> events = itemEventRepository.findAll().filter(event -> dto.getId().equals(event.getItemId())).collectList().block();
+		
+		assertEquals(1, events.size());
+		assertEquals(ItemEventType.CREATED, events.get(0).getType());
+		assertEquals("Test item", events.get(0).getName());
+		assertEquals("user", events.get(0).getUser());
+	}
+	
 	@Test
 	void testUpdateItem() {
 		ItemDto input = new ItemDto("Item 1", "New description for Item 1");
@@ -335,6 +670,42 @@ class ItemControllerIntegrationTest {
     		});
 	}
 	
+	@Test
+	void testUpdateItemWithIfMatch() {
+		ItemDto input = new ItemDto("Item 1", "New description for Item 1");
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.put().uri("/items/" + item1Id).header("If-Match", "\"0\"").bodyValue(input)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectBody(ItemResponseDto.class)
+        	.consumeWith(result -> assertEquals(1L, result.getResponseBody().getVersion()));
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.put().uri("/items/" + item1Id).header("If-Match", "\"0\"").bodyValue(input)
+        	.exchange()
+        	.expectStatus().isEqualTo(412);
+	}
+	
+	@Test
+	void testUpdateItem_Invalid() {
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.put().uri("/items/" + item1Id).bodyValue(new ItemDto("Item 1", null))
+        	.exchange()
+        	.expectStatus().isBadRequest();
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.put().uri("/items/" + item1Id).header("If-Match", "\"abc\"").bodyValue(new ItemDto("Item 1", "New description for Item 1"))
+        	.exchange()
+        	.expectStatus().isBadRequest();
+		
+		assertEquals("Description for Item 1", itemRepository.findByItemId(item1Id).block().getDescription());
+	}
+	
 	@Test
 	void testUpdateItem_NotFound() {
 		ItemDto input = new ItemDto("Item 9", "New description for Item 9");
@@ -359,4 +730,89 @@ class ItemControllerIntegrationTest {
 		
 		assertNull(itemRepository.findByItemId(item2Id).block());
 	}
+	
+	@Test
+	void testAddItemsAsNdjson() {
+		String input = "{\"name\":\"Bulk item 1\",\"description\":\"Bulk description 1\"}\n{\"name\":\"Bulk item 2\",\"description\":\"Bulk description 2\"}\n";
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.post().uri("/items/bulk")
+        	.contentType(MediaType.APPLICATION_NDJSON)
+        	.accept(MediaType.APPLICATION_NDJSON)
+        	.bodyValue(input)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectBodyList(BulkItemResultDto.class)
+        	.consumeWith(result -> {
+        		List<BulkItemResultDto> dtos = result.getResponseBody();
+        		
+        		assertNotNull(dtos);
+        		assertEquals(2, dtos.size());
+        		assertEquals(BulkItemStatus.CREATED, dtos.get(0).getStatus());
+        		assertEquals("Bulk item 1", itemRepository.findByItemId(dtos.get(0).getId()).block().getName());
+        		assertEquals("user", itemRepository.findByItemId(dtos.get(1).getId()).block().getCreatedBy());
+        	});
+	}
+	
+	@Test
+	void testUpdateItems() {
+		List<BulkItemDto> input = List.of(
+				new BulkItemDto(item1Id, "Item 1", "Bulk description for Item 1", 0L),
+				new BulkItemDto(item2Id, "Item 2", "Bulk description for Item 2", 5L),
+				new BulkItemDto("2d579439-1d07-4411-9be1-c2f466244f5e", "Item 9", "Bulk description for Item 9", null));
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.put().uri("/items/bulk").bodyValue(input)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectHeader().contentType(MediaType.APPLICATION_JSON)
+        	.expectBodyList(BulkItemResultDto.class)
+        	.consumeWith(result -> {
+        		List<BulkItemResultDto> dtos = result.getResponseBody();
+        		
+        		assertNotNull(dtos);
+        		assertEquals(3, dtos.size());
+        		assertEquals(BulkItemStatus.UPDATED, dtos.get(0).getStatus());
+        		assertEquals(BulkItemStatus.VERSION_CONFLICT, dtos.get(1).getStatus());
+        		assertEquals(BulkItemStatus.NOT_FOUND, dtos.get(2).getStatus());
+        	});
+		
+		Item updated = itemRepository.findByItemId(item1Id).block();
+		
+		assertEquals("Bulk description for Item 1", updated.getDescription());
+		assertEquals("user", updated.getUpdatedBy());
+		assertEquals(1L, updated.getVersion());
+		assertEquals("Description for Item 2", itemRepository.findByItemId(item2Id).block().getDescription());
+	}
+	
+	@Test
+	void testDeleteItems() {
+		List<BulkItemDto> input = List.of(BulkItemDto.builder().id(item1Id).build(), BulkItemDto.builder().id(item3Id).build());
+		
+		webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.method(HttpMethod.DELETE).uri("/items/bulk").bodyValue(input)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectBodyList(BulkItemResultDto.class)
+        	.hasSize(2);
+		
+		assertNull(itemRepository.findByItemId(item1Id).block());
+		assertNotNull(itemRepository.findByItemId(item2Id).block());
+		assertNull(itemRepository.findByItemId(item3Id).block());
+	}
+	
+	private String getItemName(String itemId) {
+		return webClient
+			.mutateWith(SecurityMockServerConfigurers.mockJwt())
+        	.get().uri("/items/" + itemId)
+        	.exchange()
+        	.expectStatus().isOk()
+        	.expectBody(ItemResponseDto.class)
+        	.returnResult()
+        	.getResponseBody()
+        	.getName();
+	}
 }
@@ -2,12 +2,14 @@ package com.cnewbywa.item;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
 
 import com.cnewbywa.item.configuration.NativeRuntimeHints;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 @EnableReactiveMongoRepositories
 @ImportRuntimeHints(value = { NativeRuntimeHints.class })
 public class ItemReactiveApplication {
@@ -9,6 +9,6 @@ public class AuditorAwareImpl implements ReactiveAuditorAware<String> {
 
 	@Override
 	public Mono<String> getCurrentAuditor() {
-		return ReactiveSecurityContextHolder.getContext().map(context -> context.getAuthentication().getName()).log();
+		return ReactiveSecurityContextHolder.getContext().map(context -> context.getAuthentication().getName());
 	}
 }
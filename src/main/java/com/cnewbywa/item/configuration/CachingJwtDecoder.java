@@ -0,0 +1,113 @@
+package com.cnewbywa.item.configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps verified tokens until they expire, so that a client reusing its token is verified once instead of on every
+ * request. Tokens are keyed by their hash. A token stays valid until it expires even if its signing key is removed
+ * from the auth service in the meantime.
+ */
+public class CachingJwtDecoder implements ReactiveJwtDecoder {
+
+	public static final String CACHE_NAME = "jwt";
+	
+	public static final String TIMER_NAME = "item.jwt.decode";
+	
+	private final ReactiveJwtDecoder delegate;
+	
+	private final Cache<String, Jwt> cache;
+	
+	private final MeterRegistry meterRegistry;
+	
+	public CachingJwtDecoder(ReactiveJwtDecoder delegate, int maximumSize, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.meterRegistry = meterRegistry;
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfter(new Expiry<String, Jwt>() {
+					
+					@Override
+					public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+						return getTimeToLive(jwt);
+					}
+					
+					@Override
+					public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+						return getTimeToLive(jwt);
+					}
+					
+					@Override
+					public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.recordStats()
+				.build();
+		
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+	}
+	
+	@Override
+	public Mono<Jwt> decode(String token) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			String key = hash(token);
+			Jwt cached = cache.getIfPresent(key);
+			
+			if (cached != null && cached.getExpiresAt().isAfter(Instant.now())) {
+				record("hit", "success", start);
+				
+				return Mono.just(cached);
+			}
+			
+			return delegate.decode(token)
+					.doOnNext(jwt -> {
+						// tokens without an expiry time are verified every time
+						if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(Instant.now())) {
+							cache.put(key, jwt);
+						}
+					})
+					.doOnSuccess(jwt -> record("miss", "success", start))
+					.doOnError(e -> record("miss", "invalid", start));
+		});
+	}
+	
+	private long getTimeToLive(Jwt jwt) {
+		return Math.max(Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos(), 0);
+	}
+	
+	private void record(String cacheResult, String outcome, long start) {
+		Timer.builder(TIMER_NAME)
+				.description("Decoding and verification of access tokens")
+				.tag("cache", cacheResult)
+				.tag("outcome", outcome)
+				.register(meterRegistry)
+				.record(Duration.ofNanos(System.nanoTime() - start));
+	}
+	
+	private String hash(String token) {
+		try {
+			return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
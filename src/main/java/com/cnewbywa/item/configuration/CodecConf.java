@@ -0,0 +1,37 @@
+package com.cnewbywa.item.configuration;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Adds CBOR as a content type for service callers: single item and page responses with Accept, and the bodies
+ * of creating and updating a single item with Content-Type. The mapper has the settings of the JSON mapper except
+ * that dates are epoch milliseconds instead of ISO-8601 strings. The CBOR codecs of Spring encode and decode single
+ * values only, so streamed responses and bulk request bodies stay JSON or NDJSON.
+ */
+@Configuration
+public class CodecConf {
+
+	@Bean
+	public CodecCustomizer cborCodecCustomizer(Jackson2ObjectMapperBuilder jacksonObjectMapperBuilder) {
+		ObjectMapper cborMapper = jacksonObjectMapperBuilder
+				.factory(new CBORFactory())
+				.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.featuresToDisable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS, DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS)
+				.build();
+		
+		return configurer -> {
+			configurer.customCodecs().registerWithDefaultConfig(new Jackson2CborEncoder(cborMapper));
+			configurer.customCodecs().registerWithDefaultConfig(new Jackson2CborDecoder(cborMapper));
+		};
+	}
+}
@@ -0,0 +1,35 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.admission")
+@Getter
+@Setter
+public class ItemAdmissionProperties {
+
+	private boolean enabled = true;
+	// sent as Retry-After with the rejections
+	private Duration retryAfter = Duration.ofSeconds(1);
+	// operations waiting for a Mongo connection above which requests are rejected, 0 disables the check
+	private int maxMongoWaitQueue = 50;
+	// the first endpoint matching a request limits it, requests matching none are not limited
+	private List<Endpoint> endpoints = new ArrayList<>();
+	
+	@Getter
+	@Setter
+	public static class Endpoint {
+		
+		// path pattern, e.g. /items/**
+		private String path;
+		// any method when not given
+		private String method;
+		private int maxConcurrent;
+	}
+}
@@ -0,0 +1,19 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.batch.item")
+@Getter
+@Setter
+public class ItemBatchProperties {
+
+	private boolean enabled = true;
+	private Duration window = Duration.ofMillis(2);
+	private int maxSize = 100;
+	private int concurrency = 8;
+}
@@ -0,0 +1,15 @@
+package com.cnewbywa.item.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.bulk.item")
+@Getter
+@Setter
+public class ItemBulkProperties {
+
+	private int chunkSize = 500;
+	private int concurrency = 2;
+}
@@ -0,0 +1,18 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.cache.item")
+@Getter
+@Setter
+public class ItemCacheProperties {
+
+	private boolean enabled = true;
+	private long maximumSize = 10_000;
+	private Duration expireAfterWrite = Duration.ofMinutes(5);
+}
@@ -0,0 +1,27 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.change-stream")
+@Getter
+@Setter
+public class ItemChangeStreamProperties {
+
+	// needs a replica set or a sharded cluster
+	private boolean enabled = true;
+	// identifies the stored resume token and must stay the same when the instance restarts, e.g. the name of a stateful set pod.
+	// Without it the resume token is not stored and the stream starts from the current changes after a restart
+	private String consumerId;
+	// resume tokens not saved for this long are removed, e.g. those of instances that are gone
+	private Duration tokenRetention = Duration.ofDays(7);
+	// enables the pre-images of the item collection, without them a delete does not tell which item was deleted
+	// and resets the handlers. Needs the collMod privilege, otherwise enable them with mongo-init.js
+	private boolean enablePreImages = true;
+	private Duration minBackoff = Duration.ofSeconds(1);
+	private Duration maxBackoff = Duration.ofMinutes(1);
+}
@@ -0,0 +1,15 @@
+package com.cnewbywa.item.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.index")
+@Getter
+@Setter
+public class ItemIndexProperties {
+
+	private boolean ensureOnStartup = true;
+	private boolean strictSort = false;
+}
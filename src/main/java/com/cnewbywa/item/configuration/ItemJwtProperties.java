@@ -0,0 +1,21 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.jwt")
+@Getter
+@Setter
+public class ItemJwtProperties {
+
+	// verified tokens are kept until they expire
+	private boolean cacheEnabled = true;
+	private int cacheMaximumSize = 10_000;
+	// a token signed with an unknown key refreshes the keys at most this often
+	private Duration jwksMinRefreshInterval = Duration.ofSeconds(30);
+	private Duration jwksFetchTimeout = Duration.ofSeconds(5);
+}
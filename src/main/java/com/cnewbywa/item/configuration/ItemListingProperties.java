@@ -0,0 +1,18 @@
+package com.cnewbywa.item.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.listing")
+@Getter
+@Setter
+public class ItemListingProperties {
+
+	private int cursorBatchSize = 500;
+	// largest page size the paged, cursor and search endpoints accept
+	private int maxPageSize = 1000;
+	// largest list GET /items returns as a JSON array, the streamed formats are not limited
+	private int maxUnstreamedItems = 10_000;
+}
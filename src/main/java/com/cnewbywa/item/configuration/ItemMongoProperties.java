@@ -0,0 +1,101 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.validator.constraints.time.DurationMin;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import com.mongodb.ReadPreference;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the Mongo client. A setting that is not given keeps the option of the connection string or the driver default.
+ */
+@ConfigurationProperties(prefix = "application.mongo")
+@Validated
+@Getter
+@Setter
+public class ItemMongoProperties {
+
+	// the default heartbeat frequency of the driver, the staleness of a secondary is known only as often
+	static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(10);
+
+	@Valid
+	private Pool pool = new Pool();
+	@Valid
+	private Socket socket = new Socket();
+	private Duration serverSelectionTimeout;
+	// zstd, snappy or zlib in the order of preference, zstd needs com.github.luben:zstd-jni and snappy org.xerial.snappy:snappy-java
+	private List<@Pattern(regexp = "zstd|snappy|zlib") String> compressors = new ArrayList<>();
+	// read preference of the list and search queries, single items and versions are always read from the primary
+	@Pattern(regexp = "primary|primaryPreferred|secondary|secondaryPreferred|nearest")
+	private String listReadPreference = "primary";
+	// how far a secondary may be behind the primary to serve list reads, the server requires at least 90 seconds
+	@DurationMin(seconds = 90)
+	private Duration listMaxStaleness;
+	// list reads of a client that has written within this time are read from the primary. A secondary may be behind by
+	// list-max-staleness plus the heartbeat interval before the client notices, so the window is at least that long
+	private Duration readYourWritesWindow = Duration.ofSeconds(100);
+	// signs the X-Last-Write hints, shared by all the instances. Without it every instance signs with a key of its own
+	// and a hint is only accepted by the instance that issued it
+	private String readYourWritesKey;
+	
+	@AssertTrue(message = "list-max-staleness cannot be used with the primary read preference")
+	public boolean isListMaxStalenessAllowed() {
+		return listMaxStaleness == null || !"primary".equals(listReadPreference);
+	}
+	
+	@AssertTrue(message = "read-your-writes-window cannot be shorter than list-max-staleness plus the heartbeat interval")
+	public boolean isReadYourWritesWindowValid() {
+		return listMaxStaleness == null || readYourWritesWindow.compareTo(listMaxStaleness.plus(HEARTBEAT_INTERVAL)) >= 0;
+	}
+	
+	public ReadPreference createListReadPreference() {
+		if (listMaxStaleness == null) {
+			return ReadPreference.valueOf(listReadPreference);
+		}
+		
+		return ReadPreference.valueOf(listReadPreference, List.of(), listMaxStaleness.toSeconds(), TimeUnit.SECONDS);
+	}
+	
+	@Getter
+	@Setter
+	public static class Pool {
+		
+		@Min(1)
+		private Integer maxSize;
+		@Min(0)
+		private Integer minSize;
+		// how long an operation waits for a connection before failing
+		private Duration maxWaitTime;
+		private Duration maxConnectionIdleTime;
+		private Duration maxConnectionLifeTime;
+		// connections being opened at the same time
+		@Min(1)
+		private Integer maxConnecting;
+		
+		@AssertTrue(message = "pool.min-size cannot be larger than pool.max-size")
+		public boolean isSizeValid() {
+			return minSize == null || maxSize == null || minSize <= maxSize;
+		}
+	}
+	
+	@Getter
+	@Setter
+	public static class Socket {
+		
+		private Duration connectTimeout;
+		// 0 waits for the server as long as it takes
+		private Duration readTimeout;
+	}
+}
@@ -0,0 +1,25 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.outbox")
+@Getter
+@Setter
+public class ItemOutboxProperties {
+
+	private boolean enabled = true;
+	// writes the item and its events in one transaction, needs a replica set. Without it an event is lost when the service
+	// stops between the write and the append, and the events of an item may be appended out of order
+	private boolean transactional = true;
+	// name of the ItemEventSink implementation to use
+	private String sink = "in-process";
+	private int batchSize = 100;
+	private Duration leaseTime = Duration.ofSeconds(30);
+	// published events are removed after this time
+	private Duration retention = Duration.ofDays(7);
+}
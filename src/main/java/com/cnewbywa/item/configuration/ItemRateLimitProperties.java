@@ -0,0 +1,39 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.rate-limit")
+@Getter
+@Setter
+public class ItemRateLimitProperties {
+
+	private boolean enabled = true;
+	// buckets not used for this long are removed, a client coming back starts with a full bucket
+	private Duration idleTimeout = Duration.ofMinutes(10);
+	// addresses or CIDR ranges of the proxies and load balancers in front of the service. The address of an anonymous
+	// client connecting through them is taken from X-Forwarded-For, otherwise the header is ignored as anyone can send it
+	private List<String> trustedProxies = new ArrayList<>();
+	// the first route matching a request limits it, requests matching none are not limited
+	private List<Route> routes = new ArrayList<>();
+	
+	@Getter
+	@Setter
+	public static class Route {
+		
+		// path pattern, e.g. /items/**
+		private String path;
+		// any method when not given
+		private String method;
+		// requests a client can make at once after being idle
+		private int capacity;
+		// requests a client can make per second in the long run
+		private double refillPerSecond;
+	}
+}
@@ -0,0 +1,16 @@
+package com.cnewbywa.item.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.suggest")
+@Getter
+@Setter
+public class ItemSuggestProperties {
+
+	private boolean enabled = true;
+	// the index is dropped and suggestions are read from the database when there are more items
+	private int maxEntries = 1_000_000;
+}
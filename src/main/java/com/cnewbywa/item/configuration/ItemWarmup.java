@@ -0,0 +1,136 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+
+import com.cnewbywa.item.model.ItemDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Initializes what would otherwise be initialized by the first requests: opens connections to the database, fetches
+ * the signing keys and creates the JSON serializers and deserializers of the DTOs the endpoints take and return.
+ * Application runners complete before the application is ready, so the readiness probe reports the service ready
+ * only after the warm-up, or after the timeout when the warm-up does not complete.
+ */
+@Component
+@Slf4j
+public class ItemWarmup implements ApplicationRunner {
+
+	private static final String MODEL_PACKAGE = ItemDto.class.getPackageName();
+	
+	private ItemWarmupProperties properties;
+	
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+	
+	private JwkSetSource jwkSetSource;
+	
+	private ObjectMapper objectMapper;
+	
+	private RequestMappingHandlerMapping handlerMapping;
+	
+	private MeterRegistry meterRegistry;
+	
+	public ItemWarmup(ItemWarmupProperties properties, ReactiveMongoTemplate reactiveMongoTemplate, JwkSetSource jwkSetSource, ObjectMapper objectMapper, 
+			@Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping, MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.reactiveMongoTemplate = reactiveMongoTemplate;
+		this.jwkSetSource = jwkSetSource;
+		this.objectMapper = objectMapper;
+		this.handlerMapping = handlerMapping;
+		this.meterRegistry = meterRegistry;
+	}
+	
+	@Override
+	public void run(ApplicationArguments args) {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		
+		long start = System.nanoTime();
+		
+		try {
+			Mono.when(warmMongoPool(), warmSigningKeys(), warmSerializers()).block(properties.getTimeout());
+			
+			log.info("Warm-up completed in {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis());
+		} catch (RuntimeException e) {
+			log.warn("Warm-up did not complete, the service is ready without it", e);
+		}
+		
+		Timer.builder("item.warmup")
+				.description("Warm-up before the service is ready")
+				.register(meterRegistry)
+				.record(Duration.ofNanos(System.nanoTime() - start));
+	}
+	
+	/*
+	 * Concurrent commands make the driver open as many connections.
+	 */
+	Mono<Void> warmMongoPool() {
+		return Flux.range(0, properties.getMongoConnections())
+				.flatMap(i -> reactiveMongoTemplate.executeCommand("{ ping: 1 }"), properties.getMongoConnections())
+				.then();
+	}
+	
+	Mono<Void> warmSigningKeys() {
+		return jwkSetSource.isEnabled() ? jwkSetSource.refresh().then() : Mono.empty();
+	}
+	
+	Mono<Void> warmSerializers() {
+		return Mono.fromRunnable(() -> getModelTypes().forEach(type -> {
+			objectMapper.canSerialize(type);
+			objectMapper.canDeserialize(objectMapper.constructType(type));
+		}));
+	}
+	
+	/*
+	 * The model types in the request bodies and responses of the endpoints, e.g. ItemResponseDto of Mono<ResponseEntity<ItemResponseDto>>.
+	 */
+	Set<Class<?>> getModelTypes() {
+		Set<Class<?>> types = new LinkedHashSet<>();
+		
+		handlerMapping.getHandlerMethods().values().forEach(handlerMethod -> {
+			addModelTypes(ResolvableType.forMethodReturnType(handlerMethod.getMethod()), types);
+			
+			for (MethodParameter parameter : handlerMethod.getMethodParameters()) {
+				if (parameter.hasParameterAnnotation(RequestBody.class)) {
+					addModelTypes(ResolvableType.forMethodParameter(parameter), types);
+				}
+			}
+		});
+		
+		return types;
+	}
+	
+	private void addModelTypes(ResolvableType type, Set<Class<?>> types) {
+		Class<?> resolved = type.resolve();
+		
+		if (resolved == null) {
+			return;
+		}
+		
+		if (resolved.getPackageName().equals(MODEL_PACKAGE)) {
+			types.add(resolved);
+		}
+		
+		for (ResolvableType generic : type.getGenerics()) {
+			addModelTypes(generic, types);
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@ConfigurationProperties(prefix = "application.warmup")
+@Getter
+@Setter
+public class ItemWarmupProperties {
+
+	private boolean enabled = true;
+	// connections opened to the database before the service is ready
+	private int mongoConnections = 10;
+	// the service is reported ready after this time even if the warm-up has not completed
+	private Duration timeout = Duration.ofSeconds(30);
+}
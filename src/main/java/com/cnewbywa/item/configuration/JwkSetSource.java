@@ -0,0 +1,142 @@
+package com.cnewbywa.item.configuration;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Signing keys of the auth service, fetched in the background instead of on the request path. The keys are fetched
+ * when the application starts and refreshed periodically, and a token signed with an unknown key refreshes them at
+ * most once per minimum interval, e.g. after a key rotation. When the auth service cannot be reached, the keys fetched
+ * before are kept in use.
+ */
+@Component
+@Slf4j
+public class JwkSetSource {
+
+	private static final String DISCOVERY_PATH = "/.well-known/openid-configuration";
+	
+	private final String issuerUri;
+	
+	private final boolean enabled;
+	
+	private final Duration minRefreshInterval;
+	
+	private final Duration fetchTimeout;
+	
+	private final WebClient webClient;
+	
+	private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(new JWKSet());
+	
+	private final AtomicReference<Mono<JWKSet>> refreshing = new AtomicReference<>();
+	
+	// configured or discovered from the issuer
+	private volatile String jwkSetUri;
+	
+	private volatile Instant lastRefresh = Instant.EPOCH;
+	
+	public JwkSetSource(OAuth2ResourceServerProperties resourceServerProperties, ItemJwtProperties jwtProperties, WebClient.Builder webClientBuilder) {
+		OAuth2ResourceServerProperties.Jwt jwt = resourceServerProperties.getJwt();
+		
+		this.issuerUri = jwt.getIssuerUri();
+		this.jwkSetUri = jwt.getJwkSetUri();
+		this.enabled = jwt.getPublicKeyLocation() == null && (issuerUri != null || jwkSetUri != null);
+		this.minRefreshInterval = jwtProperties.getJwksMinRefreshInterval();
+		this.fetchTimeout = jwtProperties.getJwksFetchTimeout();
+		this.webClient = webClientBuilder.build();
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/*
+	 * The keys matching the header of the token, the JWK source of the decoder.
+	 */
+	public Flux<JWK> getKeys(SignedJWT token) {
+		JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(token.getHeader()));
+		List<JWK> keys = selector.select(jwkSet.get());
+		
+		if (!keys.isEmpty() || !enabled || Instant.now().isBefore(lastRefresh.plus(minRefreshInterval))) {
+			return Flux.fromIterable(keys);
+		}
+		
+		return refresh().flatMapIterable(selector::select);
+	}
+	
+	// runs also when the application starts, the keys are then ready before the first request
+	@Scheduled(fixedDelayString = "${application.jwt.jwks-refresh-interval:PT5M}")
+	public void refreshKeys() {
+		if (enabled) {
+			refresh().subscribe(keys -> log.debug("JWK set refreshed, {} keys", keys.getKeys().size()));
+		}
+	}
+	
+	/*
+	 * Concurrent refreshes share one fetch. A failed fetch keeps the current keys.
+	 */
+	public Mono<JWKSet> refresh() {
+		Mono<JWKSet> current = refreshing.get();
+		
+		if (current != null) {
+			return current;
+		}
+		
+		Mono<JWKSet> refresh = Mono.defer(() -> {
+					lastRefresh = Instant.now();
+					
+					return fetch();
+				})
+				.doOnNext(jwkSet::set)
+				.onErrorResume(e -> {
+					log.warn("JWK set cannot be fetched, using the {} keys fetched before", jwkSet.get().getKeys().size(), e);
+					
+					return Mono.just(jwkSet.get());
+				})
+				.doFinally(signal -> refreshing.set(null))
+				.cache();
+		Mono<JWKSet> other = refreshing.compareAndExchange(null, refresh);
+		
+		return other != null ? other : refresh;
+	}
+	
+	private Mono<JWKSet> fetch() {
+		return getJwkSetUri()
+				.flatMap(uri -> webClient.get().uri(uri).retrieve().bodyToMono(String.class))
+				.flatMap(json -> Mono.fromCallable(() -> JWKSet.parse(json)))
+				.timeout(fetchTimeout);
+	}
+	
+	private Mono<String> getJwkSetUri() {
+		if (jwkSetUri != null) {
+			return Mono.just(jwkSetUri);
+		}
+		
+		String discoveryUri = (issuerUri.endsWith("/") ? issuerUri.substring(0, issuerUri.length() - 1) : issuerUri) + DISCOVERY_PATH;
+		
+		return webClient.get().uri(discoveryUri)
+				.retrieve()
+				.bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+				.flatMap(configuration -> Mono.justOrEmpty((String) configuration.get("jwks_uri")))
+				.switchIfEmpty(Mono.error(() -> new IllegalStateException("No jwks_uri in " + discoveryUri)))
+				.doOnNext(uri -> jwkSetUri = uri);
+	}
+}
@@ -0,0 +1,76 @@
+package com.cnewbywa.item.configuration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import com.mongodb.MongoCompressor;
+
+@Configuration
+public class MongoClientConf {
+
+	/*
+	 * Applied after the connection string of spring.data.mongodb.uri, so the settings given here override its options.
+	 */
+	@Bean
+	MongoClientSettingsBuilderCustomizer mongoClientSettingsCustomizer(ItemMongoProperties properties) {
+		return builder -> {
+			ItemMongoProperties.Pool pool = properties.getPool();
+			ItemMongoProperties.Socket socket = properties.getSocket();
+			
+			builder.applyToConnectionPoolSettings(settings -> {
+				ifSet(pool.getMaxSize(), settings::maxSize);
+				ifSet(pool.getMinSize(), settings::minSize);
+				ifSet(pool.getMaxWaitTime(), duration -> settings.maxWaitTime(duration.toMillis(), TimeUnit.MILLISECONDS));
+				ifSet(pool.getMaxConnectionIdleTime(), duration -> settings.maxConnectionIdleTime(duration.toMillis(), TimeUnit.MILLISECONDS));
+				ifSet(pool.getMaxConnectionLifeTime(), duration -> settings.maxConnectionLifeTime(duration.toMillis(), TimeUnit.MILLISECONDS));
+				ifSet(pool.getMaxConnecting(), settings::maxConnecting);
+			});
+			builder.applyToSocketSettings(settings -> {
+				ifSet(socket.getConnectTimeout(), duration -> settings.connectTimeout(duration.toMillis(), TimeUnit.MILLISECONDS));
+				ifSet(socket.getReadTimeout(), duration -> settings.readTimeout(duration.toMillis(), TimeUnit.MILLISECONDS));
+			});
+			builder.applyToClusterSettings(settings -> 
+					ifSet(properties.getServerSelectionTimeout(), duration -> settings.serverSelectionTimeout(duration.toMillis(), TimeUnit.MILLISECONDS)));
+			
+			if (!properties.getCompressors().isEmpty()) {
+				builder.compressorList(properties.getCompressors().stream().map(this::createCompressor).toList());
+			}
+		};
+	}
+	
+	/*
+	 * Fails on startup instead of on the first connection when the library of the compressor is missing.
+	 */
+	private MongoCompressor createCompressor(String name) {
+		return switch (name) {
+			case "zstd" -> {
+				checkPresent("com.github.luben.zstd.Zstd", name);
+				
+				yield MongoCompressor.createZstdCompressor();
+			}
+			case "snappy" -> {
+				checkPresent("org.xerial.snappy.Snappy", name);
+				
+				yield MongoCompressor.createSnappyCompressor();
+			}
+			default -> MongoCompressor.createZlibCompressor();
+		};
+	}
+	
+	private void checkPresent(String className, String compressor) {
+		if (!ClassUtils.isPresent(className, getClass().getClassLoader())) {
+			throw new IllegalStateException("Mongo compressor " + compressor + " needs " + className + " on the class path");
+		}
+	}
+	
+	private static <T> void ifSet(T value, Consumer<T> setter) {
+		if (value != null) {
+			setter.accept(value);
+		}
+	}
+}
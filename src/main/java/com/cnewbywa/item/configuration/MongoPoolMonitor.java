@@ -0,0 +1,46 @@
+package com.cnewbywa.item.configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+/**
+ * Counts the operations waiting for a connection from the Mongo connection pools. A growing queue means the database
+ * or the pool size is the bottleneck and new requests would only wait longer.
+ */
+@Component
+public class MongoPoolMonitor implements ConnectionPoolListener, MongoClientSettingsBuilderCustomizer {
+
+	private final AtomicInteger waiting = new AtomicInteger();
+	
+	@Override
+	public void customize(MongoClientSettings.Builder builder) {
+		builder.applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(this));
+	}
+	
+	public int getWaiting() {
+		return waiting.get();
+	}
+	
+	@Override
+	public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+		waiting.incrementAndGet();
+	}
+	
+	@Override
+	public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+		waiting.decrementAndGet();
+	}
+	
+	@Override
+	public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+		waiting.decrementAndGet();
+	}
+}
@@ -0,0 +1,24 @@
+package com.cnewbywa.item.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+@Configuration
+public class OutboxConf {
+
+	@Bean
+	@ConditionalOnProperty(prefix = "application.outbox", name = "transactional", havingValue = "true", matchIfMissing = true)
+	ReactiveMongoTransactionManager reactiveMongoTransactionManager(ReactiveMongoDatabaseFactory databaseFactory) {
+		return new ReactiveMongoTransactionManager(databaseFactory);
+	}
+	
+	@Bean
+	@ConditionalOnProperty(prefix = "application.outbox", name = "transactional", havingValue = "true", matchIfMissing = true)
+	TransactionalOperator outboxTransactionalOperator(ReactiveMongoTransactionManager reactiveMongoTransactionManager) {
+		return TransactionalOperator.create(reactiveMongoTransactionManager);
+	}
+}
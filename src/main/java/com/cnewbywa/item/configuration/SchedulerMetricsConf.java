@@ -0,0 +1,37 @@
+package com.cnewbywa.item.configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Publishes executor metrics, e.g. queued and active tasks, of the Reactor schedulers started after this configuration,
+ * with the prefix reactor and the scheduler name as a tag.
+ */
+@Configuration
+public class SchedulerMetricsConf implements DisposableBean {
+
+	private static final String DECORATOR_KEY = "item-scheduler-metrics";
+	
+	public SchedulerMetricsConf(MeterRegistry meterRegistry) {
+		AtomicInteger executors = new AtomicInteger();
+		
+		Schedulers.addExecutorServiceDecorator(DECORATOR_KEY, (scheduler, executor) -> {
+			String name = Scannable.from(scheduler).name();
+			
+			return ExecutorServiceMetrics.monitor(meterRegistry, executor, name + "-" + executors.incrementAndGet(), "reactor", Tags.of("scheduler", name));
+		});
+	}
+	
+	@Override
+	public void destroy() {
+		Schedulers.removeExecutorServiceDecorator(DECORATOR_KEY);
+	}
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConf {
+	
+}
@@ -1,5 +1,10 @@
 package com.cnewbywa.item.configuration;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -7,8 +12,20 @@ import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity.CsrfSpec;
+import org.springframework.security.converter.RsaKeyConverters;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 @EnableWebFluxSecurity
 public class SecurityConf {
@@ -18,11 +35,52 @@ public class SecurityConf {
 		http
 			.csrf(CsrfSpec::disable)
 			.authorizeExchange(authorize -> authorize
-					.pathMatchers(HttpMethod.GET, "/items", "/items/paging", "/items/skip").permitAll()
-					.pathMatchers("/actuator/health", "/v3/api-docs/**", "/swagger-ui/**", "/webjars/swagger-ui/**").permitAll()
+					.pathMatchers(HttpMethod.GET, "/items", "/items/paging", "/items/skip", "/items/cursor", "/items/search", "/items/suggest").permitAll()
+					.pathMatchers("/actuator/health", "/actuator/health/**", "/v3/api-docs/**", "/swagger-ui/**", "/webjars/swagger-ui/**").permitAll()
 					.anyExchange().authenticated())
 			.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(Customizer.withDefaults()));
 		
 		return http.build();
 	}
+	
+	/*
+	 * Replaces the decoder of the resource server auto-configuration and takes the same spring.security.oauth2.resourceserver.jwt
+	 * properties. The keys come from the background refreshed JWK set, or from the public key when one is configured.
+	 */
+	@Bean
+	ReactiveJwtDecoder jwtDecoder(OAuth2ResourceServerProperties resourceServerProperties, ItemJwtProperties jwtProperties, JwkSetSource jwkSetSource, 
+			MeterRegistry meterRegistry) throws IOException {
+		OAuth2ResourceServerProperties.Jwt jwt = resourceServerProperties.getJwt();
+		NimbusReactiveJwtDecoder decoder;
+		
+		if (jwt.getPublicKeyLocation() != null) {
+			try (InputStream input = jwt.getPublicKeyLocation().getInputStream()) {
+				decoder = NimbusReactiveJwtDecoder.withPublicKey(RsaKeyConverters.x509().convert(input))
+						.signatureAlgorithm(SignatureAlgorithm.from(jwt.getJwsAlgorithms().get(0)))
+						.build();
+			}
+		} else {
+			NimbusReactiveJwtDecoder.JwkSourceReactiveJwtDecoderBuilder builder = NimbusReactiveJwtDecoder.withJwkSource(jwkSetSource::getKeys);
+			
+			jwt.getJwsAlgorithms().forEach(algorithm -> builder.jwsAlgorithm(SignatureAlgorithm.from(algorithm)));
+			
+			decoder = builder.build();
+		}
+		
+		decoder.setJwtValidator(createValidator(jwt));
+		
+		return new CachingJwtDecoder(decoder, jwtProperties.isCacheEnabled() ? jwtProperties.getCacheMaximumSize() : 0, meterRegistry);
+	}
+	
+	private OAuth2TokenValidator<Jwt> createValidator(OAuth2ResourceServerProperties.Jwt jwt) {
+		OAuth2TokenValidator<Jwt> validator = jwt.getIssuerUri() != null ? JwtValidators.createDefaultWithIssuer(jwt.getIssuerUri()) : JwtValidators.createDefault();
+		List<String> audiences = jwt.getAudiences();
+		
+		if (audiences.isEmpty()) {
+			return validator;
+		}
+		
+		return new DelegatingOAuth2TokenValidator<>(validator, 
+				new JwtClaimValidator<List<String>>(JwtClaimNames.AUD, audience -> audience != null && audience.stream().anyMatch(audiences::contains)));
+	}
 }
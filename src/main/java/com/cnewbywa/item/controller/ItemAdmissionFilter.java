@@ -0,0 +1,130 @@
+package com.cnewbywa.item.controller;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.cnewbywa.item.configuration.ItemAdmissionProperties;
+import com.cnewbywa.item.configuration.MongoPoolMonitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Limits the requests in flight per endpoint, so that one kind of heavy request cannot take all the capacity.
+ * A request over the limit of its endpoint is rejected with 429, and any limited request is rejected with 503 while
+ * too many database operations wait for a connection. Both come with Retry-After. Runs before the security filters,
+ * so that rejected requests cost as little as possible. A request keeps its place until its response is complete,
+ * which for streamed responses is the end of the stream.
+ */
+@Component
+@Order(-200)
+@Slf4j
+public class ItemAdmissionFilter implements WebFilter {
+
+	private final boolean enabled;
+	
+	private final int maxMongoWaitQueue;
+	
+	private final String retryAfter;
+	
+	private final List<EndpointLimit> limits;
+	
+	private final MongoPoolMonitor mongoPoolMonitor;
+	
+	private final MeterRegistry meterRegistry;
+	
+	public ItemAdmissionFilter(ItemAdmissionProperties properties, MongoPoolMonitor mongoPoolMonitor, MeterRegistry meterRegistry) {
+		this.enabled = properties.isEnabled();
+		this.maxMongoWaitQueue = properties.getMaxMongoWaitQueue();
+		this.retryAfter = String.valueOf(Math.max(properties.getRetryAfter().toSeconds(), 1));
+		this.mongoPoolMonitor = mongoPoolMonitor;
+		this.meterRegistry = meterRegistry;
+		this.limits = properties.getEndpoints().stream().map(this::createLimit).toList();
+	}
+	
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		EndpointLimit limit = enabled ? findLimit(exchange) : null;
+		
+		if (limit == null) {
+			return chain.filter(exchange);
+		}
+		
+		if (maxMongoWaitQueue > 0 && mongoPoolMonitor.getWaiting() > maxMongoWaitQueue) {
+			limit.mongoPoolRejections.increment();
+			
+			return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		
+		if (limit.inFlight.incrementAndGet() > limit.maxConcurrent) {
+			limit.inFlight.decrementAndGet();
+			limit.concurrencyRejections.increment();
+			
+			return reject(exchange, HttpStatus.TOO_MANY_REQUESTS);
+		}
+		
+		return chain.filter(exchange).doFinally(signal -> limit.inFlight.decrementAndGet());
+	}
+	
+	private EndpointLimit findLimit(ServerWebExchange exchange) {
+		HttpMethod method = exchange.getRequest().getMethod();
+		
+		return limits.stream()
+				.filter(limit -> (limit.method == null || limit.method.equals(method)) && limit.pattern.matches(exchange.getRequest().getPath().pathWithinApplication()))
+				.findFirst()
+				.orElse(null);
+	}
+	
+	private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+		exchange.getResponse().setStatusCode(status);
+		exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+		
+		return exchange.getResponse().setComplete();
+	}
+	
+	private EndpointLimit createLimit(ItemAdmissionProperties.Endpoint endpoint) {
+		String name = (endpoint.getMethod() != null ? endpoint.getMethod() + " " : "") + endpoint.getPath();
+		EndpointLimit limit = new EndpointLimit(PathPatternParser.defaultInstance.parse(endpoint.getPath()), 
+				endpoint.getMethod() != null ? HttpMethod.valueOf(endpoint.getMethod()) : null, endpoint.getMaxConcurrent(), 
+				createRejectionCounter(name, "concurrency"), createRejectionCounter(name, "mongo_pool"));
+		
+		Gauge.builder("item.admission.inflight", limit.inFlight, AtomicInteger::get)
+				.description("Requests in flight per limited endpoint")
+				.tag("endpoint", name)
+				.register(meterRegistry);
+		
+		log.info("Endpoint {} is limited to {} concurrent requests", name, endpoint.getMaxConcurrent());
+		
+		return limit;
+	}
+	
+	private Counter createRejectionCounter(String name, String reason) {
+		return Counter.builder("item.admission.rejected")
+				.description("Requests rejected by the admission control")
+				.tag("endpoint", name)
+				.tag("reason", reason)
+				.register(meterRegistry);
+	}
+	
+	private record EndpointLimit(PathPattern pattern, HttpMethod method, int maxConcurrent, Counter concurrencyRejections, 
+			Counter mongoPoolRejections, AtomicInteger inFlight) {
+		
+		EndpointLimit(PathPattern pattern, HttpMethod method, int maxConcurrent, Counter concurrencyRejections, Counter mongoPoolRejections) {
+			this(pattern, method, maxConcurrent, concurrencyRejections, mongoPoolRejections, new AtomicInteger());
+		}
+	}
+}
@@ -1,15 +1,23 @@
 package com.cnewbywa.item.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -18,19 +26,34 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 
+import com.cnewbywa.item.configuration.ItemListingProperties;
+import com.cnewbywa.item.error.InvalidPageException;
+import com.cnewbywa.item.error.InvalidVersionException;
+import com.cnewbywa.item.error.PageSizeExceededException;
+import com.cnewbywa.item.model.BulkItemDto;
+import com.cnewbywa.item.model.BulkItemResultDto;
+import com.cnewbywa.item.model.ItemCursorResponseDto;
 import com.cnewbywa.item.model.ItemDto;
 import com.cnewbywa.item.model.ItemListResponseDto;
 import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.model.ItemSearchMode;
+import com.cnewbywa.item.model.ItemSuggestionDto;
+import com.cnewbywa.item.model.ItemVersion;
 import com.cnewbywa.item.model.ItemsResponseDto;
+import com.cnewbywa.item.service.ItemBulkService;
+import com.cnewbywa.item.service.ItemIndexService;
 import com.cnewbywa.item.service.ItemService;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.annotation.Nonnull;
+import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -40,55 +63,127 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class ItemController {
 
+	// 128 bits of the hash, enough to make a collision of two versions of a page improbable
+	private static final int ETAG_HASH_BYTES = 16;
+	
 	private ItemService itemService;
 	
-	public ItemController(ItemService itemService) {
+	private ItemBulkService itemBulkService;
+	
+	private ItemIndexService itemIndexService;
+	
+	private ItemListingProperties listingProperties;
+	
+	public ItemController(ItemService itemService, ItemBulkService itemBulkService, ItemIndexService itemIndexService, ItemListingProperties listingProperties) {
 		this.itemService = itemService;
+		this.itemBulkService = itemBulkService;
+		this.itemIndexService = itemIndexService;
+		this.listingProperties = listingProperties;
 	}
 	
-	@GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-	@ResponseStatus(HttpStatus.OK)
+	/*
+	 * A conditional request is first answered from the version of the item, the item is loaded only when it has changed.
+	 */
+	@GetMapping(path = "/{id}", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
 	@SecurityRequirement(name = "bearerAuth")
-	public Mono<ItemResponseDto> getItem(@PathVariable String id) {
-		return itemService.getItem(id);
+	public Mono<ResponseEntity<ItemResponseDto>> getItem(@PathVariable String id, ServerWebExchange exchange) {
+		HttpHeaders headers = exchange.getRequest().getHeaders();
+		
+		if (headers.getIfNoneMatch().isEmpty() && headers.getIfModifiedSince() < 0) {
+			return itemService.getItem(id).map(this::createItemResponse);
+		}
+		
+		return itemService.getItemVersion(id).flatMap(version -> isNotModified(exchange, version) 
+				? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<ItemResponseDto>build()) 
+				: itemService.getItem(id).map(this::createItemResponse));
 	}
 	
-	@GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+	/*
+	 * Streamed responses are sent as they are read and are not limited. A JSON array is limited to the configured amount
+	 * of items, the items are collected before the response starts so that a too large list is answered with 400 
+	 * instead of a cut array.
+	 */
+	@GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
 	@ResponseStatus(HttpStatus.OK)
-	public Flux<ItemListResponseDto> getItems(@RequestParam(value = "sort", defaultValue = "name,desc") String[] sort) {
-		return itemService.getItems(Sort.by(getSortOrders(sort)));
+	public Flux<ItemListResponseDto> getItems(@RequestParam(value = "sort", defaultValue = "name,desc") String[] sort, ServerWebExchange exchange) {
+		Flux<ItemListResponseDto> items = itemService.getItems(getSort(sort));
+		
+		if (isStreamed(exchange)) {
+			return items;
+		}
+		
+		int maxItems = listingProperties.getMaxUnstreamedItems();
+		
+		return items.take(maxItems + 1L)
+				.collectList()
+				.flatMapIterable(list -> {
+					if (list.size() > maxItems) {
+						throw new PageSizeExceededException("More than " + maxItems + " items, use a paged endpoint or " 
+								+ MediaType.APPLICATION_NDJSON_VALUE);
+					}
+					
+					return list;
+				});
 	}
 	
-	@GetMapping(path = "/paging", produces = MediaType.APPLICATION_JSON_VALUE)
-	@ResponseStatus(HttpStatus.OK)
-	public Mono<ItemsResponseDto> getItemsWithPaging(@DefaultValue("0") @RequestParam("page") int pageIndex, 
+	@GetMapping(path = "/paging", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<ItemsResponseDto>> getItemsWithPaging(@DefaultValue("0") @RequestParam("page") int pageIndex, 
     		@DefaultValue("100") @RequestParam("size") int pageSize, 
-    		@DefaultValue("name,desc") @RequestParam("sort") String[] sort) {
+    		@DefaultValue("name,desc") @RequestParam("sort") String[] sort,
+    		@RequestParam(value = "exactCount", defaultValue = "false") boolean exactCount) {
 		
-		return itemService.getItemsWithPaging(PageRequest.of(pageIndex, pageSize, Sort.by(getSortOrders(sort))));
+		return itemService.getItemsWithPaging(PageRequest.of(checkPageIndex(pageIndex), checkPageSize(pageSize), getSort(sort)), exactCount)
+				.map(response -> createListResponse(response, response.getItems(), response.getTotalAmount()));
 	}
 	
-	@GetMapping(path = "/skip", produces = MediaType.APPLICATION_JSON_VALUE)
-	@ResponseStatus(HttpStatus.OK)
-	public Mono<ItemsResponseDto> getItemsWithSkipAndTake(@DefaultValue("0") @RequestParam("page") int pageIndex, 
+	@GetMapping(path = "/skip", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<ItemsResponseDto>> getItemsWithSkipAndTake(@DefaultValue("0") @RequestParam("page") int pageIndex, 
     		@DefaultValue("100") @RequestParam("size") int pageSize, 
-    		@DefaultValue("name,desc") @RequestParam("sort") String[] sort) {
+    		@DefaultValue("name,desc") @RequestParam("sort") String[] sort,
+    		@RequestParam(value = "exactCount", defaultValue = "false") boolean exactCount) {
+		
+		return itemService.getItemsWithSkipAndTake(PageRequest.of(checkPageIndex(pageIndex), checkPageSize(pageSize), getSort(sort)), exactCount)
+				.map(response -> createListResponse(response, response.getItems(), response.getTotalAmount()));
+	}
+	
+	@GetMapping(path = "/cursor", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+	public Mono<ResponseEntity<ItemCursorResponseDto>> getItemsWithCursor(@RequestParam(value = "cursor", required = false) String cursor, 
+			@RequestParam(value = "size", defaultValue = "100") int pageSize, 
+			@RequestParam(value = "sort", defaultValue = "name,desc") String[] sort) {
+		
+		return itemService.getItemsWithCursor(cursor, checkPageSize(pageSize), getSort(sort))
+				.map(response -> createListResponse(response, response.getItems(), response.getNextCursor()));
+	}
+	
+	@GetMapping(path = "/search", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+	@ResponseStatus(HttpStatus.OK)
+	public Mono<ItemCursorResponseDto> searchItems(@RequestParam("q") String query, 
+			@RequestParam(value = "mode", defaultValue = "prefix") String mode, 
+			@RequestParam(value = "cursor", required = false) String cursor, 
+			@RequestParam(value = "size", defaultValue = "20") int pageSize) {
 		
-		return itemService.getItemsWithSkipAndTake(PageRequest.of(pageIndex, pageSize, Sort.by(getSortOrders(sort))));
+		return itemService.searchItems(query, ItemSearchMode.fromString(mode), cursor, checkPageSize(pageSize));
 	}
 	
-	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	@GetMapping(path = "/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseStatus(HttpStatus.OK)
+	public Flux<ItemSuggestionDto> suggestItems(@RequestParam("q") String query, @RequestParam(value = "size", defaultValue = "10") int size) {
+		return itemService.suggestItems(query, size);
+	}
+	
+	@PostMapping(consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE }, produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
 	@ResponseStatus(HttpStatus.CREATED)
 	@SecurityRequirement(name = "bearerAuth")
 	public Mono<ItemResponseDto> addItem(Authentication authentication, @RequestBody @Nonnull ItemDto item) {
 		return itemService.addItem(item, getLoggedInUser(authentication));
 	}
 	
-	@PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	@PutMapping(path = "/{id}", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE }, produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
 	@ResponseStatus(HttpStatus.OK)
 	@SecurityRequirement(name = "bearerAuth")
-	public Mono<ItemResponseDto> updateItem(Authentication authentication, @PathVariable String id, @RequestBody @Nonnull ItemDto item) {
-		return itemService.updateItem(id, item, getLoggedInUser(authentication));
+	public Mono<ItemResponseDto> updateItem(Authentication authentication, @PathVariable String id, 
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch, @RequestBody @Valid @Nonnull ItemDto item) {
+		return itemService.updateItem(id, getExpectedVersion(ifMatch), item, getLoggedInUser(authentication));
 	}
 	
 	@DeleteMapping(path = "/{id}")
@@ -98,6 +193,113 @@ public class ItemController {
 		return itemService.deleteItem(id);
 	}
 	
+	@PostMapping(path = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE }, produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	@ResponseStatus(HttpStatus.OK)
+	@SecurityRequirement(name = "bearerAuth")
+	public Flux<BulkItemResultDto> addItems(Authentication authentication, @RequestBody Flux<ItemDto> items) {
+		return itemBulkService.addItems(items, getLoggedInUser(authentication));
+	}
+	
+	@PutMapping(path = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE }, produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	@ResponseStatus(HttpStatus.OK)
+	@SecurityRequirement(name = "bearerAuth")
+	public Flux<BulkItemResultDto> updateItems(Authentication authentication, @RequestBody Flux<BulkItemDto> items) {
+		return itemBulkService.updateItems(items, getLoggedInUser(authentication));
+	}
+	
+	@DeleteMapping(path = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE }, produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	@ResponseStatus(HttpStatus.OK)
+	@SecurityRequirement(name = "bearerAuth")
+	public Flux<BulkItemResultDto> deleteItems(@RequestBody Flux<BulkItemDto> items) {
+		return itemBulkService.deleteItems(items);
+	}
+	
+	/*
+	 * The entity tag of an item is its version, the same tag that If-Match takes. Items are not shared between users
+	 * through caches and may be stored but must be revalidated.
+	 */
+	private ResponseEntity<ItemResponseDto> createItemResponse(ItemResponseDto item) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+				.eTag(getETag(item.getVersion()))
+				.cacheControl(CacheControl.noCache().cachePrivate());
+		
+		if (item.getUpdateTime() != null) {
+			builder.lastModified(item.getUpdateTime());
+		}
+		
+		return builder.body(item);
+	}
+	
+	/*
+	 * List items do not carry a version or an update time, so the entity tag of a page is a weak tag hashed from 
+	 * the fields of its items and the given page fields. The response framework answers a matching If-None-Match with 304.
+	 */
+	private <T> ResponseEntity<T> createListResponse(T response, List<ItemListResponseDto> items, Object... pageFields) {
+		MessageDigest digest = createDigest();
+		
+		items.forEach(item -> Stream.of(item.getId(), item.getName(), item.getCreateTime()).forEach(field -> update(digest, field)));
+		Arrays.stream(pageFields).forEach(field -> update(digest, field));
+		
+		return ResponseEntity.ok()
+				.eTag("W/\"" + HexFormat.of().formatHex(digest.digest(), 0, ETAG_HASH_BYTES) + "\"")
+				.cacheControl(CacheControl.noCache())
+				.body(response);
+	}
+	
+	private boolean isNotModified(ServerWebExchange exchange, ItemVersion version) {
+		return version.updateTime() != null 
+				? exchange.checkNotModified(getETag(version.version()), version.updateTime()) 
+				: exchange.checkNotModified(getETag(version.version()));
+	}
+	
+	private String getETag(long version) {
+		return "\"" + version + "\"";
+	}
+	
+	private MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private void update(MessageDigest digest, Object field) {
+		digest.update(String.valueOf(field).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+	
+	private int checkPageIndex(int pageIndex) {
+		if (pageIndex < 0) {
+			throw new InvalidPageException("Page " + pageIndex + " is negative");
+		}
+		
+		return pageIndex;
+	}
+	
+	private int checkPageSize(int pageSize) {
+		if (pageSize < 1) {
+			throw new InvalidPageException("Page size " + pageSize + " is smaller than 1");
+		}
+		
+		if (pageSize > listingProperties.getMaxPageSize()) {
+			throw new PageSizeExceededException("Page size " + pageSize + " is larger than the maximum " + listingProperties.getMaxPageSize());
+		}
+		
+		return pageSize;
+	}
+	
+	/*
+	 * A streamed format is used only when the client asks for it, a missing Accept or */* gets a JSON array.
+	 */
+	private boolean isStreamed(ServerWebExchange exchange) {
+		List<MediaType> accept = exchange.getRequest().getHeaders().getAccept();
+		
+		return accept.stream().noneMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_JSON)) 
+				&& accept.stream().anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON) || type.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM));
+	}
+	
 	private String getLoggedInUser(Authentication authentication) {
 		if (authentication == null || authentication.getName() == null) {
 			log.error("Username cannot be found");
@@ -108,6 +310,36 @@ public class ItemController {
 		return authentication.getName();
 	}
 	
+	/*
+	 * The entity tag of an item is its version, e.g. If-Match: "3". A missing header or * accepts any version,
+	 * a tag that is not a version is a malformed request rather than a failed precondition.
+	 */
+	private Long getExpectedVersion(String ifMatch) {
+		if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		
+		String tag = ifMatch.trim();
+		
+		if (tag.startsWith("W/")) {
+			tag = tag.substring(2);
+		}
+		
+		try {
+			return Long.valueOf(tag.replace("\"", ""));
+		} catch (NumberFormatException e) {
+			throw new InvalidVersionException("If-Match does not contain an item version: " + ifMatch, e);
+		}
+	}
+	
+	private Sort getSort(String[] sort) {
+		Sort itemSort = Sort.by(getSortOrders(sort));
+		
+		itemIndexService.checkSort(itemSort);
+		
+		return itemSort;
+	}
+	
 	private List<Order> getSortOrders(String[] sort) {
 		List<Order> orders;
 		
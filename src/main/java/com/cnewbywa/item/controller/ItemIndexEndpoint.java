@@ -0,0 +1,27 @@
+package com.cnewbywa.item.controller;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.cnewbywa.item.service.ItemIndexService;
+
+import reactor.core.publisher.Mono;
+
+@Component
+@Endpoint(id = "itemindexes")
+public class ItemIndexEndpoint {
+
+	private ItemIndexService itemIndexService;
+	
+	public ItemIndexEndpoint(ItemIndexService itemIndexService) {
+		this.itemIndexService = itemIndexService;
+	}
+	
+	@ReadOperation
+	public Mono<Map<String, Object>> indexes() {
+		return itemIndexService.getDiagnostics();
+	}
+}
@@ -0,0 +1,245 @@
+package com.cnewbywa.item.controller;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.cnewbywa.item.configuration.ItemRateLimitProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Limits the request rate of each client per route with token buckets. Authenticated clients are identified by the
+ * subject of their token and anonymous clients by their address, which behind a trusted proxy is the last address of 
+ * X-Forwarded-For not belonging to a trusted proxy. Runs after the security filters, so that the token
+ * has been verified before its subject is trusted. Every limited response carries the RateLimit-Limit, 
+ * RateLimit-Remaining and RateLimit-Reset headers, and a rejected request gets 429 with Retry-After.
+ */
+@Component
+@Order(0)
+@Slf4j
+public class ItemRateLimitFilter implements WebFilter {
+
+	static final String LIMIT_HEADER = "RateLimit-Limit";
+	static final String REMAINING_HEADER = "RateLimit-Remaining";
+	static final String RESET_HEADER = "RateLimit-Reset";
+	
+	static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+	
+	private final boolean enabled;
+	
+	private final long idleTimeoutNanos;
+	
+	private final List<Route> routes;
+	
+	private final List<IpAddressMatcher> trustedProxies;
+	
+	private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+	
+	public ItemRateLimitFilter(ItemRateLimitProperties properties, MeterRegistry meterRegistry) {
+		this.enabled = properties.isEnabled();
+		this.idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+		this.routes = properties.getRoutes().stream().map(route -> createRoute(route, meterRegistry)).toList();
+		this.trustedProxies = properties.getTrustedProxies().stream().map(IpAddressMatcher::new).toList();
+		
+		meterRegistry.gaugeMapSize("item.ratelimit.buckets", Tags.empty(), buckets);
+	}
+	
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		Route route = enabled ? findRoute(exchange) : null;
+		
+		if (route == null) {
+			return chain.filter(exchange);
+		}
+		
+		return exchange.getPrincipal()
+				.map(this::getClient)
+				.defaultIfEmpty(getClient(exchange))
+				.flatMap(client -> {
+					TokenBucket bucket = buckets.computeIfAbsent(route.name + " " + client, key -> new TokenBucket(route.interval, route.capacity, System.nanoTime()));
+					long now = System.nanoTime();
+					long waitNanos = bucket.tryConsume(now);
+					HttpHeaders headers = exchange.getResponse().getHeaders();
+					
+					headers.set(LIMIT_HEADER, String.valueOf(route.capacity));
+					headers.set(REMAINING_HEADER, String.valueOf(bucket.getRemaining(now)));
+					headers.set(RESET_HEADER, String.valueOf(toSeconds(bucket.getNanosUntilFull(now))));
+					
+					if (waitNanos > 0) {
+						route.rejections.increment();
+						
+						exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+						headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(toSeconds(waitNanos)));
+						
+						return exchange.getResponse().setComplete();
+					}
+					
+					return chain.filter(exchange);
+				});
+	}
+	
+	@Scheduled(fixedDelayString = "${application.rate-limit.eviction-interval:PT1M}")
+	public void evictIdleBuckets() {
+		long now = System.nanoTime();
+		int before = buckets.size();
+		
+		buckets.values().removeIf(bucket -> bucket.isIdle(now, idleTimeoutNanos));
+		
+		log.debug("Evicted {} idle rate limit buckets", before - buckets.size());
+	}
+	
+	int getBucketCount() {
+		return buckets.size();
+	}
+	
+	private Route findRoute(ServerWebExchange exchange) {
+		HttpMethod method = exchange.getRequest().getMethod();
+		
+		return routes.stream()
+				.filter(route -> (route.method == null || route.method.equals(method)) && route.pattern.matches(exchange.getRequest().getPath().pathWithinApplication()))
+				.findFirst()
+				.orElse(null);
+	}
+	
+	private String getClient(Principal principal) {
+		return "user:" + (principal instanceof JwtAuthenticationToken token ? token.getToken().getSubject() : principal.getName());
+	}
+	
+	private String getClient(ServerWebExchange exchange) {
+		InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+		
+		if (address == null) {
+			return "address:unknown";
+		}
+		
+		String client = address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+		
+		return "address:" + (isTrustedProxy(client) ? getForwardedClient(exchange, client) : client);
+	}
+	
+	/*
+	 * Each proxy appends the address it received the request from, so the addresses are read from the end and
+	 * the first one that is not a trusted proxy is the client. The addresses before it may have been sent by the client.
+	 */
+	private String getForwardedClient(ServerWebExchange exchange, String proxy) {
+		List<String> forwardedFor = exchange.getRequest().getHeaders().getValuesAsList(FORWARDED_FOR_HEADER);
+		String client = proxy;
+		
+		for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+			client = forwardedFor.get(i).trim();
+			
+			if (!isTrustedProxy(client)) {
+				break;
+			}
+		}
+		
+		return client;
+	}
+	
+	private boolean isTrustedProxy(String address) {
+		try {
+			return trustedProxies.stream().anyMatch(proxy -> proxy.matches(address));
+		} catch (IllegalArgumentException e) {
+			// not an address, e.g. unknown or a name
+			return false;
+		}
+	}
+	
+	private long toSeconds(long nanos) {
+		return Math.max((nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1), 0);
+	}
+	
+	private Route createRoute(ItemRateLimitProperties.Route route, MeterRegistry meterRegistry) {
+		String name = (route.getMethod() != null ? route.getMethod() + " " : "") + route.getPath();
+		
+		if (route.getCapacity() < 1 || route.getRefillPerSecond() <= 0) {
+			throw new IllegalArgumentException("Rate limit of " + name + " needs a capacity and a refill rate");
+		}
+		
+		log.info("Route {} is limited to {} requests per second with bursts of {}", name, route.getRefillPerSecond(), route.getCapacity());
+		
+		return new Route(name, PathPatternParser.defaultInstance.parse(route.getPath()), 
+				route.getMethod() != null ? HttpMethod.valueOf(route.getMethod()) : null, route.getCapacity(), 
+				(long) (TimeUnit.SECONDS.toNanos(1) / route.getRefillPerSecond()),
+				Counter.builder("item.ratelimit.rejected")
+						.description("Requests rejected by the rate limit")
+						.tag("route", name)
+						.register(meterRegistry));
+	}
+	
+	private record Route(String name, PathPattern pattern, HttpMethod method, int capacity, long interval, Counter rejections) {
+	}
+	
+	/*
+	 * Token bucket kept as the time at which the bucket is full again (the generic cell rate algorithm). Each request
+	 * moves the time forward by one token interval, and a request is rejected when the time would be more than
+	 * the capacity of tokens ahead. One compare-and-set per request, no locks.
+	 */
+	static class TokenBucket {
+		
+		private final long interval;
+		
+		private final long burst;
+		
+		private final AtomicLong fullAt;
+		
+		TokenBucket(long interval, int capacity, long now) {
+			this.interval = interval;
+			this.burst = interval * capacity;
+			this.fullAt = new AtomicLong(now);
+		}
+		
+		/*
+		 * Returns 0 when a token was taken, otherwise the nanoseconds until a token is available.
+		 */
+		long tryConsume(long now) {
+			while (true) {
+				long current = fullAt.get();
+				long next = (current - now > 0 ? current : now) + interval;
+				
+				if (next - now > burst) {
+					return next - now - burst;
+				}
+				
+				if (fullAt.compareAndSet(current, next)) {
+					return 0;
+				}
+			}
+		}
+		
+		long getRemaining(long now) {
+			return Math.max(burst - Math.max(fullAt.get() - now, 0), 0) / interval;
+		}
+		
+		long getNanosUntilFull(long now) {
+			return Math.max(fullAt.get() - now, 0);
+		}
+		
+		boolean isIdle(long now, long idleTimeout) {
+			return now - fullAt.get() > idleTimeout;
+		}
+	}
+}
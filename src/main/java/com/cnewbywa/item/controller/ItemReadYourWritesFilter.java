@@ -0,0 +1,151 @@
+package com.cnewbywa.item.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.cnewbywa.item.configuration.ItemMongoProperties;
+import com.cnewbywa.item.repository.ReadYourWrites;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lets a client see its own writes in the lists while the lists are read from members that may lag behind the primary.
+ * Successful writes answer with X-Last-Write, the time of the write in epoch milliseconds signed together with the
+ * subject of the writer, and requests of the same subject carrying it back are read from the primary for the 
+ * read-your-writes window. Single items are always read from the primary, with the hint past the item cache, which 
+ * another instance's write invalidates only once the change stream delivers it. A hint that is not signed by this 
+ * service for the caller, or is sent without a token, is ignored, otherwise any client could keep all its reads on 
+ * the primary and past the cache. A streamed bulk response carries the time the response started, so a client should
+ * send the hint of its last write.
+ */
+@Slf4j
+@Component
+@Order(10)
+public class ItemReadYourWritesFilter implements WebFilter {
+
+	public static final String LAST_WRITE_HEADER = "X-Last-Write";
+	
+	private static final PathPattern ITEMS_PATTERN = PathPatternParser.defaultInstance.parse("/items/**");
+	
+	private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+	
+	// how far the clocks of the instances may differ, a hint from another instance may be this much ahead
+	static final long MAX_CLOCK_SKEW_MILLIS = 5000;
+	
+	private final long windowMillis;
+	private final SecretKeySpec key;
+	
+	public ItemReadYourWritesFilter(ItemMongoProperties mongoProperties) {
+		this.windowMillis = mongoProperties.getReadYourWritesWindow().toMillis();
+		this.key = new SecretKeySpec(getKey(mongoProperties.getReadYourWritesKey()), SIGNATURE_ALGORITHM);
+	}
+	
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		HttpMethod method = exchange.getRequest().getMethod();
+		
+		if (!ITEMS_PATTERN.matches(exchange.getRequest().getPath().pathWithinApplication())) {
+			return chain.filter(exchange);
+		}
+		
+		if (HttpMethod.GET.equals(method)) {
+			String lastWrite = exchange.getRequest().getHeaders().getFirst(LAST_WRITE_HEADER);
+			
+			if (lastWrite == null) {
+				return chain.filter(exchange);
+			}
+			
+			return exchange.getPrincipal()
+					.map(principal -> isRecentWrite(lastWrite, principal.getName()))
+					.defaultIfEmpty(false)
+					.flatMap(recentWrite -> recentWrite ? ReadYourWrites.fromPrimary(chain.filter(exchange)) : chain.filter(exchange));
+		}
+		
+		if (HttpMethod.POST.equals(method) || HttpMethod.PUT.equals(method) || HttpMethod.DELETE.equals(method)) {
+			exchange.getResponse().beforeCommit(() -> {
+				HttpStatusCode status = exchange.getResponse().getStatusCode();
+				
+				if (status != null && !status.is2xxSuccessful()) {
+					return Mono.empty();
+				}
+				
+				return exchange.getPrincipal()
+						.map(Principal::getName)
+						.doOnNext(subject -> exchange.getResponse().getHeaders().set(LAST_WRITE_HEADER, createHint(Instant.now().toEpochMilli(), subject)))
+						.then();
+			});
+		}
+		
+		return chain.filter(exchange);
+	}
+	
+	String createHint(long writeTime, String subject) {
+		return writeTime + "." + sign(writeTime, subject);
+	}
+	
+	private boolean isRecentWrite(String lastWrite, String subject) {
+		int separator = lastWrite.indexOf('.');
+		
+		if (separator < 0) {
+			return false;
+		}
+		
+		try {
+			long writeTime = Long.parseLong(lastWrite.substring(0, separator).trim());
+			long age = System.currentTimeMillis() - writeTime;
+			
+			return age >= -MAX_CLOCK_SKEW_MILLIS && age < windowMillis 
+					&& MessageDigest.isEqual(sign(writeTime, subject).getBytes(StandardCharsets.US_ASCII), 
+							lastWrite.substring(separator + 1).trim().getBytes(StandardCharsets.US_ASCII));
+		} catch (NumberFormatException e) {
+			// only a hint, an invalid one is ignored
+			return false;
+		}
+	}
+	
+	private String sign(long writeTime, String subject) {
+		try {
+			Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+			
+			mac.init(key);
+			
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal((writeTime + "\n" + subject).getBytes(StandardCharsets.UTF_8)));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Cannot sign the read-your-writes hint", e);
+		}
+	}
+	
+	private static byte[] getKey(String key) {
+		if (StringUtils.hasText(key)) {
+			return key.getBytes(StandardCharsets.UTF_8);
+		}
+		
+		log.warn("No read-your-writes-key given, the hints of this instance are not accepted by the other instances");
+		
+		byte[] randomKey = new byte[32];
+		
+		new SecureRandom().nextBytes(randomKey);
+		
+		return randomKey;
+	}
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class InvalidPageException extends RuntimeException {
+
+	private static final long serialVersionUID = 5820174639301827465L;
+
+	public InvalidPageException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class InvalidSearchException extends RuntimeException {
+
+	private static final long serialVersionUID = 2918374650192837465L;
+
+	public InvalidSearchException(String message) {
+		super(message);
+	}
+}
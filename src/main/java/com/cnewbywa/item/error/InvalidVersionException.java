@@ -0,0 +1,14 @@
+package com.cnewbywa.item.error;
+
+public class InvalidVersionException extends RuntimeException {
+
+	private static final long serialVersionUID = 2918466019374855160L;
+
+	public InvalidVersionException(String message) {
+		super(message);
+	}
+
+	public InvalidVersionException(String message, Throwable t) {
+		super(message, t);
+	}
+}
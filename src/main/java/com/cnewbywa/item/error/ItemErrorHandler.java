@@ -3,6 +3,7 @@ package com.cnewbywa.item.error;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,6 +19,26 @@ public class ItemErrorHandler {
 		log.warn(re.getMessage(), re);
 	}
 	
+	@ExceptionHandler({ InvalidCursorException.class, InvalidPageException.class, InvalidSearchException.class, InvalidVersionException.class, 
+		PageSizeExceededException.class, UnsupportedSortException.class })
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+	public void handleBadRequestException(RuntimeException re) {
+		log.warn(re.getMessage(), re);
+	}
+	
+	// a request body failing the constraints of the dto
+	@ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+	public void handleBindException(WebExchangeBindException e) {
+		log.warn(e.getMessage());
+	}
+	
+	@ExceptionHandler(ItemVersionConflictException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+	public void handleItemVersionConflictException(RuntimeException re) {
+		log.warn(re.getMessage());
+	}
+	
 	@ExceptionHandler(Throwable.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
 	public void handleException(RuntimeException re) {
@@ -0,0 +1,14 @@
+package com.cnewbywa.item.error;
+
+public class ItemVersionConflictException extends RuntimeException {
+
+	private static final long serialVersionUID = -2201474373596823187L;
+
+	public ItemVersionConflictException(String message) {
+		super(message);
+	}
+	
+	public ItemVersionConflictException(String message, Throwable t) {
+		super(message, t);
+	}
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.error;
+
+public class PageSizeExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = 7102938475610293847L;
+
+	public PageSizeExceededException(String message) {
+		super(message);
+	}
+}
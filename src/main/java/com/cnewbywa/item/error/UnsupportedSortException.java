@@ -0,0 +1,14 @@
+package com.cnewbywa.item.error;
+
+public class UnsupportedSortException extends RuntimeException {
+
+	private static final long serialVersionUID = 2781733573001657741L;
+
+	public UnsupportedSortException(String message) {
+		super(message);
+	}
+	
+	public UnsupportedSortException(String message, Throwable t) {
+		super(message, t);
+	}
+}
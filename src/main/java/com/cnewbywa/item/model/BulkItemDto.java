@@ -0,0 +1,24 @@
+package com.cnewbywa.item.model;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkItemDto implements Serializable {
+
+	private static final long serialVersionUID = -3046620281571390816L;
+	
+	private String id;
+	private String name;
+	private String description;
+	private Long version;
+}
@@ -0,0 +1,23 @@
+package com.cnewbywa.item.model;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkItemResultDto implements Serializable {
+
+	private static final long serialVersionUID = 6320784520371946457L;
+	
+	private String id;
+	private BulkItemStatus status;
+	private Long version;
+}
@@ -0,0 +1,11 @@
+package com.cnewbywa.item.model;
+
+public enum BulkItemStatus {
+
+	CREATED,
+	UPDATED,
+	DELETED,
+	NOT_FOUND,
+	VERSION_CONFLICT,
+	INVALID
+}
@@ -1,7 +1,10 @@
 package com.cnewbywa.item.model;
 
+import java.text.Normalizer;
 import java.time.Instant;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
@@ -19,6 +22,8 @@ import lombok.Data;
 @Document
 public class Item {
 
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
 	@Id
 	private String id;
 	@Builder.Default
@@ -26,6 +31,8 @@ public class Item {
 	@Size(min = 3, max = 50)
 	@NotBlank
 	private String name;
+	// lower case name without diacritics for the prefix search, kept in sync with the name on every write
+	private String nameNormalized;
 	@Size(min = 3, max = 500)
 	private String description;
 	@CreatedDate
@@ -36,4 +43,12 @@ public class Item {
 	private String updatedBy;
 	@Version
 	private long version; 
+	
+	public static String normalizeName(String name) {
+		if (name == null) {
+			return null;
+		}
+		
+		return DIACRITICS.matcher(Normalizer.normalize(name.trim(), Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+	}
 }
@@ -0,0 +1,8 @@
+package com.cnewbywa.item.model;
+
+/**
+ * Change of an item seen on the change stream, made by any instance. Item is the item after the change,
+ * null for deletes and when the item has already been changed again.
+ */
+public record ItemChange(ItemChangeType type, String itemId, Item item) {
+}
@@ -0,0 +1,91 @@
+package com.cnewbywa.item.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bson.BSONException;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonParseException;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
+
+import com.cnewbywa.item.error.InvalidCursorException;
+
+import lombok.Getter;
+
+/**
+ * Opaque continuation token of the keyset pagination. Contains the sort it was created for
+ * and the values of the sort fields of the last item of a page.
+ */
+@Getter
+public class ItemCursor {
+
+	public static final String TIE_BREAKER = "itemId";
+
+	private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+	private String sort;
+	private List<Object> values;
+
+	private ItemCursor(String sort, List<Object> values) {
+		this.sort = sort;
+		this.values = values;
+	}
+
+	public static Sort withTieBreaker(Sort sort) {
+		if (sort.getOrderFor(TIE_BREAKER) != null) {
+			return sort;
+		}
+
+		Order last = sort.stream().reduce((first, second) -> second).orElse(Order.asc(TIE_BREAKER));
+
+		return sort.and(Sort.by(last.getDirection(), TIE_BREAKER));
+	}
+
+	public static ItemCursor of(Sort sort, Document lastItem) {
+		List<Object> values = new ArrayList<>();
+
+		sort.forEach(order -> values.add(lastItem.get(order.getProperty())));
+
+		return new ItemCursor(toString(sort), values);
+	}
+
+	public static ItemCursor of(Sort sort, List<Object> values) {
+		return new ItemCursor(toString(sort), values);
+	}
+
+	public static ItemCursor decode(String token, Sort sort) {
+		String cursorSort;
+		List<Object> values;
+
+		try {
+			Document document = Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+
+			cursorSort = document.getString("s");
+			values = document.getList("v", Object.class);
+		} catch (IllegalArgumentException | JsonParseException | BSONException | ClassCastException e) {
+			throw new InvalidCursorException("Cursor cannot be decoded", e);
+		}
+
+		if (!toString(sort).equals(cursorSort) || values == null || values.size() != sort.toList().size()) {
+			throw new InvalidCursorException("Cursor does not match the requested sort");
+		}
+
+		return new ItemCursor(cursorSort, values);
+	}
+
+	public String encode() {
+		String json = new Document("s", sort).append("v", values).toJson(JSON_SETTINGS);
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String toString(Sort sort) {
+		return sort.stream().map(order -> order.getProperty() + ":" + order.getDirection()).collect(Collectors.joining(","));
+	}
+}
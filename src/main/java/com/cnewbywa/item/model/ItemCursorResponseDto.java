@@ -0,0 +1,24 @@
+package com.cnewbywa.item.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemCursorResponseDto implements Serializable {
+
+	private static final long serialVersionUID = 8143950385771267032L;
+
+	private List<ItemListResponseDto> items;
+	private long amount;
+	private String nextCursor;
+}
@@ -0,0 +1,57 @@
+package com.cnewbywa.item.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of an item, stored in the outbox collection together with the change and published afterwards.
+ * Version is the version of the item after the change, for deletes one more than the version of the deleted item,
+ * so the versions of the events of an item are in the order of the changes. The relay publishes them in that order
+ * and consumers can use it to drop events they have already seen.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document
+public class ItemEvent {
+
+	@Id
+	private String id;
+	private String itemId;
+	private ItemEventType type;
+	private Long version;
+	private String name;
+	private String description;
+	private String user;
+	private Instant eventTime;
+	private Instant publishTime;
+	
+	public static ItemEvent of(ItemEventType type, Item item, String user) {
+		return ItemEvent.builder()
+				.itemId(item.getItemId())
+				.type(type)
+				.version(item.getVersion())
+				.name(item.getName())
+				.description(item.getDescription())
+				.user(user)
+				.eventTime(Instant.now())
+				.build();
+	}
+	
+	public static ItemEvent deleted(Item item) {
+		return ItemEvent.builder()
+				.itemId(item.getItemId())
+				.type(ItemEventType.DELETED)
+				.version(item.getVersion() + 1)
+				.eventTime(Instant.now())
+				.build();
+	}
+}
@@ -0,0 +1,8 @@
+package com.cnewbywa.item.model;
+
+public enum ItemEventType {
+
+	CREATED,
+	UPDATED,
+	DELETED
+}
@@ -25,4 +25,5 @@ public class ItemResponseDto implements Serializable {
 	private String createdBy;
 	private Instant updateTime;
 	private String updatedBy;
+	private long version;
 }
@@ -0,0 +1,21 @@
+package com.cnewbywa.item.model;
+
+import java.util.Locale;
+
+import com.cnewbywa.item.error.InvalidSearchException;
+
+public enum ItemSearchMode {
+	
+	// names starting with the query, in name order
+	PREFIX,
+	// names and descriptions containing the words of the query, the most relevant first
+	TEXT;
+	
+	public static ItemSearchMode fromString(String mode) {
+		try {
+			return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidSearchException("Unknown search mode: " + mode);
+		}
+	}
+}
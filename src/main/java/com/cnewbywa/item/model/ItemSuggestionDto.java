@@ -0,0 +1,22 @@
+package com.cnewbywa.item.model;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemSuggestionDto implements Serializable {
+	
+	private static final long serialVersionUID = 6390125874421093652L;
+	
+	private String id;
+	private String name;
+}
@@ -0,0 +1,10 @@
+package com.cnewbywa.item.model;
+
+import java.time.Instant;
+
+/**
+ * The fields of an item that identify a representation of it, for answering conditional requests
+ * without loading the item.
+ */
+public record ItemVersion(String itemId, long version, Instant updateTime) {
+}
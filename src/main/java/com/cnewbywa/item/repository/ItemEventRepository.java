@@ -0,0 +1,24 @@
+package com.cnewbywa.item.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.mongodb.repository.Update;
+
+import com.cnewbywa.item.model.ItemEvent;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ItemEventRepository extends ReactiveMongoRepository<ItemEvent, String> {
+
+	Flux<ItemEvent> findByPublishTimeIsNull(Pageable pageable);
+	
+	// returns the amount of updated events
+	@Query("{ '_id' : { $in : ?0 } }")
+	@Update("{ '$set' : { 'publishTime' : ?1 } }")
+	Mono<Long> markPublished(Collection<String> ids, Instant publishTime);
+}
@@ -1,6 +1,7 @@
 package com.cnewbywa.item.repository;
 
-import org.springframework.data.domain.Pageable;
+import java.util.Collection;
+
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
@@ -9,12 +10,17 @@ import com.cnewbywa.item.model.Item;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface ItemRepository extends ReactiveMongoRepository<Item, String> {
+public interface ItemRepository extends ReactiveMongoRepository<Item, String>, ItemRepositoryCustom {
 
 	Mono<Item> findByItemId(String itemId);
 	
-	Mono<Void> deleteByItemId(String itemId);
+	Flux<Item> findByItemIdIn(Collection<String> itemIds);
+	
+	@Query(value = "{ 'itemId' : { $in : ?0 } }", fields = "{ 'itemId' : 1, 'version' : 1 }")
+	Flux<Item> findVersionsByItemIdIn(Collection<String> itemIds);
+	
+	@Query(value = "{ 'itemId' : ?0 }", fields = "{ 'itemId' : 1, 'version' : 1, 'updateTime' : 1 }")
+	Mono<Item> findVersionByItemId(String itemId);
 	
-	@Query(fields = "{ 'itemId' : 1, 'name' : 1, 'createTime' : 1, 'version' : 1 }")
-	Flux<Item> findBy(Pageable pageable);
+	Mono<Boolean> existsByItemId(String itemId);
 }
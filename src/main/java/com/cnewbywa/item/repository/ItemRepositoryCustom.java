@@ -0,0 +1,49 @@
+package com.cnewbywa.item.repository;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.cnewbywa.item.model.Item;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ItemRepositoryCustom {
+
+	// list items contain only itemId, name and createTime
+	
+	// streams all list items from the cursor, fetching them in batches of the configured size as they are requested
+	Flux<Document> streamListItems(Sort sort);
+	
+	Flux<Document> findListItems(Pageable pageable);
+	
+	// lastValues are the sort field values of the last item of the previous page, null for the first page
+	Flux<Document> findByKeyset(Sort sort, List<Object> lastValues, int limit);
+	
+	// list items whose normalized name starts with the prefix, lastValues as in findByKeyset
+	Flux<Document> findByNamePrefix(String prefix, Sort sort, List<Object> lastValues, int limit);
+	
+	// list items matching the words of the text, the highest text score first
+	Flux<Document> findByText(String text, long skip, int limit);
+	
+	// count from the collection metadata, does not scan the collection
+	Mono<Long> estimatedCount();
+	
+	// updates the item in one round-trip and returns the updated item, empty if the item or the expected version is not found
+	Mono<Item> findAndUpdate(String itemId, Long expectedVersion, String name, String description, String user);
+	
+	// deletes the item in one round-trip and returns its itemId and version before the delete, empty if the item is not found
+	Mono<Item> findAndDelete(String itemId);
+	
+	// returns the amount of inserted items
+	Mono<Integer> bulkInsert(List<Item> items);
+	
+	// items carry the expected version, returns the amount of matched items
+	Mono<Integer> bulkUpdate(List<Item> items);
+	
+	// items carry the expected version, returns the amount of deleted items
+	Mono<Integer> bulkDelete(List<Item> items);
+}
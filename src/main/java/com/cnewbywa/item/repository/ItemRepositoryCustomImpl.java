@@ -0,0 +1,241 @@
+package com.cnewbywa.item.repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.cnewbywa.item.configuration.ItemListingProperties;
+import com.cnewbywa.item.configuration.ItemMongoProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemCursor;
+import com.mongodb.ReadPreference;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+
+	private static final String[] LIST_FIELDS = { "itemId", "name", "createTime" };
+
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+
+	// list and search queries, reads from the members chosen by the list read preference
+	private ReactiveMongoTemplate listMongoTemplate;
+
+	private ItemListingProperties listingProperties;
+
+	public ItemRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate, ItemListingProperties listingProperties, ItemMongoProperties mongoProperties) {
+		this.reactiveMongoTemplate = reactiveMongoTemplate;
+		this.listMongoTemplate = createListTemplate(reactiveMongoTemplate, mongoProperties.createListReadPreference());
+		this.listingProperties = listingProperties;
+	}
+
+	@Override
+	public Flux<Document> streamListItems(Sort sort) {
+		return findProjected(new Query().with(sort).cursorBatchSize(listingProperties.getCursorBatchSize()));
+	}
+
+	@Override
+	public Flux<Document> findListItems(Pageable pageable) {
+		return findProjected(new Query().with(pageable));
+	}
+
+	@Override
+	public Flux<Document> findByKeyset(Sort sort, List<Object> lastValues, int limit) {
+		Query query = new Query().with(sort).limit(limit);
+
+		sort.forEach(order -> query.fields().include(order.getProperty()));
+
+		if (lastValues != null) {
+			query.addCriteria(createKeysetCriteria(sort.toList(), lastValues));
+		}
+
+		return findProjected(query);
+	}
+
+	@Override
+	public Flux<Document> findByNamePrefix(String prefix, Sort sort, List<Object> lastValues, int limit) {
+		// a range instead of an anchored regex, the bounds of the index scan are then exact whatever the prefix contains
+		Criteria range = Criteria.where("nameNormalized").gte(prefix);
+		String upperBound = getPrefixUpperBound(prefix);
+		
+		if (upperBound != null) {
+			range.lt(upperBound);
+		}
+		
+		Query query = new Query(range).with(sort).limit(limit);
+		
+		sort.forEach(order -> query.fields().include(order.getProperty()));
+		
+		if (lastValues != null) {
+			query.addCriteria(createKeysetCriteria(sort.toList(), lastValues));
+		}
+		
+		return findProjected(query);
+	}
+	
+	@Override
+	public Flux<Document> findByText(String text, long skip, int limit) {
+		Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+				.sortByScore()
+				.with(Sort.by(ItemCursor.TIE_BREAKER))
+				.skip(skip)
+				.limit(limit);
+		
+		return findProjected(query);
+	}
+	
+	@Override
+	public Mono<Long> estimatedCount() {
+		return reactiveMongoTemplate.estimatedCount(Item.class);
+	}
+
+	@Override
+	public Mono<Item> findAndUpdate(String itemId, Long expectedVersion, String name, String description, String user) {
+		Criteria criteria = Criteria.where("itemId").is(itemId);
+
+		if (expectedVersion != null) {
+			criteria.and("version").is(expectedVersion);
+		}
+
+		return reactiveMongoTemplate.findAndModify(Query.query(criteria), createUpdate(name, description, user, Instant.now()), 
+				FindAndModifyOptions.options().returnNew(true), Item.class);
+	}
+
+	@Override
+	public Mono<Item> findAndDelete(String itemId) {
+		Query query = Query.query(Criteria.where("itemId").is(itemId));
+		
+		query.fields().include("itemId", "version");
+		
+		return reactiveMongoTemplate.findAndRemove(query, Item.class);
+	}
+
+	@Override
+	public Mono<Integer> bulkInsert(List<Item> items) {
+		return reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED, Item.class)
+				.insert(items)
+				.execute()
+				.map(result -> result.getInsertedCount());
+	}
+
+	@Override
+	public Mono<Integer> bulkUpdate(List<Item> items) {
+		ReactiveBulkOperations operations = reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED, Item.class);
+		Instant now = Instant.now();
+
+		items.forEach(item -> operations.updateOne(createVersionQuery(item), createUpdate(item.getName(), item.getDescription(), item.getUpdatedBy(), now)));
+
+		return operations.execute().map(result -> result.getMatchedCount());
+	}
+
+	@Override
+	public Mono<Integer> bulkDelete(List<Item> items) {
+		ReactiveBulkOperations operations = reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED, Item.class);
+
+		items.forEach(item -> operations.remove(createVersionQuery(item)));
+
+		return operations.execute().map(result -> result.getDeletedCount());
+	}
+
+	/*
+	 * Reads raw documents with only the list fields, skipping the entity mapping of the full item. Reads from the primary
+	 * for clients that need to see their own writes, see ReadYourWrites.
+	 */
+	private Flux<Document> findProjected(Query query) {
+		query.fields().include(LIST_FIELDS).exclude("_id");
+
+		return Flux.deferContextual(context -> {
+			ReactiveMongoTemplate template = ReadYourWrites.isFromPrimary(context) ? reactiveMongoTemplate : listMongoTemplate;
+
+			return template.find(query, Document.class, template.getCollectionName(Item.class));
+		});
+	}
+
+	/*
+	 * A template of its own, not a bean, so that the auto-configured template stays the one used everywhere else.
+	 */
+	private static ReactiveMongoTemplate createListTemplate(ReactiveMongoTemplate reactiveMongoTemplate, ReadPreference readPreference) {
+		if (readPreference.equals(ReadPreference.primary())) {
+			return reactiveMongoTemplate;
+		}
+
+		ReactiveMongoTemplate listTemplate = new ReactiveMongoTemplate(reactiveMongoTemplate.getMongoDatabaseFactory(), reactiveMongoTemplate.getConverter());
+
+		listTemplate.setReadPreference(readPreference);
+
+		return listTemplate;
+	}
+
+	private Update createUpdate(String name, String description, String user, Instant updateTime) {
+		return new Update()
+				.set("name", name)
+				.set("nameNormalized", Item.normalizeName(name))
+				.set("description", description)
+				.set("updatedBy", user)
+				.set("updateTime", updateTime)
+				.inc("version", 1);
+	}
+
+	private Query createVersionQuery(Item item) {
+		return Query.query(Criteria.where("itemId").is(item.getItemId()).and("version").is(item.getVersion()));
+	}
+
+	/*
+	 * The smallest string greater than all strings starting with the prefix: the last code point incremented.
+	 * Strings are compared by their UTF-8 bytes, which keeps the code point order. Null when there is no such string.
+	 */
+	static String getPrefixUpperBound(String prefix) {
+		int[] codePoints = prefix.codePoints().toArray();
+		
+		for (int i = codePoints.length - 1; i >= 0; i--) {
+			if (codePoints[i] < Character.MAX_CODE_POINT) {
+				int next = codePoints[i] + 1;
+				
+				codePoints[i] = next == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : next;
+				
+				return new String(codePoints, 0, i + 1);
+			}
+		}
+		
+		return null;
+	}
+	
+	/*
+	 * (f1 > v1) or (f1 = v1 and f2 > v2) or ... with the comparison reversed for descending fields
+	 */
+	private Criteria createKeysetCriteria(List<Order> orders, List<Object> lastValues) {
+		List<Criteria> branches = new ArrayList<>(orders.size());
+
+		for (int i = 0; i < orders.size(); i++) {
+			List<Criteria> conditions = new ArrayList<>(i + 1);
+
+			for (int j = 0; j < i; j++) {
+				conditions.add(Criteria.where(orders.get(j).getProperty()).is(lastValues.get(j)));
+			}
+
+			Order order = orders.get(i);
+			Criteria criteria = Criteria.where(order.getProperty());
+
+			conditions.add(order.isAscending() ? criteria.gt(lastValues.get(i)) : criteria.lt(lastValues.get(i)));
+
+			branches.add(conditions.size() == 1 ? conditions.get(0) : new Criteria().andOperator(conditions));
+		}
+
+		return new Criteria().orOperator(branches);
+	}
+}
@@ -0,0 +1,30 @@
+package com.cnewbywa.item.repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * Marks the reads of a subscription as needing the writes the client has just made. The list queries of such
+ * subscriptions are read from the primary instead of the members chosen by the list read preference, which may lag
+ * behind it, and single items are read past the item cache.
+ */
+public final class ReadYourWrites {
+
+	private static final String CONTEXT_KEY = ReadYourWrites.class.getName();
+	
+	private ReadYourWrites() {
+	}
+	
+	public static <T> Mono<T> fromPrimary(Mono<T> mono) {
+		return mono.contextWrite(context -> context.put(CONTEXT_KEY, Boolean.TRUE));
+	}
+	
+	public static <T> Flux<T> fromPrimary(Flux<T> flux) {
+		return flux.contextWrite(context -> context.put(CONTEXT_KEY, Boolean.TRUE));
+	}
+	
+	public static boolean isFromPrimary(ContextView context) {
+		return context.getOrDefault(CONTEXT_KEY, Boolean.FALSE);
+	}
+}
@@ -0,0 +1,40 @@
+package com.cnewbywa.item.service;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.cnewbywa.item.model.ItemEvent;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Publishes the item events to subscribers in the same application. Used unless application.outbox.sink selects
+ * another sink. Subscribers that cannot keep up miss events.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.outbox", name = "sink", havingValue = "in-process", matchIfMissing = true)
+@Slf4j
+public class InProcessItemEventSink implements ItemEventSink {
+
+	private final Sinks.Many<ItemEvent> events = Sinks.many().multicast().directBestEffort();
+	
+	@Override
+	public Mono<Void> publish(List<ItemEvent> batch) {
+		return Mono.fromRunnable(() -> batch.forEach(event -> {
+			Sinks.EmitResult result = events.tryEmitNext(event);
+			
+			if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+				log.debug("Item event {} was not delivered: {}", event.getId(), result);
+			}
+		}));
+	}
+	
+	public Flux<ItemEvent> events() {
+		return events.asFlux();
+	}
+}
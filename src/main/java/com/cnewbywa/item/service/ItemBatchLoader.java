@@ -0,0 +1,96 @@
+package com.cnewbywa.item.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.cnewbywa.item.configuration.ItemBatchProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Collects single item lookups arriving within a short window, or until the batch is full,
+ * and resolves them with one query.
+ */
+@Component
+@Slf4j
+public class ItemBatchLoader implements DisposableBean {
+
+	private record PendingLookup(String itemId, MonoSink<Item> sink) {}
+	
+	private ItemRepository itemRepository;
+	
+	private boolean enabled;
+	
+	private FluxSink<PendingLookup> lookups;
+	
+	private Disposable batches;
+	
+	public ItemBatchLoader(ItemRepository itemRepository, ItemBatchProperties properties) {
+		this.itemRepository = itemRepository;
+		this.enabled = properties.isEnabled();
+		
+		if (enabled) {
+			this.batches = Flux.<PendingLookup>create(sink -> this.lookups = sink)
+					.bufferTimeout(properties.getMaxSize(), properties.getWindow())
+					.onBackpressureBuffer()
+					.flatMap(this::resolve, properties.getConcurrency())
+					.subscribe();
+		}
+	}
+	
+	public Mono<Item> load(String itemId) {
+		if (!enabled) {
+			return itemRepository.findByItemId(itemId);
+		}
+		
+		return Mono.create(sink -> lookups.next(new PendingLookup(itemId, sink)));
+	}
+	
+	@Override
+	public void destroy() {
+		if (batches != null) {
+			lookups.complete();
+			batches.dispose();
+		}
+	}
+	
+	private Mono<Void> resolve(List<PendingLookup> batch) {
+		Set<String> itemIds = batch.stream().map(PendingLookup::itemId).collect(Collectors.toSet());
+		
+		return itemRepository.findByItemIdIn(itemIds)
+				.collectMap(Item::getItemId)
+				.doOnNext(items -> complete(batch, items))
+				.onErrorResume(e -> {
+					log.warn("Batched item lookup of {} items failed", itemIds.size(), e);
+					
+					batch.forEach(lookup -> lookup.sink().error(e));
+					
+					return Mono.empty();
+				})
+				.then();
+	}
+	
+	private void complete(List<PendingLookup> batch, Map<String, Item> items) {
+		batch.forEach(lookup -> {
+			Item item = items.get(lookup.itemId());
+			
+			if (item == null) {
+				lookup.sink().success();
+			} else {
+				lookup.sink().success(item);
+			}
+		});
+	}
+}
@@ -0,0 +1,293 @@
+package com.cnewbywa.item.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+
+import com.cnewbywa.item.configuration.ItemBulkProperties;
+import com.cnewbywa.item.model.BulkItemDto;
+import com.cnewbywa.item.model.BulkItemResultDto;
+import com.cnewbywa.item.model.BulkItemStatus;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemDto;
+import com.cnewbywa.item.model.ItemEvent;
+import com.cnewbywa.item.model.ItemEventType;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import jakarta.validation.Validator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes streams of items in bounded chunks, one bulk write per chunk. Only the chunks in flight are kept in memory
+ * and results are emitted in the order of the input. Items are validated like the single item endpoints validate
+ * them. An id given again in the same request is INVALID, the version guarded writes could not tell which
+ * of the writes of the item succeeded.
+ */
+@Service
+public class ItemBulkService {
+
+	private ItemRepository itemRepository;
+
+	private ItemCountService itemCountService;
+
+	private ItemCache itemCache;
+
+	private ItemBulkProperties properties;
+
+	private ItemMetrics itemMetrics;
+
+	private ItemOutbox itemOutbox;
+
+	private ItemSuggestIndex itemSuggestIndex;
+
+	private Validator validator;
+
+	public ItemBulkService(ItemRepository itemRepository, ItemCountService itemCountService, ItemCache itemCache, ItemBulkProperties properties, 
+			ItemMetrics itemMetrics, ItemOutbox itemOutbox, ItemSuggestIndex itemSuggestIndex, Validator validator) {
+		this.itemRepository = itemRepository;
+		this.itemCountService = itemCountService;
+		this.itemCache = itemCache;
+		this.properties = properties;
+		this.itemMetrics = itemMetrics;
+		this.itemOutbox = itemOutbox;
+		this.itemSuggestIndex = itemSuggestIndex;
+		this.validator = validator;
+	}
+
+	public Flux<BulkItemResultDto> addItems(Flux<ItemDto> items, String user) {
+		return itemMetrics.timed("addItems", inChunks(items, chunk -> addChunk(chunk, user)));
+	}
+
+	public Flux<BulkItemResultDto> updateItems(Flux<BulkItemDto> items, String user) {
+		return itemMetrics.timed("updateItems", inChunks(markRepeated(items), chunk -> updateChunk(chunk, user)));
+	}
+
+	public Flux<BulkItemResultDto> deleteItems(Flux<BulkItemDto> items) {
+		return itemMetrics.timed("deleteItems", inChunks(markRepeated(items), this::deleteChunk));
+	}
+
+	/*
+	 * Marked in the order of the input, before the chunks are written concurrently, so the first occurrence of an id
+	 * is the one written. The ids of a request are kept until it completes.
+	 */
+	private Flux<RequestedItem> markRepeated(Flux<BulkItemDto> items) {
+		return Flux.defer(() -> {
+			Set<String> ids = new HashSet<>();
+			
+			return items.map(item -> new RequestedItem(item, item.getId() != null && !ids.add(item.getId())));
+		});
+	}
+
+	private <T> Flux<BulkItemResultDto> inChunks(Flux<T> items, Function<List<T>, Flux<BulkItemResultDto>> writer) {
+		return items.buffer(properties.getChunkSize()).flatMapSequential(writer, properties.getConcurrency(), 1);
+	}
+
+	private Flux<BulkItemResultDto> addChunk(List<ItemDto> chunk, String user) {
+		List<BulkItemResultDto> results = new ArrayList<>(chunk.size());
+		List<Item> newItems = new ArrayList<>(chunk.size());
+		Instant now = Instant.now();
+
+		chunk.forEach(itemDto -> {
+			if (isInvalid(itemDto.getName(), itemDto.getDescription())) {
+				results.add(createResult(null, BulkItemStatus.INVALID, null));
+			} else {
+				Item item = createItem(itemDto, user, now);
+
+				newItems.add(item);
+				results.add(createResult(item.getItemId(), BulkItemStatus.CREATED, item.getVersion()));
+			}
+		});
+
+		if (newItems.isEmpty()) {
+			return Flux.fromIterable(results);
+		}
+
+		return itemOutbox.withEvents(itemRepository.bulkInsert(newItems), 
+						inserted -> newItems.stream().map(item -> ItemEvent.of(ItemEventType.CREATED, item, user)).toList())
+				.doOnNext(itemCountService::increment)
+				.doOnNext(inserted -> newItems.forEach(item -> itemSuggestIndex.put(item.getItemId(), item.getName())))
+				.thenMany(Flux.fromIterable(results));
+	}
+
+	private Flux<BulkItemResultDto> updateChunk(List<RequestedItem> chunk, String user) {
+		return findVersions(chunk).flatMapMany(versions -> {
+			List<BulkItemResultDto> results = new ArrayList<>(chunk.size());
+			List<Item> updates = new ArrayList<>(chunk.size());
+
+			chunk.forEach(requested -> {
+				BulkItemDto itemDto = requested.item();
+				BulkItemResultDto result = checkVersion(requested, versions, true);
+
+				if (result.getStatus() == BulkItemStatus.UPDATED) {
+					updates.add(Item.builder()
+							.itemId(itemDto.getId())
+							.name(itemDto.getName())
+							.description(itemDto.getDescription())
+							.updatedBy(user)
+							.version(versions.get(itemDto.getId()))
+							.build());
+				}
+
+				results.add(result);
+			});
+
+			if (updates.isEmpty()) {
+				return Flux.fromIterable(results);
+			}
+
+			return itemOutbox.withEvents(itemRepository.bulkUpdate(updates)
+							.flatMap(matched -> matched == updates.size() ? Mono.just(results) : recheck(results, updates)), 
+							written -> createEvents(written, updates, BulkItemStatus.UPDATED, item -> ItemEvent.of(ItemEventType.UPDATED, item, user)))
+					.doOnNext(written -> updateSuggestIndex(written, updates))
+					.doOnTerminate(() -> updates.forEach(item -> itemCache.invalidate(item.getItemId())))
+					.flatMapIterable(list -> list);
+		});
+	}
+
+	private Flux<BulkItemResultDto> deleteChunk(List<RequestedItem> chunk) {
+		return findVersions(chunk).flatMapMany(versions -> {
+			List<BulkItemResultDto> results = new ArrayList<>(chunk.size());
+			List<Item> deletes = new ArrayList<>(chunk.size());
+
+			chunk.forEach(requested -> {
+				BulkItemDto itemDto = requested.item();
+				BulkItemResultDto result = checkVersion(requested, versions, false);
+
+				if (result.getStatus() == BulkItemStatus.UPDATED) {
+					deletes.add(Item.builder().itemId(itemDto.getId()).version(versions.get(itemDto.getId())).build());
+
+					result.setStatus(BulkItemStatus.DELETED);
+					result.setVersion(null);
+				}
+
+				results.add(result);
+			});
+
+			if (deletes.isEmpty()) {
+				return Flux.fromIterable(results);
+			}
+
+			return itemOutbox.withEvents(itemRepository.bulkDelete(deletes)
+							.doOnNext(itemCountService::decrement)
+							.flatMap(deleted -> deleted == deletes.size() ? Mono.just(results) : recheck(results, deletes)), 
+							written -> createEvents(written, deletes, BulkItemStatus.DELETED, ItemEvent::deleted))
+					.doOnNext(written -> updateSuggestIndex(written, deletes))
+					.doOnTerminate(() -> deletes.forEach(item -> itemCache.invalidate(item.getItemId())))
+					.flatMapIterable(list -> list);
+		});
+	}
+
+	private Mono<Map<String, Long>> findVersions(List<RequestedItem> chunk) {
+		return itemRepository.findVersionsByItemIdIn(chunk.stream().map(requested -> requested.item().getId()).filter(Objects::nonNull).distinct().toList())
+				.collectMap(Item::getItemId, Item::getVersion);
+	}
+
+	/*
+	 * Returns UPDATED with the version the item will have after the update when the item can be written.
+	 */
+	private BulkItemResultDto checkVersion(RequestedItem requested, Map<String, Long> versions, boolean update) {
+		BulkItemDto itemDto = requested.item();
+		Long version = itemDto.getId() == null ? null : versions.get(itemDto.getId());
+
+		if (itemDto.getId() == null || requested.repeated() || update && isInvalid(itemDto.getName(), itemDto.getDescription())) {
+			return createResult(itemDto.getId(), BulkItemStatus.INVALID, null);
+		} else if (version == null) {
+			return createResult(itemDto.getId(), BulkItemStatus.NOT_FOUND, null);
+		} else if (itemDto.getVersion() != null && !itemDto.getVersion().equals(version)) {
+			return createResult(itemDto.getId(), BulkItemStatus.VERSION_CONFLICT, version);
+		}
+
+		return createResult(itemDto.getId(), BulkItemStatus.UPDATED, version + 1);
+	}
+
+	/*
+	 * Some items were changed or deleted by someone else between the version check and the bulk write,
+	 * find out which ones by reading the versions again.
+	 */
+	private Mono<List<BulkItemResultDto>> recheck(List<BulkItemResultDto> results, List<Item> written) {
+		return itemRepository.findVersionsByItemIdIn(written.stream().map(Item::getItemId).toList())
+				.collectMap(Item::getItemId, Item::getVersion)
+				.map(versions -> {
+					written.forEach(item -> results.stream()
+							.filter(result -> item.getItemId().equals(result.getId()))
+							.forEach(result -> {
+								Long version = versions.get(item.getItemId());
+
+								if (result.getStatus() == BulkItemStatus.UPDATED && (version == null || version != item.getVersion() + 1)) {
+									result.setStatus(version == null ? BulkItemStatus.NOT_FOUND : BulkItemStatus.VERSION_CONFLICT);
+									result.setVersion(version);
+								} else if (result.getStatus() == BulkItemStatus.DELETED && version != null) {
+									result.setStatus(BulkItemStatus.VERSION_CONFLICT);
+									result.setVersion(version);
+								}
+							}));
+
+					return results;
+				});
+	}
+
+	/*
+	 * Events of the items the chunk changed, with the versions the items have after the write. The written items of
+	 * deletes carry the version they had, which the delete event counts on from.
+	 */
+	private List<ItemEvent> createEvents(List<BulkItemResultDto> results, List<Item> written, BulkItemStatus status, Function<Item, ItemEvent> toEvent) {
+		Map<String, Item> items = written.stream().collect(Collectors.toMap(Item::getItemId, Function.identity(), (first, second) -> second));
+		
+		return results.stream()
+				.filter(result -> result.getStatus() == status && items.containsKey(result.getId()))
+				.map(result -> {
+					ItemEvent event = toEvent.apply(items.get(result.getId()));
+					
+					if (result.getVersion() != null) {
+						event.setVersion(result.getVersion());
+					}
+					
+					return event;
+				})
+				.toList();
+	}
+
+	private void updateSuggestIndex(List<BulkItemResultDto> results, List<Item> written) {
+		Map<String, Item> items = written.stream().collect(Collectors.toMap(Item::getItemId, Function.identity(), (first, second) -> second));
+		
+		results.forEach(result -> {
+			if (result.getStatus() == BulkItemStatus.UPDATED && items.containsKey(result.getId())) {
+				itemSuggestIndex.put(result.getId(), items.get(result.getId()).getName());
+			} else if (result.getStatus() == BulkItemStatus.DELETED && items.containsKey(result.getId())) {
+				itemSuggestIndex.remove(result.getId());
+			}
+		});
+	}
+
+	// the constraints of ItemDto, which the single item endpoints validate
+	private boolean isInvalid(String name, String description) {
+		return !validator.validate(new ItemDto(name, description)).isEmpty();
+	}
+
+	private Item createItem(ItemDto itemDto, String user, Instant now) {
+		return Item.builder()
+				.name(itemDto.getName())
+				.nameNormalized(Item.normalizeName(itemDto.getName()))
+				.description(itemDto.getDescription())
+				.createTime(now)
+				.createdBy(user)
+				.updateTime(now)
+				.build();
+	}
+
+	private BulkItemResultDto createResult(String id, BulkItemStatus status, Long version) {
+		return BulkItemResultDto.builder().id(id).status(status).version(version).build();
+	}
+
+	private record RequestedItem(BulkItemDto item, boolean repeated) {
+	}
+}
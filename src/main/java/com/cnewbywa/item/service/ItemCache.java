@@ -0,0 +1,71 @@
+package com.cnewbywa.item.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.cnewbywa.item.configuration.ItemCacheProperties;
+import com.cnewbywa.item.model.ItemChange;
+import com.cnewbywa.item.model.ItemResponseDto;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded read-through cache of single items. Concurrent misses for the same item share one load.
+ * Changes made by other instances are invalidated from the change stream.
+ */
+@Component
+public class ItemCache implements ItemChangeHandler {
+
+	public static final String CACHE_NAME = "item";
+	
+	private boolean enabled;
+	
+	private AsyncCache<String, ItemResponseDto> cache;
+	
+	public ItemCache(ItemCacheProperties properties, MeterRegistry meterRegistry) {
+		this.enabled = properties.isEnabled();
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(properties.getMaximumSize())
+				.expireAfterWrite(properties.getExpireAfterWrite())
+				.recordStats()
+				.buildAsync();
+		
+		CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+	}
+	
+	public Mono<ItemResponseDto> get(String itemId, Function<String, Mono<ItemResponseDto>> loader) {
+		if (!enabled) {
+			return loader.apply(itemId);
+		}
+		
+		// an empty load completes with null, which Caffeine does not store
+		return Mono.fromFuture(() -> cache.get(itemId, (key, executor) -> loader.apply(key).toFuture()), true);
+	}
+	
+	// the cached item without loading it, empty when it is not cached
+	public Mono<ItemResponseDto> getIfPresent(String itemId) {
+		CompletableFuture<ItemResponseDto> cached = enabled ? cache.getIfPresent(itemId) : null;
+		
+		return cached != null ? Mono.fromFuture(cached, true) : Mono.empty();
+	}
+	
+	public void invalidate(String itemId) {
+		cache.synchronous().invalidate(itemId);
+	}
+	
+	@Override
+	public void onItemChange(ItemChange change) {
+		invalidate(change.itemId());
+	}
+	
+	@Override
+	public void onReset() {
+		cache.synchronous().invalidateAll();
+	}
+}
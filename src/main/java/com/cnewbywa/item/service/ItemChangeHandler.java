@@ -0,0 +1,15 @@
+package com.cnewbywa.item.service;
+
+import com.cnewbywa.item.model.ItemChange;
+
+/**
+ * Local state derived from the items, e.g. a cache, kept up to date from the change stream by {@link ItemChangeStream}.
+ * Handlers are called one change at a time and must not block.
+ */
+public interface ItemChangeHandler {
+
+	void onItemChange(ItemChange change);
+	
+	// changes may have been missed, or the changed item is not known, so all derived state is stale
+	void onReset();
+}
@@ -0,0 +1,260 @@
+package com.cnewbywa.item.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.cnewbywa.item.configuration.ItemChangeStreamProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemChange;
+import com.cnewbywa.item.model.ItemChangeType;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Tails the change stream of the item collection and passes the changes made by any instance to the
+ * {@link ItemChangeHandler}s. The resume token of the last handled change is stored periodically, so that after
+ * a restart or a lost connection the stream continues where it left off instead of the handlers reloading everything.
+ * Tokens are stored only with a configured consumer id, which must be stable across restarts, and expire when not saved
+ * for the retention time.
+ * <p>
+ * Deleted items can only be identified when pre-images are enabled on the collection, which is done at startup, or by 
+ * mongo-init.js when the service is not allowed to. Without them a delete resets the handlers.
+ */
+@Service
+@Slf4j
+public class ItemChangeStream implements DisposableBean {
+
+	static final String TOKEN_COLLECTION = "itemChangeStreamToken";
+	
+	// the resume token is no longer in the oplog, or the stream cannot be resumed
+	private static final Set<Integer> HISTORY_LOST_CODES = Set.of(280, 286);
+	
+	// change streams are not supported by a standalone server
+	private static final int NOT_REPLICA_SET_CODE = 40573;
+	
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+	
+	private List<ItemChangeHandler> handlers;
+	
+	private ItemChangeStreamProperties properties;
+	
+	private String consumerId;
+	
+	private volatile BsonValue resumeToken;
+	
+	private volatile BsonValue savedResumeToken;
+	
+	private Disposable subscription;
+	
+	public ItemChangeStream(ReactiveMongoTemplate reactiveMongoTemplate, List<ItemChangeHandler> handlers, ItemChangeStreamProperties properties) {
+		this.reactiveMongoTemplate = reactiveMongoTemplate;
+		this.handlers = handlers;
+		this.properties = properties;
+		this.consumerId = properties.getConsumerId();
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (properties.isEnabled()) {
+			if (consumerId == null) {
+				log.info("No change stream consumer id configured, the item change stream starts from the current changes after a restart");
+			}
+			
+			subscription = enablePreImages()
+					.then(ensureTokenIndex())
+					.then(loadResumeToken())
+					.doOnNext(token -> resumeToken = token)
+					.thenMany(Flux.defer(this::changes)
+							.retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getMinBackoff())
+									.maxBackoff(properties.getMaxBackoff())
+									// the backoff starts over after the stream has delivered a change again
+									.transientErrors(true)
+									.filter(e -> !hasCode(e, Set.of(NOT_REPLICA_SET_CODE)))
+									.doBeforeRetry(signal -> onStreamError(signal.failure()))))
+					.subscribe(
+							change -> {},
+							e -> log.error("Item change stream stopped, changes made by other instances are not seen", e));
+		}
+	}
+	
+	@Scheduled(fixedDelayString = "${application.change-stream.token-save-interval:PT5S}")
+	public void saveResumeToken() {
+		BsonValue token = resumeToken;
+		
+		if (consumerId != null && token != null && !token.equals(savedResumeToken)) {
+			reactiveMongoTemplate.upsert(Query.query(Criteria.where("_id").is(consumerId)), 
+					new Update().set("token", token).set("saveTime", Instant.now()), TOKEN_COLLECTION)
+				.subscribe(
+						result -> savedResumeToken = token,
+						e -> log.warn("Saving the item change stream resume token failed", e));
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		if (subscription != null) {
+			subscription.dispose();
+		}
+	}
+	
+	private Flux<ChangeStreamEvent<Item>> changes() {
+		ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+				.filter(Aggregation.newAggregation(Aggregation.match(Criteria.where("operationType").in("insert", "update", "replace", "delete"))))
+				.fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+				.fullDocumentBeforeChangeLookup(FullDocumentBeforeChange.WHEN_AVAILABLE);
+		
+		if (resumeToken != null) {
+			options.resumeAfter(resumeToken);
+		}
+		
+		return reactiveMongoTemplate.changeStream(reactiveMongoTemplate.getCollectionName(Item.class), options.build(), Item.class)
+				.doOnNext(event -> {
+					handle(event.getOperationType(), event.getBody(), event.getBodyBeforeChange());
+					
+					resumeToken = event.getResumeToken();
+				});
+	}
+	
+	void handle(OperationType operationType, Item item, Item itemBeforeChange) {
+		String itemId = item != null ? item.getItemId() : itemBeforeChange != null ? itemBeforeChange.getItemId() : null;
+		
+		if (itemId == null) {
+			log.debug("Changed item of a {} is not known", operationType);
+			
+			reset();
+			return;
+		}
+		
+		ItemChange change = new ItemChange(getChangeType(operationType), itemId, operationType == OperationType.DELETE ? null : item);
+		
+		handlers.forEach(handler -> {
+			try {
+				handler.onItemChange(change);
+			} catch (RuntimeException e) {
+				log.warn("Item change handler {} failed", handler.getClass().getSimpleName(), e);
+			}
+		});
+	}
+	
+	void onStreamError(Throwable e) {
+		if (hasCode(e, HISTORY_LOST_CODES)) {
+			log.warn("Item change stream cannot be resumed, starting from the current changes", e);
+			
+			resumeToken = null;
+			reset();
+		} else {
+			log.warn("Item change stream failed, resuming", e);
+		}
+	}
+	
+	private void reset() {
+		handlers.forEach(handler -> {
+			try {
+				handler.onReset();
+			} catch (RuntimeException e) {
+				log.warn("Item change handler {} reset failed", handler.getClass().getSimpleName(), e);
+			}
+		});
+	}
+	
+	/*
+	 * The collection is created first if it does not exist yet, pre-images cannot be enabled otherwise.
+	 */
+	Mono<Void> enablePreImages() {
+		if (!properties.isEnablePreImages()) {
+			return Mono.empty();
+		}
+		
+		String collectionName = reactiveMongoTemplate.getCollectionName(Item.class);
+		
+		return reactiveMongoTemplate.collectionExists(collectionName)
+				.flatMap(exists -> exists ? Mono.empty() : reactiveMongoTemplate.createCollection(collectionName).then())
+				.then(reactiveMongoTemplate.executeCommand(new Document("collMod", collectionName)
+						.append("changeStreamPreAndPostImages", new Document("enabled", true))))
+				.doOnNext(result -> log.info("Pre-images enabled on the item collection"))
+				.onErrorResume(e -> {
+					log.warn("Pre-images could not be enabled on the item collection, deletes reset the item change handlers", e);
+					
+					return Mono.empty();
+				})
+				.then();
+	}
+	
+	private Mono<Void> ensureTokenIndex() {
+		if (consumerId == null) {
+			return Mono.empty();
+		}
+		
+		return reactiveMongoTemplate.indexOps(TOKEN_COLLECTION)
+				.ensureIndex(new Index("saveTime", Sort.Direction.ASC).expire(properties.getTokenRetention()))
+				.doOnNext(name -> log.info("Index {} ensured", name))
+				.onErrorResume(e -> {
+					log.warn("Resume token retention index could not be created", e);
+					
+					return Mono.empty();
+				})
+				.then();
+	}
+	
+	private Mono<BsonValue> loadResumeToken() {
+		if (consumerId == null) {
+			return Mono.empty();
+		}
+		
+		return reactiveMongoTemplate.findById(consumerId, Document.class, TOKEN_COLLECTION)
+				.mapNotNull(document -> document.get("token", Document.class))
+				.map(token -> (BsonValue) token.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()))
+				.doOnNext(token -> savedResumeToken = token)
+				.onErrorResume(e -> {
+					log.warn("Loading the item change stream resume token failed, starting from the current changes", e);
+					
+					return Mono.empty();
+				});
+	}
+	
+	private ItemChangeType getChangeType(OperationType operationType) {
+		return switch (operationType) {
+			case INSERT -> ItemChangeType.INSERT;
+			case DELETE -> ItemChangeType.DELETE;
+			default -> ItemChangeType.UPDATE;
+		};
+	}
+	
+	private boolean hasCode(Throwable e, Set<Integer> codes) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof MongoException mongoException && codes.contains(mongoException.getCode())) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
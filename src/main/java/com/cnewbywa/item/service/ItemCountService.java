@@ -0,0 +1,83 @@
+package com.cnewbywa.item.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.cnewbywa.item.repository.ItemRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the total amount of items in memory. The counter follows the writes done through this service and is
+ * periodically reconciled against the estimated document count of the collection to pick up other changes.
+ */
+@Service
+@Slf4j
+public class ItemCountService {
+
+	private static final long UNKNOWN = -1;
+	
+	private ItemRepository itemRepository;
+	
+	private final AtomicLong count = new AtomicLong(UNKNOWN);
+	private final AtomicLong changes = new AtomicLong();
+	
+	public ItemCountService(ItemRepository itemRepository) {
+		this.itemRepository = itemRepository;
+	}
+	
+	public Mono<Long> getTotalCount(boolean exact) {
+		if (exact) {
+			return reconcile(itemRepository.count());
+		}
+		
+		long current = count.get();
+		
+		return current == UNKNOWN ? reconcile(itemRepository.estimatedCount()) : Mono.just(current);
+	}
+	
+	public void increment() {
+		add(1);
+	}
+	
+	public void increment(long amount) {
+		add(amount);
+	}
+	
+	public void decrement(long amount) {
+		add(-amount);
+	}
+	
+	@Scheduled(fixedDelayString = "${application.count.reconcile-interval:PT1M}")
+	public void reconcile() {
+		reconcile(itemRepository.estimatedCount()).subscribe(
+				total -> log.debug("Item count reconciled to {}", total),
+				e -> log.warn("Item count reconciliation failed", e));
+	}
+	
+	private void add(long amount) {
+		changes.addAndGet(amount);
+		count.updateAndGet(current -> current == UNKNOWN ? UNKNOWN : Math.max(current + amount, 0));
+	}
+	
+	/*
+	 * Changes made while the count query is running are added on top of its result, so they are not lost
+	 * if the query did not see them yet.
+	 */
+	private Mono<Long> reconcile(Mono<Long> countQuery) {
+		return Mono.defer(() -> {
+			long changesBefore = changes.get();
+			
+			return countQuery.map(total -> {
+				long reconciled = Math.max(total + changes.get() - changesBefore, 0);
+				
+				count.set(reconciled);
+				
+				return reconciled;
+			});
+		});
+	}
+}
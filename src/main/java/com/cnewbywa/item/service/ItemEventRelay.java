@@ -0,0 +1,126 @@
+package com.cnewbywa.item.service;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cnewbywa.item.configuration.ItemOutboxProperties;
+import com.cnewbywa.item.model.ItemEvent;
+import com.cnewbywa.item.repository.ItemEventRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Publishes the unpublished outbox events to the {@link ItemEventSink} in batches and marks them published afterwards.
+ * The events are read by item and by the version of the item, so the events of an item are published in the order
+ * of its changes. The ids of the events cannot be used for that, they are generated by the writing instances and are
+ * not ordered across instances or concurrent writes. Only the instance holding the relay lease publishes, the lease
+ * is checked before every batch so that an instance that has lost it stops. A failed batch is retried on the next round.
+ */
+@Component
+@Slf4j
+public class ItemEventRelay {
+
+	static final String LEASE_COLLECTION = "itemEventLease";
+	
+	static final Sort PUBLISH_ORDER = Sort.by("itemId", "version");
+	
+	private static final String LEASE_ID = "relay";
+	
+	private ItemEventRepository itemEventRepository;
+	
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+	
+	private ItemEventSink itemEventSink;
+	
+	private ItemOutboxProperties properties;
+	
+	private final String instanceId = UUID.randomUUID().toString();
+	
+	private final AtomicBoolean running = new AtomicBoolean();
+	
+	public ItemEventRelay(ItemEventRepository itemEventRepository, ReactiveMongoTemplate reactiveMongoTemplate, ItemEventSink itemEventSink, 
+			ItemOutboxProperties properties) {
+		this.itemEventRepository = itemEventRepository;
+		this.reactiveMongoTemplate = reactiveMongoTemplate;
+		this.itemEventSink = itemEventSink;
+		this.properties = properties;
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (properties.isEnabled()) {
+			reactiveMongoTemplate.indexOps(ItemEvent.class).ensureIndex(new Index("publishTime", Sort.Direction.ASC).expire(properties.getRetention()))
+					.concatWith(reactiveMongoTemplate.indexOps(ItemEvent.class).ensureIndex(new Index()
+							.on("publishTime", Sort.Direction.ASC).on("itemId", Sort.Direction.ASC).on("version", Sort.Direction.ASC)))
+					.subscribe(
+							name -> log.info("Index {} ensured", name),
+							e -> log.warn("Outbox index could not be created", e));
+		}
+	}
+	
+	@Scheduled(fixedDelayString = "${application.outbox.poll-interval:PT0.5S}")
+	public void relay() {
+		if (!properties.isEnabled() || !running.compareAndSet(false, true)) {
+			return;
+		}
+		
+		relayAll()
+				.doFinally(signal -> running.set(false))
+				.subscribe(
+						count -> log.debug("{} item events published", count),
+						e -> log.warn("Publishing item events failed, retrying on the next round", e));
+	}
+	
+	// publishes batches until the outbox is empty, returns the amount of published events
+	Mono<Integer> relayAll() {
+		return relayBatch()
+				.expand(count -> count == properties.getBatchSize() ? relayBatch() : Mono.empty())
+				.reduce(0, Integer::sum)
+				.defaultIfEmpty(0);
+	}
+	
+	// empty when the lease is held by another instance
+	private Mono<Integer> relayBatch() {
+		return acquireLease()
+				.filter(Boolean::booleanValue)
+				.flatMap(acquired -> publishBatch());
+	}
+	
+	private Mono<Integer> publishBatch() {
+		return itemEventRepository.findByPublishTimeIsNull(PageRequest.of(0, properties.getBatchSize(), PUBLISH_ORDER))
+				.collectList()
+				.flatMap(events -> events.isEmpty() ? Mono.just(0) : itemEventSink.publish(events)
+						.then(itemEventRepository.markPublished(events.stream().map(ItemEvent::getId).toList(), Instant.now()))
+						.thenReturn(events.size()));
+	}
+	
+	/*
+	 * Takes or extends the lease when it has expired or is already held by this instance. When another instance holds
+	 * the lease, the upsert tries to insert a second lease document, which fails on the unique _id.
+	 */
+	private Mono<Boolean> acquireLease() {
+		Instant now = Instant.now();
+		Query query = Query.query(Criteria.where("_id").is(LEASE_ID)
+				.orOperator(Criteria.where("owner").is(instanceId), Criteria.where("expireTime").lt(now)));
+		Update update = new Update().set("owner", instanceId).set("expireTime", now.plus(properties.getLeaseTime()));
+		
+		return reactiveMongoTemplate.upsert(query, update, LEASE_COLLECTION)
+				.thenReturn(true)
+				.onErrorResume(DuplicateKeyException.class, e -> Mono.just(false));
+	}
+}
@@ -0,0 +1,17 @@
+package com.cnewbywa.item.service;
+
+import java.util.List;
+
+import com.cnewbywa.item.model.ItemEvent;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Destination of the item events relayed from the outbox. The events of an item are in the order of its versions,
+ * there is no order of the writes across items. The returned Mono completes when the sink has accepted all the events
+ * of the batch. A failed batch is published again, so the same event can be received more than once.
+ */
+public interface ItemEventSink {
+
+	Mono<Void> publish(List<ItemEvent> events);
+}
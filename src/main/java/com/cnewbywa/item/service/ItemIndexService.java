@@ -0,0 +1,222 @@
+package com.cnewbywa.item.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition.TextIndexDefinitionBuilder;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.cnewbywa.item.configuration.ItemIndexProperties;
+import com.cnewbywa.item.error.UnsupportedSortException;
+import com.cnewbywa.item.model.Item;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Declares the indexes of the item collection and checks that requested sorts can be served by them
+ * instead of sorting in memory on the database server.
+ */
+@Service
+@Slf4j
+public class ItemIndexService {
+
+	public static final Map<String, List<String>> INDEXES = Map.of(
+			"itemId_unique", List.of("itemId"),
+			"name_itemId", List.of("name", "itemId"),
+			"createTime_itemId", List.of("createTime", "itemId"),
+			"nameNormalized_itemId", List.of("nameNormalized", "itemId"));
+	
+	public static final String TEXT_INDEX = "name_description_text";
+	
+	private static final int BACKFILL_BATCH_SIZE = 500;
+	
+	private static final int MAX_WARNED_SORTS = 1_000;
+	
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+	
+	private ItemIndexProperties properties;
+	
+	private Counter unindexedSorts;
+	
+	private final Set<String> warnedSorts = ConcurrentHashMap.newKeySet();
+	
+	public ItemIndexService(ReactiveMongoTemplate reactiveMongoTemplate, ItemIndexProperties properties, MeterRegistry meterRegistry) {
+		this.reactiveMongoTemplate = reactiveMongoTemplate;
+		this.properties = properties;
+		this.unindexedSorts = Counter.builder("item.sort.unindexed")
+				.description("Listing requests with a sort that no index supports")
+				.register(meterRegistry);
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (properties.isEnsureOnStartup()) {
+			ensureIndexes().subscribe(
+					name -> log.info("Index {} ensured", name),
+					e -> log.warn("Ensuring indexes failed", e));
+		}
+		
+		backfillNormalizedNames().subscribe(
+				amount -> log.info("Normalized names of {} items backfilled", amount),
+				e -> log.warn("Backfilling normalized names failed", e));
+	}
+	
+	public Flux<String> ensureIndexes() {
+		return Flux.fromIterable(INDEXES.entrySet())
+				.concatMap(entry -> reactiveMongoTemplate.indexOps(Item.class).ensureIndex(createIndex(entry.getKey(), entry.getValue()))
+						.onErrorResume(e -> {
+							log.warn("Index {} could not be created, an index with the same keys may already exist with other options", entry.getKey(), e);
+							
+							return Mono.empty();
+						}))
+				.concatWith(reactiveMongoTemplate.indexOps(Item.class).ensureIndex(createTextIndex())
+						.onErrorResume(e -> {
+							// a collection can have only one text index
+							log.warn("Text index {} could not be created, another text index may already exist", TEXT_INDEX, e);
+							
+							return Mono.empty();
+						}));
+	}
+	
+	/*
+	 * Items written before the normalized name was introduced are not found by the prefix search until they get one.
+	 */
+	public Mono<Long> backfillNormalizedNames() {
+		Query query = Query.query(Criteria.where("nameNormalized").exists(false).and("name").ne(null));
+		
+		query.fields().include("itemId", "name");
+		
+		return reactiveMongoTemplate.find(query, Document.class, reactiveMongoTemplate.getCollectionName(Item.class))
+				.buffer(BACKFILL_BATCH_SIZE)
+				.concatMap(items -> {
+					ReactiveBulkOperations operations = reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED, Item.class);
+					
+					items.forEach(item -> operations.updateOne(Query.query(Criteria.where("_id").is(item.get("_id"))), 
+							Update.update("nameNormalized", Item.normalizeName(item.getString("name")))));
+					
+					return operations.execute().map(result -> (long) result.getModifiedCount());
+				})
+				.reduce(0L, Long::sum);
+	}
+	
+	/*
+	 * The indexes are ascending, so a sort is supported when its fields are a prefix of the keys of an index
+	 * and all of them have the same direction, in which case the index can be walked either way.
+	 */
+	public boolean isSupported(Sort sort) {
+		List<Order> orders = sort.toList();
+		
+		if (orders.isEmpty()) {
+			return true;
+		}
+		
+		Direction direction = orders.get(0).getDirection();
+		List<String> fields = orders.stream().map(Order::getProperty).toList();
+		
+		return orders.stream().allMatch(order -> order.getDirection() == direction) 
+				&& INDEXES.values().stream().anyMatch(keys -> keys.size() >= fields.size() && keys.subList(0, fields.size()).equals(fields));
+	}
+	
+	public void checkSort(Sort sort) {
+		if (isSupported(sort)) {
+			return;
+		}
+		
+		unindexedSorts.increment();
+		
+		String sortDescription = sort.stream().map(order -> order.getProperty() + "," + order.getDirection()).collect(Collectors.joining(";"));
+		
+		if (properties.isStrictSort()) {
+			throw new UnsupportedSortException("Sort is not supported by an index: " + sortDescription);
+		}
+		
+		if (warnedSorts.size() < MAX_WARNED_SORTS && warnedSorts.add(sortDescription)) {
+			log.warn("Sort {} is not supported by an index, items are sorted in memory", sortDescription);
+		}
+	}
+	
+	/*
+	 * Index usage statistics of the collection and the winning plans of the sorts the indexes are declared for.
+	 */
+	public Mono<Map<String, Object>> getDiagnostics() {
+		Mono<Map<String, Object>> usage = reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Item.class))
+				.flatMapMany(collection -> collection.aggregate(List.of(new Document("$indexStats", new Document()))))
+				.collectMap(stats -> stats.getString("name"), stats -> (Object) stats.get("accesses", Document.class).get("ops"));
+		
+		Mono<Map<String, Object>> plans = Flux.fromIterable(INDEXES.values())
+				.flatMap(keys -> explain(keys.get(0)).map(stages -> Map.entry(keys.get(0), (Object) stages)))
+				.collectMap(Map.Entry::getKey, Map.Entry::getValue);
+		
+		return Mono.zip(usage, plans).map(results -> Map.of("accesses", results.getT1(), "sortPlans", results.getT2()));
+	}
+	
+	private Mono<List<String>> explain(String field) {
+		return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Item.class))
+				.flatMap(collection -> Mono.from(collection.find().sort(new Document(field, 1)).limit(1).explain(Document.class)))
+				.map(explanation -> {
+					Document winningPlan = explanation.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+					
+					// newer servers nest the plan of the slot based engine
+					if (winningPlan.containsKey("queryPlan")) {
+						winningPlan = winningPlan.get("queryPlan", Document.class);
+					}
+					
+					return collectStages(winningPlan);
+				});
+	}
+	
+	private List<String> collectStages(Document plan) {
+		List<String> stages = new ArrayList<>();
+		Document current = plan;
+		
+		while (current != null) {
+			stages.add(current.getString("stage"));
+			current = current.get("inputStage", Document.class);
+		}
+		
+		return stages;
+	}
+	
+	private Index createIndex(String name, List<String> keys) {
+		Index index = new Index().named(name);
+		
+		keys.forEach(key -> index.on(key, Direction.ASC));
+		
+		return keys.size() == 1 ? index.unique() : index;
+	}
+	
+	/*
+	 * Matches in the name weigh more than matches in the description. No language, so words are neither stemmed
+	 * nor dropped as stop words whatever the language of the item is.
+	 */
+	private TextIndexDefinition createTextIndex() {
+		return new TextIndexDefinitionBuilder()
+				.named(TEXT_INDEX)
+				.onField("name", 10F)
+				.onField("description", 1F)
+				.withDefaultLanguage("none")
+				.build();
+	}
+}
@@ -0,0 +1,68 @@
+package com.cnewbywa.item.service;
+
+import org.springframework.stereotype.Component;
+
+import com.cnewbywa.item.error.InvalidCursorException;
+import com.cnewbywa.item.error.InvalidSearchException;
+import com.cnewbywa.item.error.ItemNotFoundException;
+import com.cnewbywa.item.error.ItemVersionConflictException;
+import com.cnewbywa.item.error.UnsupportedSortException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times the service methods from subscription to termination, tagged with the method and the outcome.
+ * The outcome tells apart the expected failures, e.g. a missing item, from errors.
+ */
+@Component
+public class ItemMetrics {
+
+	public static final String TIMER_NAME = "item.service";
+	
+	private MeterRegistry meterRegistry;
+	
+	public ItemMetrics(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+	
+	public <T> Mono<T> timed(String method, Mono<T> mono) {
+		return Mono.defer(() -> {
+			Timer.Sample sample = Timer.start(meterRegistry);
+			
+			return mono
+					.doOnSuccess(value -> stop(sample, method, value == null ? "empty" : "success"))
+					.doOnError(e -> stop(sample, method, getOutcome(e)))
+					.doOnCancel(() -> stop(sample, method, "cancelled"));
+		});
+	}
+	
+	public <T> Flux<T> timed(String method, Flux<T> flux) {
+		return Flux.defer(() -> {
+			Timer.Sample sample = Timer.start(meterRegistry);
+			
+			return flux
+					.doOnComplete(() -> stop(sample, method, "success"))
+					.doOnError(e -> stop(sample, method, getOutcome(e)))
+					.doOnCancel(() -> stop(sample, method, "cancelled"));
+		});
+	}
+	
+	private void stop(Timer.Sample sample, String method, String outcome) {
+		sample.stop(Timer.builder(TIMER_NAME).tag("method", method).tag("outcome", outcome).register(meterRegistry));
+	}
+	
+	private String getOutcome(Throwable e) {
+		if (e instanceof ItemNotFoundException) {
+			return "not_found";
+		} else if (e instanceof ItemVersionConflictException) {
+			return "version_conflict";
+		} else if (e instanceof InvalidCursorException || e instanceof InvalidSearchException || e instanceof UnsupportedSortException) {
+			return "invalid_request";
+		}
+		
+		return "error";
+	}
+}
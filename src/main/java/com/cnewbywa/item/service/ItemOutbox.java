@@ -0,0 +1,50 @@
+package com.cnewbywa.item.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.cnewbywa.item.configuration.ItemOutboxProperties;
+import com.cnewbywa.item.model.ItemEvent;
+import com.cnewbywa.item.repository.ItemEventRepository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Appends the events of a write to the outbox collection after the write has succeeded. By default the write and
+ * the events are committed together in one transaction, so a change is never without its events and a failed append
+ * leaves no write behind. Without transactions an event can be lost if the service stops between the write and
+ * the append. Publishing is left to {@link ItemEventRelay}.
+ */
+@Component
+public class ItemOutbox {
+
+	private ItemEventRepository itemEventRepository;
+	
+	private boolean enabled;
+	
+	private TransactionalOperator transactionalOperator;
+	
+	public ItemOutbox(ItemEventRepository itemEventRepository, ItemOutboxProperties properties, Optional<TransactionalOperator> transactionalOperator) {
+		this.itemEventRepository = itemEventRepository;
+		this.enabled = properties.isEnabled();
+		this.transactionalOperator = transactionalOperator.orElse(null);
+	}
+	
+	public <T> Mono<T> withEvents(Mono<T> write, Function<T, List<ItemEvent>> events) {
+		if (!enabled) {
+			return write;
+		}
+		
+		Mono<T> writeWithEvents = write.flatMap(result -> {
+			List<ItemEvent> itemEvents = events.apply(result);
+			
+			return itemEvents.isEmpty() ? Mono.just(result) : itemEventRepository.insert(itemEvents).then(Mono.just(result));
+		});
+		
+		return transactionalOperator == null ? writeWithEvents : transactionalOperator.transactional(writeWithEvents);
+	}
+}
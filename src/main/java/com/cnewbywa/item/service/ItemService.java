@@ -1,16 +1,32 @@
 package com.cnewbywa.item.service;
 
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import org.bson.Document;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import com.cnewbywa.item.error.InvalidCursorException;
+import com.cnewbywa.item.error.InvalidSearchException;
 import com.cnewbywa.item.error.ItemNotFoundException;
+import com.cnewbywa.item.error.ItemVersionConflictException;
 import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemCursor;
+import com.cnewbywa.item.model.ItemCursorResponseDto;
 import com.cnewbywa.item.model.ItemDto;
+import com.cnewbywa.item.model.ItemEvent;
+import com.cnewbywa.item.model.ItemEventType;
 import com.cnewbywa.item.model.ItemListResponseDto;
 import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.model.ItemSearchMode;
+import com.cnewbywa.item.model.ItemSuggestionDto;
+import com.cnewbywa.item.model.ItemVersion;
 import com.cnewbywa.item.model.ItemsResponseDto;
 import com.cnewbywa.item.repository.ItemRepository;
+import com.cnewbywa.item.repository.ReadYourWrites;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -18,59 +34,187 @@ import reactor.core.publisher.Mono;
 @Service
 public class ItemService {
 
+	public static final int MAX_SEARCH_LENGTH = 100;
+	
+	public static final int MAX_SUGGESTIONS = 50;
+	
+	// text results are paged with an offset, which gets slower the deeper it goes
+	public static final int MAX_TEXT_SEARCH_OFFSET = 10_000;
+	
+	private static final Sort PREFIX_SEARCH_SORT = Sort.by("nameNormalized", ItemCursor.TIE_BREAKER);
+	
+	private static final Sort TEXT_SEARCH_SORT = Sort.by(Sort.Direction.DESC, "score");
+
 	private ItemRepository itemRepository;
+	
+	private ItemCountService itemCountService;
+	
+	private ItemCache itemCache;
+	
+	private ItemBatchLoader itemBatchLoader;
+	
+	private ItemMetrics itemMetrics;
+	
+	private ItemOutbox itemOutbox;
+	
+	private ItemSuggestIndex itemSuggestIndex;
 
-	public ItemService(ItemRepository itemRepository) {
+	public ItemService(ItemRepository itemRepository, ItemCountService itemCountService, ItemCache itemCache, ItemBatchLoader itemBatchLoader, 
+			ItemMetrics itemMetrics, ItemOutbox itemOutbox, ItemSuggestIndex itemSuggestIndex) {
 		this.itemRepository = itemRepository;
+		this.itemCountService = itemCountService;
+		this.itemCache = itemCache;
+		this.itemBatchLoader = itemBatchLoader;
+		this.itemMetrics = itemMetrics;
+		this.itemOutbox = itemOutbox;
+		this.itemSuggestIndex = itemSuggestIndex;
 	}
 	
+	/*
+	 * A client that has just written may have done it through another instance, whose change has not yet invalidated
+	 * the item cached here, so the item is read again for it, see ReadYourWrites.
+	 */
 	public Mono<ItemResponseDto> getItem(String id) {
-		return itemRepository.findByItemId(id).switchIfEmpty(Mono.error(new ItemNotFoundException("Item not found"))).map(this::createResponseDto);
+		return itemMetrics.timed("getItem", Mono.deferContextual(context -> {
+					if (ReadYourWrites.isFromPrimary(context)) {
+						itemCache.invalidate(id);
+					}
+					
+					return itemCache.get(id, itemId -> itemBatchLoader.load(itemId).map(this::createResponseDto));
+				})
+				.switchIfEmpty(Mono.error(new ItemNotFoundException("Item not found"))));
+	}
+	
+	/*
+	 * The version of a cached item, or else only the version fields read from the database. Read from the database
+	 * for a client that has just written, as in getItem.
+	 */
+	public Mono<ItemVersion> getItemVersion(String id) {
+		return itemMetrics.timed("getItemVersion", Mono.deferContextual(context -> ReadYourWrites.isFromPrimary(context) ? Mono.<ItemResponseDto>empty() : itemCache.getIfPresent(id))
+				.map(item -> new ItemVersion(item.getId(), item.getVersion(), item.getUpdateTime()))
+				.switchIfEmpty(Mono.defer(() -> itemRepository.findVersionByItemId(id).map(item -> new ItemVersion(item.getItemId(), item.getVersion(), item.getUpdateTime()))))
+				.switchIfEmpty(Mono.error(new ItemNotFoundException("Item not found"))));
 	}
 	
 	public Flux<ItemListResponseDto> getItems(Sort sort) {
-		return itemRepository.findAll(sort).map(this::createListResponseDto);
+		return itemMetrics.timed("getItems", itemRepository.streamListItems(sort).map(this::createListResponseDto));
 	}
 	
-	public Mono<ItemsResponseDto> getItemsWithPaging(Pageable pageable) {
-		return itemRepository.findBy(pageable).collectList()
-				.zipWith(itemRepository.count())
-				.map(results -> new ItemsResponseDto(results.getT1().stream().map(this::createListResponseDto).toList(), results.getT1().size(), results.getT2()));
+	public Mono<ItemsResponseDto> getItemsWithPaging(Pageable pageable, boolean exactCount) {
+		return itemMetrics.timed("getItemsWithPaging", itemRepository.findListItems(pageable).collectList()
+				.zipWith(itemCountService.getTotalCount(exactCount))
+				.map(results -> new ItemsResponseDto(results.getT1().stream().map(this::createListResponseDto).toList(), results.getT1().size(), results.getT2())));
 	}
 	
-	public Mono<ItemsResponseDto> getItemsWithSkipAndTake(Pageable pageable) {
-		return itemRepository.findAll(pageable.getSort()).skip(pageable.getPageNumber() * Long.valueOf(pageable.getPageSize())).take(pageable.getPageSize()).collectList()
-				.zipWith(itemRepository.count())
-				.map(results -> new ItemsResponseDto(results.getT1().stream().map(this::createListResponseDto).toList(), results.getT1().size(), results.getT2()));
+	public Mono<ItemsResponseDto> getItemsWithSkipAndTake(Pageable pageable, boolean exactCount) {
+		return itemMetrics.timed("getItemsWithSkipAndTake", itemRepository.streamListItems(pageable.getSort()).skip(pageable.getPageNumber() * Long.valueOf(pageable.getPageSize())).take(pageable.getPageSize()).collectList()
+				.zipWith(itemCountService.getTotalCount(exactCount))
+				.map(results -> new ItemsResponseDto(results.getT1().stream().map(this::createListResponseDto).toList(), results.getT1().size(), results.getT2())));
+	}
+	
+	public Mono<ItemCursorResponseDto> getItemsWithCursor(String cursor, int pageSize, Sort sort) {
+		Sort keysetSort = ItemCursor.withTieBreaker(sort);
+		
+		return itemMetrics.timed("getItemsWithCursor", Mono.fromCallable(() -> cursor == null ? List.of() : ItemCursor.decode(cursor, keysetSort).getValues())
+				.flatMap(lastValues -> itemRepository.findByKeyset(keysetSort, lastValues.isEmpty() ? null : lastValues, pageSize + 1).collectList())
+				.map(results -> createCursorResponseDto(results, pageSize, page -> ItemCursor.of(keysetSort, page.get(page.size() - 1)))));
+	}
+	
+	public Mono<ItemCursorResponseDto> searchItems(String query, ItemSearchMode mode, String cursor, int pageSize) {
+		return itemMetrics.timed("searchItems", Mono.fromCallable(() -> checkSearchQuery(query))
+				.flatMap(text -> mode == ItemSearchMode.TEXT ? searchByText(text, cursor, pageSize) : searchByPrefix(Item.normalizeName(text), cursor, pageSize)));
+	}
+	
+	public Flux<ItemSuggestionDto> suggestItems(String query, int size) {
+		int limit = Math.min(Math.max(size, 1), MAX_SUGGESTIONS);
+		
+		return itemMetrics.timed("suggestItems", Mono.fromCallable(() -> Item.normalizeName(checkSearchQuery(query)))
+				.flatMapMany(prefix -> itemSuggestIndex.isReady() ? Flux.fromIterable(itemSuggestIndex.suggest(prefix, limit)) 
+						: itemRepository.findByNamePrefix(prefix, PREFIX_SEARCH_SORT, null, limit).map(this::createSuggestionDto)));
 	}
 	
 	public Mono<ItemResponseDto> addItem(ItemDto itemDto, String user) {
-		return itemRepository.save(createItem(itemDto, user)).map(this::createResponseDto);
+		return itemMetrics.timed("addItem", itemOutbox.withEvents(itemRepository.save(createItem(itemDto, user)), item -> List.of(ItemEvent.of(ItemEventType.CREATED, item, user)))
+				.doOnNext(item -> itemCountService.increment())
+				.doOnNext(item -> itemSuggestIndex.put(item.getItemId(), item.getName()))
+				.map(this::createResponseDto));
 	}
 	
-	public Mono<ItemResponseDto> updateItem(String id, ItemDto itemDto, String user) {
-		return itemRepository.findByItemId(id).switchIfEmpty(Mono.error(new ItemNotFoundException("Item not found"))).map(dbItem -> {
-			if (!itemDto.getName().equals(dbItem.getName())) {
-				dbItem.setName(itemDto.getName());
-			}
-			
-			if (!itemDto.getDescription().equals(dbItem.getDescription())) {
-				dbItem.setDescription(itemDto.getDescription());
-			}
-			
-			dbItem.setUpdatedBy(user);
-			
-			return dbItem;
-		}).flatMap(modifiedItem -> itemRepository.save(modifiedItem).map(this::createResponseDto));
+	public Mono<ItemResponseDto> updateItem(String id, Long expectedVersion, ItemDto itemDto, String user) {
+		return itemMetrics.timed("updateItem", itemOutbox.withEvents(itemRepository.findAndUpdate(id, expectedVersion, itemDto.getName(), itemDto.getDescription(), user), 
+						item -> List.of(ItemEvent.of(ItemEventType.UPDATED, item, user)))
+				.switchIfEmpty(Mono.defer(() -> getUpdateFailure(id, expectedVersion)))
+				.doOnNext(item -> itemSuggestIndex.put(item.getItemId(), item.getName()))
+				.map(this::createResponseDto)
+				.doOnTerminate(() -> itemCache.invalidate(id)));
 	}
 	
 	public Mono<Void> deleteItem(String id) {
-		return itemRepository.deleteByItemId(id);
+		return itemMetrics.timed("deleteItem", itemOutbox.withEvents(itemRepository.findAndDelete(id), deleted -> List.of(ItemEvent.deleted(deleted)))
+				.doOnNext(deleted -> itemCountService.decrement(1L))
+				.doOnNext(deleted -> itemSuggestIndex.remove(id))
+				.doOnTerminate(() -> itemCache.invalidate(id))
+				.then());
+	}
+	
+	private Mono<ItemCursorResponseDto> searchByPrefix(String prefix, String cursor, int limit) {
+		return Mono.fromCallable(() -> cursor == null ? List.of() : ItemCursor.decode(cursor, PREFIX_SEARCH_SORT).getValues())
+				.flatMap(lastValues -> itemRepository.findByNamePrefix(prefix, PREFIX_SEARCH_SORT, lastValues.isEmpty() ? null : lastValues, limit + 1).collectList())
+				.map(results -> createCursorResponseDto(results, limit, page -> ItemCursor.of(PREFIX_SEARCH_SORT, page.get(page.size() - 1))));
+	}
+	
+	/*
+	 * The text score cannot be used in a query filter, so the cursor of the text search contains the offset of the next page.
+	 */
+	private Mono<ItemCursorResponseDto> searchByText(String text, String cursor, int limit) {
+		return Mono.fromCallable(() -> cursor == null ? 0L : getOffset(ItemCursor.decode(cursor, TEXT_SEARCH_SORT)))
+				.flatMap(offset -> itemRepository.findByText(text, offset, limit + 1).collectList()
+						.map(results -> createCursorResponseDto(results, limit, page -> offset + page.size() < MAX_TEXT_SEARCH_OFFSET 
+								? ItemCursor.of(TEXT_SEARCH_SORT, List.<Object>of(offset + page.size())) : null)));
+	}
+	
+	private String checkSearchQuery(String query) {
+		if (query == null || query.isBlank()) {
+			throw new InvalidSearchException("Search query is empty");
+		} else if (query.length() > MAX_SEARCH_LENGTH) {
+			throw new InvalidSearchException("Search query is longer than " + MAX_SEARCH_LENGTH + " characters");
+		}
+		
+		return query.trim();
+	}
+	
+	private long getOffset(ItemCursor cursor) {
+		if (!(cursor.getValues().get(0) instanceof Number offset) || offset.longValue() < 0) {
+			throw new InvalidCursorException("Cursor does not contain an offset");
+		}
+		
+		return offset.longValue();
+	}
+	
+	/*
+	 * One item more than the page size is read to find out whether there is a next page.
+	 */
+	private ItemCursorResponseDto createCursorResponseDto(List<Document> results, int limit, Function<List<Document>, ItemCursor> nextCursor) {
+		boolean hasNext = results.size() > limit;
+		List<Document> page = hasNext ? results.subList(0, limit) : results;
+		ItemCursor cursor = hasNext ? nextCursor.apply(page) : null;
+		
+		return new ItemCursorResponseDto(page.stream().map(this::createListResponseDto).toList(), page.size(), cursor != null ? cursor.encode() : null);
+	}
+	
+	private Mono<Item> getUpdateFailure(String id, Long expectedVersion) {
+		if (expectedVersion == null) {
+			return Mono.error(new ItemNotFoundException("Item not found"));
+		}
+		
+		return itemRepository.existsByItemId(id)
+				.flatMap(exists -> Mono.error(exists ? new ItemVersionConflictException("Item version does not match") : new ItemNotFoundException("Item not found")));
 	}
 	
 	private Item createItem(ItemDto itemDto, String user) {
 		return Item.builder()
 				.name(itemDto.getName())
+				.nameNormalized(Item.normalizeName(itemDto.getName()))
 				.description(itemDto.getDescription())
 				.createdBy(user)
 				.build();
@@ -85,14 +229,21 @@ public class ItemService {
 				.createdBy(item.getCreatedBy())
 				.updateTime(item.getUpdateTime())
 				.updatedBy(item.getUpdatedBy())
+				.version(item.getVersion())
 				.build();
 	}
 	
-	private ItemListResponseDto createListResponseDto(Item item) {
+	private ItemSuggestionDto createSuggestionDto(Document item) {
+		return new ItemSuggestionDto(item.getString("itemId"), item.getString("name"));
+	}
+	
+	private ItemListResponseDto createListResponseDto(Document item) {
+		Date createTime = item.getDate("createTime");
+		
 		return ItemListResponseDto.builder()
-				.id(item.getItemId())
-				.name(item.getName())
-				.createTime(item.getCreateTime())
+				.id(item.getString("itemId"))
+				.name(item.getString("name"))
+				.createTime(createTime != null ? createTime.toInstant() : null)
 				.build();
 	}
 }
@@ -0,0 +1,220 @@
+package com.cnewbywa.item.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.cnewbywa.item.configuration.ItemSuggestProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemChange;
+import com.cnewbywa.item.model.ItemChangeType;
+import com.cnewbywa.item.model.ItemSuggestionDto;
+import com.cnewbywa.item.repository.ItemRepository;
+import com.cnewbywa.item.repository.ReadYourWrites;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Names of all items in memory, sorted by the normalized name, for autocomplete without a database round-trip.
+ * Loaded from a scan of the list items at startup and kept current from the writes of this instance and from
+ * the change stream. Not ready while loading, or when there are more items than the configured maximum,
+ * in which case suggestions are read from the database instead. Only one load runs at a time, a reset
+ * cancels the running load and starts a new one.
+ */
+@Component
+@Slf4j
+public class ItemSuggestIndex implements ItemChangeHandler {
+
+	// sorts before any other character, so the names that are a prefix of others come first
+	private static final char SEPARATOR = '\u0000';
+	
+	private ItemRepository itemRepository;
+	
+	private ItemSuggestProperties properties;
+	
+	// normalized name, separator and itemId to the name
+	private final ConcurrentSkipListMap<String, String> entries = new ConcurrentSkipListMap<>();
+	
+	// itemId to the key of the item in the entries, for moving and removing items
+	private final Map<String, String> keys = new ConcurrentHashMap<>();
+	
+	private final AtomicBoolean ready = new AtomicBoolean();
+	
+	private final AtomicBoolean overflowed = new AtomicBoolean();
+	
+	// incremented by every load, a load that is no longer the latest stops and does not make the index ready
+	private final AtomicLong generation = new AtomicLong();
+	
+	// items put or removed while a load runs, the scanned entries of those are older than the change
+	private final Set<String> changedWhileLoading = ConcurrentHashMap.newKeySet();
+	
+	private volatile boolean loadRunning;
+	
+	private Disposable loading;
+	
+	public ItemSuggestIndex(ItemRepository itemRepository, ItemSuggestProperties properties, MeterRegistry meterRegistry) {
+		this.itemRepository = itemRepository;
+		this.properties = properties;
+		
+		Gauge.builder("item.suggest.entries", keys, Map::size)
+				.description("Items in the in-memory suggest index")
+				.register(meterRegistry);
+		Gauge.builder("item.suggest.ready", ready, value -> value.get() ? 1 : 0)
+				.description("Whether suggestions are served from the in-memory index")
+				.register(meterRegistry);
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (properties.isEnabled()) {
+			startLoad("loaded");
+		}
+	}
+	
+	public boolean isReady() {
+		return ready.get();
+	}
+	
+	public Mono<Long> load() {
+		return Mono.defer(() -> load(generation.incrementAndGet()));
+	}
+	
+	/*
+	 * Reads all list items from the primary, the members the lists are otherwise read from may not have the writes
+	 * the change stream has already passed. Changes made while loading are applied as they come and win over
+	 * the scanned entries of the same items.
+	 */
+	private Mono<Long> load(long loadGeneration) {
+		changedWhileLoading.clear();
+		loadRunning = true;
+		
+		return ReadYourWrites.fromPrimary(itemRepository.streamListItems(Sort.unsorted()))
+				.takeWhile(item -> !overflowed.get() && generation.get() == loadGeneration)
+				.filter(item -> !changedWhileLoading.contains(item.getString("itemId")))
+				.doOnNext(item -> index(item.getString("itemId"), item.getString("name")))
+				.count()
+				.doOnSuccess(amount -> {
+					if (generation.get() == loadGeneration) {
+						ready.set(!overflowed.get());
+					}
+				})
+				.doFinally(signal -> {
+					if (generation.get() == loadGeneration) {
+						loadRunning = false;
+						changedWhileLoading.clear();
+					}
+				});
+	}
+	
+	private synchronized void startLoad(String action) {
+		if (loading != null) {
+			loading.dispose();
+		}
+		
+		long loadGeneration = generation.incrementAndGet();
+		
+		ready.set(false);
+		entries.clear();
+		keys.clear();
+		
+		loading = load(loadGeneration).subscribe(
+				amount -> log.info("Suggest index {} with {} items", action, amount),
+				e -> log.warn("Loading the suggest index failed, suggestions are read from the database", e));
+	}
+	
+	// the prefix is normalized like the names, the suggestions are in the order of the normalized names
+	public List<ItemSuggestionDto> suggest(String prefix, int limit) {
+		List<ItemSuggestionDto> suggestions = new ArrayList<>(limit);
+		
+		for (Map.Entry<String, String> entry : entries.tailMap(prefix).entrySet()) {
+			String key = entry.getKey();
+			
+			if (suggestions.size() >= limit || !key.startsWith(prefix)) {
+				break;
+			}
+			
+			suggestions.add(new ItemSuggestionDto(key.substring(key.lastIndexOf(SEPARATOR) + 1), entry.getValue()));
+		}
+		
+		return suggestions;
+	}
+	
+	public void put(String itemId, String name) {
+		if (loadRunning && itemId != null) {
+			changedWhileLoading.add(itemId);
+		}
+		
+		index(itemId, name);
+	}
+	
+	public void remove(String itemId) {
+		if (loadRunning && itemId != null) {
+			changedWhileLoading.add(itemId);
+		}
+		
+		keys.computeIfPresent(itemId, (id, key) -> {
+			entries.remove(key);
+			
+			return null;
+		});
+	}
+	
+	private void index(String itemId, String name) {
+		if (!properties.isEnabled() || overflowed.get() || itemId == null || name == null) {
+			return;
+		}
+		
+		String key = Item.normalizeName(name) + SEPARATOR + itemId;
+		
+		// serializes the changes of one item
+		keys.compute(itemId, (id, previous) -> {
+			if (previous != null && !previous.equals(key)) {
+				entries.remove(previous);
+			}
+			
+			entries.put(key, name);
+			
+			return key;
+		});
+		
+		if (keys.size() > properties.getMaxEntries() && overflowed.compareAndSet(false, true)) {
+			log.warn("More than {} items, the suggest index is dropped and suggestions are read from the database", properties.getMaxEntries());
+			
+			ready.set(false);
+			entries.clear();
+			keys.clear();
+		}
+	}
+	
+	@Override
+	public void onItemChange(ItemChange change) {
+		if (change.type() == ItemChangeType.DELETE) {
+			remove(change.itemId());
+		} else if (change.item() != null) {
+			put(change.itemId(), change.item().getName());
+		}
+	}
+	
+	@Override
+	public void onReset() {
+		if (!properties.isEnabled() || overflowed.get()) {
+			return;
+		}
+		
+		startLoad("reloaded");
+	}
+}
@@ -0,0 +1,90 @@
+package com.cnewbywa.item.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class CachingJwtDecoderTest {
+
+	@Mock
+	private ReactiveJwtDecoder delegate;
+	
+	private SimpleMeterRegistry meterRegistry;
+	
+	private CachingJwtDecoder decoder;
+	
+	@BeforeEach
+	void setupEach() {
+		meterRegistry = new SimpleMeterRegistry();
+		decoder = new CachingJwtDecoder(delegate, 100, meterRegistry);
+	}
+	
+	@Test
+	void testDecode_Cached() {
+		Jwt jwt = createJwt("token", Instant.now().plusSeconds(300));
+		
+		when(delegate.decode("token")).thenReturn(Mono.just(jwt));
+		
+		StepVerifier.create(decoder.decode("token")).expectNext(jwt).verifyComplete();
+		StepVerifier.create(decoder.decode("token")).expectNext(jwt).verifyComplete();
+		
+		verify(delegate, times(1)).decode("token");
+		
+		assertEquals(1, getCount("miss", "success"));
+		assertEquals(1, getCount("hit", "success"));
+	}
+	
+	@Test
+	void testDecode_Expired() {
+		Jwt jwt = createJwt("token", Instant.now().minusSeconds(1));
+		
+		when(delegate.decode("token")).thenReturn(Mono.just(jwt));
+		
+		decoder.decode("token").block();
+		decoder.decode("token").block();
+		
+		verify(delegate, times(2)).decode("token");
+	}
+	
+	@Test
+	void testDecode_Invalid() {
+		when(delegate.decode("token")).thenReturn(Mono.error(new BadJwtException("Invalid signature")));
+		
+		StepVerifier.create(decoder.decode("token")).verifyError(BadJwtException.class);
+		StepVerifier.create(decoder.decode("token")).verifyError(BadJwtException.class);
+		
+		verify(delegate, times(2)).decode("token");
+		
+		assertEquals(2, getCount("miss", "invalid"));
+	}
+	
+	private long getCount(String cache, String outcome) {
+		return meterRegistry.get(CachingJwtDecoder.TIMER_NAME).tag("cache", cache).tag("outcome", outcome).timer().count();
+	}
+	
+	private Jwt createJwt(String token, Instant expiresAt) {
+		return Jwt.withTokenValue(token)
+				.header("alg", "RS256")
+				.subject("test-user-id")
+				.issuedAt(expiresAt.minusSeconds(600))
+				.expiresAt(expiresAt)
+				.build();
+	}
+}
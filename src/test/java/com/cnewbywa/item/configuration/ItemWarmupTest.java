@@ -0,0 +1,100 @@
+package com.cnewbywa.item.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.RequestMappingInfo;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+
+import com.cnewbywa.item.model.ItemDto;
+import com.cnewbywa.item.model.ItemListResponseDto;
+import com.cnewbywa.item.model.ItemResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ItemWarmupTest {
+
+	@Mock
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+	
+	@Mock
+	private JwkSetSource jwkSetSource;
+	
+	@Mock
+	private RequestMappingHandlerMapping handlerMapping;
+	
+	private ItemWarmupProperties properties;
+	
+	private ItemWarmup itemWarmup;
+	
+	@BeforeEach
+	void setupEach() {
+		properties = new ItemWarmupProperties();
+		properties.setMongoConnections(3);
+		
+		itemWarmup = new ItemWarmup(properties, reactiveMongoTemplate, jwkSetSource, new ObjectMapper(), handlerMapping, new SimpleMeterRegistry());
+	}
+	
+	@Test
+	void testWarmMongoPool() {
+		when(reactiveMongoTemplate.executeCommand("{ ping: 1 }")).thenReturn(Mono.just(new Document("ok", 1)));
+		
+		StepVerifier.create(itemWarmup.warmMongoPool()).verifyComplete();
+		
+		verify(reactiveMongoTemplate, times(3)).executeCommand("{ ping: 1 }");
+	}
+	
+	@Test
+	void testWarmSigningKeys_PublicKey() {
+		when(jwkSetSource.isEnabled()).thenReturn(false);
+		
+		StepVerifier.create(itemWarmup.warmSigningKeys()).verifyComplete();
+		
+		verify(jwkSetSource, never()).refresh();
+	}
+	
+	@Test
+	void testGetModelTypes() throws NoSuchMethodException {
+		TestController controller = new TestController();
+		
+		when(handlerMapping.getHandlerMethods()).thenReturn(Map.of(
+				RequestMappingInfo.paths("/item").build(), new HandlerMethod(controller, TestController.class.getMethod("getItem", String.class)),
+				RequestMappingInfo.paths("/items").build(), new HandlerMethod(controller, TestController.class.getMethod("addItems", Flux.class))));
+		
+		Set<Class<?>> types = itemWarmup.getModelTypes();
+		
+		assertEquals(Set.of(ItemResponseDto.class, ItemListResponseDto.class, ItemDto.class), types);
+	}
+	
+	static class TestController {
+		
+		public Mono<ResponseEntity<ItemResponseDto>> getItem(String id) {
+			return Mono.empty();
+		}
+		
+		public Flux<ItemListResponseDto> addItems(@RequestBody Flux<ItemDto> items) {
+			return Flux.empty();
+		}
+	}
+}
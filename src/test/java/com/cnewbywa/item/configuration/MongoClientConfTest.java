@@ -0,0 +1,80 @@
+package com.cnewbywa.item.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+class MongoClientConfTest {
+
+	private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+	
+	@Test
+	void testCustomizer() {
+		ItemMongoProperties properties = new ItemMongoProperties();
+		
+		properties.getPool().setMaxSize(20);
+		properties.getPool().setMaxWaitTime(Duration.ofSeconds(2));
+		properties.getSocket().setReadTimeout(Duration.ofSeconds(30));
+		properties.setCompressors(List.of("zlib"));
+		
+		MongoClientSettings.Builder builder = MongoClientSettings.builder().applyConnectionString(new ConnectionString("mongodb://localhost/items?minPoolSize=5&maxPoolSize=50"));
+		
+		new MongoClientConf().mongoClientSettingsCustomizer(properties).customize(builder);
+		
+		MongoClientSettings settings = builder.build();
+		
+		assertEquals(20, settings.getConnectionPoolSettings().getMaxSize());
+		// not given, the connection string option is kept
+		assertEquals(5, settings.getConnectionPoolSettings().getMinSize());
+		assertEquals(2000, settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+		assertEquals(30_000, settings.getSocketSettings().getReadTimeout(TimeUnit.MILLISECONDS));
+		assertEquals("zlib", settings.getCompressorList().get(0).getName());
+	}
+	
+	@Test
+	void testValidation() {
+		ItemMongoProperties properties = new ItemMongoProperties();
+		
+		assertTrue(validator.validate(properties).isEmpty());
+		
+		properties.getPool().setMaxSize(10);
+		properties.getPool().setMinSize(20);
+		properties.setCompressors(List.of("lz4"));
+		properties.setListMaxStaleness(Duration.ofSeconds(10));
+		
+		// min size above max size, unknown compressor, too short staleness and staleness with the primary
+		assertEquals(4, validator.validate(properties).size());
+	}
+	
+	@Test
+	void testCreateListReadPreference() {
+		ItemMongoProperties properties = new ItemMongoProperties();
+		
+		assertEquals(ReadPreference.primary(), properties.createListReadPreference());
+		
+		properties.setListReadPreference("secondaryPreferred");
+		properties.setListMaxStaleness(Duration.ofSeconds(120));
+		
+		ReadPreference readPreference = properties.createListReadPreference();
+		
+		assertEquals("secondaryPreferred", readPreference.getName());
+		assertEquals(120, readPreference.getMaxStaleness(TimeUnit.SECONDS));
+		
+		properties.setListMaxStaleness(null);
+		
+		assertNull(properties.createListReadPreference().getMaxStaleness(TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,109 @@
+package com.cnewbywa.item.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.cnewbywa.item.configuration.ItemAdmissionProperties;
+import com.cnewbywa.item.configuration.MongoPoolMonitor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class ItemAdmissionFilterTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	
+	private MongoPoolMonitor mongoPoolMonitor;
+	
+	private ItemAdmissionFilter filter;
+	
+	@BeforeEach
+	void setupEach() {
+		ItemAdmissionProperties properties = new ItemAdmissionProperties();
+		
+		properties.setRetryAfter(Duration.ofSeconds(2));
+		properties.setMaxMongoWaitQueue(1);
+		properties.setEndpoints(List.of(createEndpoint("/items", "GET", 1), createEndpoint("/items/**", null, 10)));
+		
+		meterRegistry = new SimpleMeterRegistry();
+		mongoPoolMonitor = new MongoPoolMonitor();
+		filter = new ItemAdmissionFilter(properties, mongoPoolMonitor, meterRegistry);
+	}
+	
+	@Test
+	void testFilter_ConcurrencyLimit() {
+		Sinks.Empty<Void> first = Sinks.empty();
+		
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/items")), exchange -> first.asMono()).subscribe();
+		
+		assertEquals(1.0, meterRegistry.get("item.admission.inflight").tag("endpoint", "GET /items").gauge().value());
+		
+		MockServerWebExchange rejected = MockServerWebExchange.from(MockServerHttpRequest.get("/items"));
+		
+		StepVerifier.create(filter.filter(rejected, exchange -> Mono.empty())).verifyComplete();
+		
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+		assertEquals("2", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		assertEquals(1.0, meterRegistry.get("item.admission.rejected").tag("endpoint", "GET /items").tag("reason", "concurrency").counter().count());
+		
+		// other endpoints have their own limits
+		MockServerWebExchange other = MockServerWebExchange.from(MockServerHttpRequest.get("/items/paging"));
+		
+		StepVerifier.create(filter.filter(other, exchange -> Mono.empty())).verifyComplete();
+		
+		assertNull(other.getResponse().getStatusCode());
+		
+		first.tryEmitEmpty();
+		
+		assertEquals(0.0, meterRegistry.get("item.admission.inflight").tag("endpoint", "GET /items").gauge().value());
+		
+		MockServerWebExchange admitted = MockServerWebExchange.from(MockServerHttpRequest.get("/items"));
+		
+		StepVerifier.create(filter.filter(admitted, exchange -> Mono.empty())).verifyComplete();
+		
+		assertNull(admitted.getResponse().getStatusCode());
+	}
+	
+	@Test
+	void testFilter_MongoPoolWaitQueue() {
+		// the monitor only counts the events
+		mongoPoolMonitor.connectionCheckOutStarted(null);
+		mongoPoolMonitor.connectionCheckOutStarted(null);
+		
+		MockServerWebExchange rejected = MockServerWebExchange.from(MockServerHttpRequest.get("/items/paging"));
+		
+		StepVerifier.create(filter.filter(rejected, exchange -> Mono.empty())).verifyComplete();
+		
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+		assertEquals(1.0, meterRegistry.get("item.admission.rejected").tag("endpoint", "/items/**").tag("reason", "mongo_pool").counter().count());
+		
+		// requests of no limited endpoint are not rejected
+		MockServerWebExchange unlimited = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health"));
+		
+		StepVerifier.create(filter.filter(unlimited, exchange -> Mono.empty())).verifyComplete();
+		
+		assertNull(unlimited.getResponse().getStatusCode());
+	}
+	
+	private ItemAdmissionProperties.Endpoint createEndpoint(String path, String method, int maxConcurrent) {
+		ItemAdmissionProperties.Endpoint endpoint = new ItemAdmissionProperties.Endpoint();
+		
+		endpoint.setPath(path);
+		endpoint.setMethod(method);
+		endpoint.setMaxConcurrent(maxConcurrent);
+		
+		return endpoint;
+	}
+}
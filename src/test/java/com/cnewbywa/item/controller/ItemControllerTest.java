@@ -1,7 +1,15 @@
 package com.cnewbywa.item.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -15,18 +23,38 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 
+import com.cnewbywa.item.configuration.ItemListingProperties;
+import com.cnewbywa.item.error.InvalidPageException;
+import com.cnewbywa.item.error.InvalidSearchException;
+import com.cnewbywa.item.error.InvalidVersionException;
+import com.cnewbywa.item.error.PageSizeExceededException;
+import com.cnewbywa.item.model.BulkItemDto;
+import com.cnewbywa.item.model.BulkItemResultDto;
+import com.cnewbywa.item.model.BulkItemStatus;
+import com.cnewbywa.item.model.ItemCursorResponseDto;
 import com.cnewbywa.item.model.ItemDto;
 import com.cnewbywa.item.model.ItemListResponseDto;
 import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.model.ItemSearchMode;
+import com.cnewbywa.item.model.ItemSuggestionDto;
+import com.cnewbywa.item.model.ItemVersion;
 import com.cnewbywa.item.model.ItemsResponseDto;
+import com.cnewbywa.item.service.ItemBulkService;
+import com.cnewbywa.item.service.ItemIndexService;
 import com.cnewbywa.item.service.ItemService;
 
 import reactor.core.publisher.Flux;
@@ -39,6 +67,15 @@ class ItemControllerTest {
 	@Mock
 	private ItemService itemService;
 	
+	@Mock
+	private ItemBulkService itemBulkService;
+	
+	@Mock
+	private ItemIndexService itemIndexService;
+	
+	@Spy
+	private ItemListingProperties listingProperties = new ItemListingProperties();
+	
 	@InjectMocks
 	private ItemController itemController;
 	
@@ -51,16 +88,58 @@ class ItemControllerTest {
 		
 		when(itemService.getItem(item1Id)).thenReturn(Mono.just(response));
 		
-		Mono<ItemResponseDto> responseMono = itemController.getItem(item1Id);
+		Mono<ResponseEntity<ItemResponseDto>> responseMono = itemController.getItem(item1Id, MockServerWebExchange.from(MockServerHttpRequest.get("/items/" + item1Id)));
 		
 		assertNotNull(responseMono);
 		
-		ItemResponseDto responseDto = responseMono.block();
+		ResponseEntity<ItemResponseDto> responseEntity = responseMono.block();
+		ItemResponseDto responseDto = responseEntity.getBody();
 		
 		assertNotNull(responseDto);
 		assertResponseDto(response, responseDto);
+		assertEquals("\"0\"", responseEntity.getHeaders().getETag());
 		
 		verify(itemService).getItem(item1Id);
+		verify(itemService, never()).getItemVersion(item1Id);
+	}
+	
+	@Test
+	void testGetItem_NotModified() {
+		Instant updateTime = Instant.parse("2023-06-01T10:15:30Z");
+		
+		when(itemService.getItemVersion(item1Id)).thenReturn(Mono.just(new ItemVersion(item1Id, 3, updateTime)));
+		
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/items/" + item1Id).ifNoneMatch("\"3\""));
+		
+		ResponseEntity<ItemResponseDto> responseEntity = itemController.getItem(item1Id, exchange).block();
+		
+		assertNotNull(responseEntity);
+		assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+		assertNull(responseEntity.getBody());
+		
+		exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/items/" + item1Id).ifModifiedSince(updateTime.toEpochMilli()));
+		
+		assertEquals(HttpStatus.NOT_MODIFIED, itemController.getItem(item1Id, exchange).block().getStatusCode());
+		
+		verify(itemService, never()).getItem(item1Id);
+	}
+	
+	@Test
+	void testGetItem_Modified() {
+		ItemResponseDto response = ItemResponseDto.builder().id(item1Id).name("Item 1").version(4).updateTime(Instant.now()).build();
+		
+		when(itemService.getItemVersion(item1Id)).thenReturn(Mono.just(new ItemVersion(item1Id, 4, response.getUpdateTime())));
+		when(itemService.getItem(item1Id)).thenReturn(Mono.just(response));
+		
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/items/" + item1Id).ifNoneMatch("\"3\""));
+		
+		ResponseEntity<ItemResponseDto> responseEntity = itemController.getItem(item1Id, exchange).block();
+		
+		assertNotNull(responseEntity);
+		assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+		assertEquals("\"4\"", responseEntity.getHeaders().getETag());
+		assertEquals(response.getUpdateTime().toEpochMilli() / 1000 * 1000, responseEntity.getHeaders().getLastModified());
+		assertResponseDto(response, responseEntity.getBody());
 	}
 	
 	@Test
@@ -74,7 +153,7 @@ class ItemControllerTest {
 		
 		String[] sortOrder = new String[] { "name,asc" };
 		
-		Flux<ItemListResponseDto> responses = itemController.getItems(sortOrder);
+		Flux<ItemListResponseDto> responses = itemController.getItems(sortOrder, MockServerWebExchange.from(MockServerHttpRequest.get("/items")));
 		
 		StepVerifier.create(responses)
 			.consumeNextWith(item -> {
@@ -86,6 +165,28 @@ class ItemControllerTest {
 			.verifyComplete();
 	
 		verify(itemService).getItems(sort);
+		verify(itemIndexService).checkSort(sort);
+	}
+	
+	@Test
+	void testGetItems_TooManyForArray() {
+		ItemListResponseDto itemListResponseDto1 = ItemListResponseDto.builder().id(item1Id).name("Item 21").createTime(Instant.now()).build();
+		ItemListResponseDto itemListResponseDto2 = ItemListResponseDto.builder().id(item2Id).name("Item 22").createTime(Instant.now()).build();
+		
+		Sort sort = Sort.by(new Sort.Order(Sort.Direction.ASC, "name"));
+		
+		listingProperties.setMaxUnstreamedItems(1);
+		
+		when(itemService.getItems(sort)).thenReturn(Flux.just(itemListResponseDto1, itemListResponseDto2));
+		
+		String[] sortOrder = new String[] { "name,asc" };
+		
+		StepVerifier.create(itemController.getItems(sortOrder, MockServerWebExchange.from(MockServerHttpRequest.get("/items").accept(MediaType.APPLICATION_JSON))))
+			.verifyError(PageSizeExceededException.class);
+		
+		StepVerifier.create(itemController.getItems(sortOrder, MockServerWebExchange.from(MockServerHttpRequest.get("/items").accept(MediaType.APPLICATION_NDJSON))))
+			.expectNextCount(2)
+			.verifyComplete();
 	}
 	
 	@Test
@@ -101,17 +202,19 @@ class ItemControllerTest {
 		
 		Pageable pageable = PageRequest.of(0, 2, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
 		
-		when(itemService.getItemsWithPaging(pageable)).thenReturn(Mono.just(itemsResponseDto));
+		when(itemService.getItemsWithPaging(pageable, false)).thenReturn(Mono.just(itemsResponseDto));
 		
 		String[] sortOrder = new String[] { "name,asc" };
 		
-		Mono<ItemsResponseDto> responseMono = itemController.getItemsWithPaging(0, 2, sortOrder);
+		Mono<ResponseEntity<ItemsResponseDto>> responseMono = itemController.getItemsWithPaging(0, 2, sortOrder, false);
 		
 		assertNotNull(responseMono);
 		
-		ItemsResponseDto responseDto = responseMono.block();
+		ResponseEntity<ItemsResponseDto> responseEntity = responseMono.block();
+		ItemsResponseDto responseDto = responseEntity.getBody();
 		
 		assertNotNull(responseDto);
+		assertTrue(responseEntity.getHeaders().getETag().startsWith("W/\""));
 		assertEquals(2L, responseDto.getAmount());
 		assertEquals(10L, responseDto.getTotalAmount());
 		assertNotNull(responseDto.getItems());
@@ -119,7 +222,7 @@ class ItemControllerTest {
 		assertListResponseDto(responseDto.getItems().get(0), itemListResponseDto1);
 		assertListResponseDto(responseDto.getItems().get(1), itemListResponseDto2);
 		
-		verify(itemService).getItemsWithPaging(pageable);
+		verify(itemService).getItemsWithPaging(pageable, false);
 	}
 	
 	@Test
@@ -135,17 +238,19 @@ class ItemControllerTest {
 		
 		Pageable pageable = PageRequest.of(0, 2, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
 		
-		when(itemService.getItemsWithSkipAndTake(pageable)).thenReturn(Mono.just(itemsResponseDto));
+		when(itemService.getItemsWithSkipAndTake(pageable, false)).thenReturn(Mono.just(itemsResponseDto));
 		
 		String[] sortOrder = new String[] { "name,asc" };
 		
-		Mono<ItemsResponseDto> responseMono = itemController.getItemsWithSkipAndTake(0, 2, sortOrder);
+		Mono<ResponseEntity<ItemsResponseDto>> responseMono = itemController.getItemsWithSkipAndTake(0, 2, sortOrder, false);
 		
 		assertNotNull(responseMono);
 		
-		ItemsResponseDto responseDto = responseMono.block();
+		ResponseEntity<ItemsResponseDto> responseEntity = responseMono.block();
+		ItemsResponseDto responseDto = responseEntity.getBody();
 		
 		assertNotNull(responseDto);
+		assertTrue(responseEntity.getHeaders().getETag().startsWith("W/\""));
 		assertEquals(2L, responseDto.getAmount());
 		assertEquals(10L, responseDto.getTotalAmount());
 		assertNotNull(responseDto.getItems());
@@ -153,7 +258,104 @@ class ItemControllerTest {
 		assertListResponseDto(responseDto.getItems().get(0), itemListResponseDto1);
 		assertListResponseDto(responseDto.getItems().get(1), itemListResponseDto2);
 		
-		verify(itemService).getItemsWithSkipAndTake(pageable);
+		verify(itemService).getItemsWithSkipAndTake(pageable, false);
+	}
+	
+	@Test
+	void testGetItemsWithCursor() {
+		ItemListResponseDto itemListResponseDto1 = ItemListResponseDto.builder().id(item1Id).name("Item 21").createTime(Instant.now()).build();
+		
+		ItemCursorResponseDto itemCursorResponseDto = ItemCursorResponseDto.builder()
+				.amount(1)
+				.items(List.of(itemListResponseDto1))
+				.nextCursor("next")
+				.build();
+		
+		Sort sort = Sort.by(new Sort.Order(Sort.Direction.ASC, "name"));
+		
+		when(itemService.getItemsWithCursor("current", 1, sort)).thenReturn(Mono.just(itemCursorResponseDto));
+		
+		ResponseEntity<ItemCursorResponseDto> responseEntity = itemController.getItemsWithCursor("current", 1, new String[] { "name,asc" }).block();
+		ItemCursorResponseDto responseDto = responseEntity.getBody();
+		String eTag = responseEntity.getHeaders().getETag();
+		
+		assertNotNull(responseDto);
+		assertNotNull(eTag);
+		
+		// the same page has the same tag, a renamed item changes it
+		assertEquals(eTag, itemController.getItemsWithCursor("current", 1, new String[] { "name,asc" }).block().getHeaders().getETag());
+		
+		itemListResponseDto1.setName("Item 21 renamed");
+		
+		assertNotEquals(eTag, itemController.getItemsWithCursor("current", 1, new String[] { "name,asc" }).block().getHeaders().getETag());
+		assertEquals(1L, responseDto.getAmount());
+		assertEquals("next", responseDto.getNextCursor());
+		assertListResponseDto(responseDto.getItems().get(0), itemListResponseDto1);
+		
+		verify(itemService, times(3)).getItemsWithCursor("current", 1, sort);
+	}
+	
+	@Test
+	void testSearchItems() {
+		ItemListResponseDto itemListResponseDto1 = ItemListResponseDto.builder().id(item1Id).name("Item 21").createTime(Instant.now()).build();
+		
+		ItemCursorResponseDto itemCursorResponseDto = ItemCursorResponseDto.builder()
+				.amount(1)
+				.items(List.of(itemListResponseDto1))
+				.build();
+		
+		when(itemService.searchItems("item", ItemSearchMode.TEXT, null, 20)).thenReturn(Mono.just(itemCursorResponseDto));
+		
+		ItemCursorResponseDto responseDto = itemController.searchItems("item", "text", null, 20).block();
+		
+		assertNotNull(responseDto);
+		assertEquals(1L, responseDto.getAmount());
+		assertListResponseDto(responseDto.getItems().get(0), itemListResponseDto1);
+		
+		assertThrows(InvalidSearchException.class, () -> itemController.searchItems("item", "fuzzy", null, 20));
+	}
+	
+	@Test
+	void testPageSizeExceeded() {
+		String[] sortOrder = new String[] { "name,asc" };
+		
+		listingProperties.setMaxPageSize(100);
+		
+		assertThrows(PageSizeExceededException.class, () -> itemController.getItemsWithPaging(0, 101, sortOrder, false));
+		assertThrows(PageSizeExceededException.class, () -> itemController.getItemsWithSkipAndTake(0, 101, sortOrder, false));
+		assertThrows(PageSizeExceededException.class, () -> itemController.getItemsWithCursor(null, 101, sortOrder));
+		assertThrows(PageSizeExceededException.class, () -> itemController.searchItems("item", "prefix", null, 101));
+		
+		verify(itemService, never()).getItemsWithPaging(any(), anyBoolean());
+	}
+	
+	@Test
+	void testInvalidPage() {
+		String[] sortOrder = new String[] { "name,asc" };
+		
+		assertThrows(InvalidPageException.class, () -> itemController.getItemsWithPaging(0, 0, sortOrder, false));
+		assertThrows(InvalidPageException.class, () -> itemController.getItemsWithPaging(-1, 10, sortOrder, false));
+		assertThrows(InvalidPageException.class, () -> itemController.getItemsWithSkipAndTake(0, -5, sortOrder, false));
+		assertThrows(InvalidPageException.class, () -> itemController.getItemsWithSkipAndTake(-1, 10, sortOrder, false));
+		assertThrows(InvalidPageException.class, () -> itemController.getItemsWithCursor(null, 0, sortOrder));
+		assertThrows(InvalidPageException.class, () -> itemController.searchItems("item", "prefix", null, 0));
+		
+		verify(itemService, never()).getItemsWithPaging(any(), anyBoolean());
+		verify(itemService, never()).getItemsWithSkipAndTake(any(), anyBoolean());
+	}
+	
+	@Test
+	void testSuggestItems() {
+		ItemSuggestionDto suggestion = new ItemSuggestionDto(item1Id, "Item 1");
+		
+		when(itemService.suggestItems("ite", 10)).thenReturn(Flux.just(suggestion));
+		
+		StepVerifier.create(itemController.suggestItems("ite", 10))
+			.assertNext(dto -> {
+				assertEquals(item1Id, dto.getId());
+				assertEquals("Item 1", dto.getName());
+			})
+			.verifyComplete();
 	}
 	
 	@Test
@@ -182,9 +384,9 @@ class ItemControllerTest {
 		
 		ItemDto input = new ItemDto("Item 2", "New description for item 2");
 		
-		when(itemService.updateItem(item2Id, input, "test-user-id")).thenReturn(Mono.just(response));
+		when(itemService.updateItem(item2Id, null, input, "test-user-id")).thenReturn(Mono.just(response));
 		
-		Mono<ItemResponseDto> responseMono = itemController.updateItem(createAuthentication("test-user-id"), item2Id, input);
+		Mono<ItemResponseDto> responseMono = itemController.updateItem(createAuthentication("test-user-id"), item2Id, null, input);
 		
 		assertNotNull(responseMono);
 		
@@ -193,7 +395,22 @@ class ItemControllerTest {
 		assertNotNull(responseDto);
 		assertResponseDto(response, responseDto);
 		
-		verify(itemService).updateItem(item2Id, input, "test-user-id");
+		verify(itemService).updateItem(item2Id, null, input, "test-user-id");
+	}
+	
+	@Test
+	void testUpdateItem_IfMatch() {
+		ItemResponseDto response = ItemResponseDto.builder().id(item2Id).name("Item 2").description("New description for item 2").version(4).build();
+		
+		ItemDto input = new ItemDto("Item 2", "New description for item 2");
+		
+		when(itemService.updateItem(item2Id, 3L, input, "test-user-id")).thenReturn(Mono.just(response));
+		
+		assertEquals(4L, itemController.updateItem(createAuthentication("test-user-id"), item2Id, "W/\"3\"", input).block().getVersion());
+		
+		assertThrows(InvalidVersionException.class, () -> itemController.updateItem(createAuthentication("test-user-id"), item2Id, "\"abc\"", input));
+		
+		verify(itemService).updateItem(item2Id, 3L, input, "test-user-id");
 	}
 	
 	@Test
@@ -205,6 +422,48 @@ class ItemControllerTest {
 		verify(itemService).deleteItem(item2Id);
 	}
 	
+	@Test
+	void testAddItems() {
+		Flux<ItemDto> input = Flux.just(new ItemDto("Item 2", "Description for item 2"));
+		
+		when(itemBulkService.addItems(input, "test-user-id")).thenReturn(Flux.just(new BulkItemResultDto(item1Id, BulkItemStatus.CREATED, 0L)));
+		
+		StepVerifier.create(itemController.addItems(createAuthentication("test-user-id"), input))
+			.consumeNextWith(result -> {
+				assertEquals(item1Id, result.getId());
+				assertEquals(BulkItemStatus.CREATED, result.getStatus());
+			})
+			.verifyComplete();
+		
+		verify(itemBulkService).addItems(input, "test-user-id");
+	}
+	
+	@Test
+	void testUpdateItems() {
+		Flux<BulkItemDto> input = Flux.just(new BulkItemDto(item1Id, "Item 2", "New description for item 2", 0L));
+		
+		when(itemBulkService.updateItems(input, "test-user-id")).thenReturn(Flux.just(new BulkItemResultDto(item1Id, BulkItemStatus.UPDATED, 1L)));
+		
+		StepVerifier.create(itemController.updateItems(createAuthentication("test-user-id"), input))
+			.consumeNextWith(result -> assertEquals(BulkItemStatus.UPDATED, result.getStatus()))
+			.verifyComplete();
+		
+		verify(itemBulkService).updateItems(input, "test-user-id");
+	}
+	
+	@Test
+	void testDeleteItems() {
+		Flux<BulkItemDto> input = Flux.just(BulkItemDto.builder().id(item1Id).build());
+		
+		when(itemBulkService.deleteItems(input)).thenReturn(Flux.just(new BulkItemResultDto(item1Id, BulkItemStatus.DELETED, null)));
+		
+		StepVerifier.create(itemController.deleteItems(input))
+			.consumeNextWith(result -> assertEquals(BulkItemStatus.DELETED, result.getStatus()))
+			.verifyComplete();
+		
+		verify(itemBulkService).deleteItems(input);
+	}
+	
 	private Authentication createAuthentication(String user) {
 		Map<String, Object> headers = new HashMap<>();
 		headers.put("alg", "HS256");
@@ -0,0 +1,168 @@
+package com.cnewbywa.item.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.cnewbywa.item.configuration.ItemRateLimitProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class ItemRateLimitFilterTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	
+	private ItemRateLimitFilter filter;
+	
+	@BeforeEach
+	void setupEach() {
+		ItemRateLimitProperties.Route route = new ItemRateLimitProperties.Route();
+		
+		route.setPath("/items/**");
+		route.setMethod("GET");
+		route.setCapacity(2);
+		// no refill during the test
+		route.setRefillPerSecond(0.001);
+		
+		ItemRateLimitProperties properties = new ItemRateLimitProperties();
+		
+		properties.setIdleTimeout(Duration.ZERO);
+		properties.setRoutes(List.of(route));
+		properties.setTrustedProxies(List.of("192.168.0.0/16"));
+		
+		meterRegistry = new SimpleMeterRegistry();
+		filter = new ItemRateLimitFilter(properties, meterRegistry);
+	}
+	
+	@Test
+	void testFilter_Address() {
+		ServerWebExchange first = createExchange("10.0.0.1", null);
+		
+		StepVerifier.create(filter.filter(first, exchange -> Mono.empty())).verifyComplete();
+		
+		assertNull(first.getResponse().getStatusCode());
+		assertEquals("2", first.getResponse().getHeaders().getFirst(ItemRateLimitFilter.LIMIT_HEADER));
+		assertEquals("1", first.getResponse().getHeaders().getFirst(ItemRateLimitFilter.REMAINING_HEADER));
+		
+		StepVerifier.create(filter.filter(createExchange("10.0.0.1", null), exchange -> Mono.empty())).verifyComplete();
+		
+		ServerWebExchange rejected = createExchange("10.0.0.1", null);
+		
+		StepVerifier.create(filter.filter(rejected, exchange -> Mono.empty())).verifyComplete();
+		
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+		assertEquals("0", rejected.getResponse().getHeaders().getFirst(ItemRateLimitFilter.REMAINING_HEADER));
+		assertTrue(Long.parseLong(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)) > 0);
+		assertEquals(1.0, meterRegistry.get("item.ratelimit.rejected").tag("route", "GET /items/**").counter().count());
+		
+		// other clients have their own buckets
+		ServerWebExchange other = createExchange("10.0.0.2", null);
+		
+		StepVerifier.create(filter.filter(other, exchange -> Mono.empty())).verifyComplete();
+		
+		assertNull(other.getResponse().getStatusCode());
+	}
+	
+	@Test
+	void testFilter_Subject() {
+		Principal user = () -> "test-user-id";
+		
+		StepVerifier.create(filter.filter(createExchange("10.0.0.1", user), exchange -> Mono.empty())).verifyComplete();
+		StepVerifier.create(filter.filter(createExchange("10.0.0.2", user), exchange -> Mono.empty())).verifyComplete();
+		
+		// the same user from any address
+		ServerWebExchange rejected = createExchange("10.0.0.3", user);
+		
+		StepVerifier.create(filter.filter(rejected, exchange -> Mono.empty())).verifyComplete();
+		
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+		
+		// requests of routes without a limit are not counted
+		ServerWebExchange unlimited = MockServerWebExchange.from(MockServerHttpRequest.post("/items"));
+		
+		StepVerifier.create(filter.filter(unlimited, exchange -> Mono.empty())).verifyComplete();
+		
+		assertNull(unlimited.getResponse().getHeaders().getFirst(ItemRateLimitFilter.LIMIT_HEADER));
+	}
+	
+	@Test
+	void testFilter_ForwardedAddress() {
+		// through two trusted proxies, the first address was sent by the client and is not trusted
+		StepVerifier.create(filter.filter(createForwardedExchange("192.168.0.1", "10.0.0.9, 10.0.0.1, 192.168.0.2"), exchange -> Mono.empty())).verifyComplete();
+		StepVerifier.create(filter.filter(createForwardedExchange("192.168.0.3", "10.0.0.1"), exchange -> Mono.empty())).verifyComplete();
+		
+		ServerWebExchange rejected = createForwardedExchange("192.168.0.1", "10.0.0.8, 10.0.0.1");
+		
+		StepVerifier.create(filter.filter(rejected, exchange -> Mono.empty())).verifyComplete();
+		
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+		
+		// a client not behind a trusted proxy cannot choose its address
+		ServerWebExchange direct = createForwardedExchange("10.0.0.2", "10.0.0.1");
+		
+		StepVerifier.create(filter.filter(direct, exchange -> Mono.empty())).verifyComplete();
+		
+		assertNull(direct.getResponse().getStatusCode());
+	}
+	
+	@Test
+	void testEvictIdleBuckets_InUse() {
+		StepVerifier.create(filter.filter(createExchange("10.0.0.1", null), exchange -> Mono.empty())).verifyComplete();
+		
+		assertEquals(1, filter.getBucketCount());
+		
+		// the bucket is not full again for a long time
+		filter.evictIdleBuckets();
+		
+		assertEquals(1, filter.getBucketCount());
+	}
+	
+	@Test
+	void testTokenBucket() {
+		long interval = TimeUnit.MILLISECONDS.toNanos(100);
+		ItemRateLimitFilter.TokenBucket bucket = new ItemRateLimitFilter.TokenBucket(interval, 2, 0);
+		
+		assertEquals(0, bucket.tryConsume(0));
+		assertEquals(0, bucket.tryConsume(0));
+		assertEquals(interval, bucket.tryConsume(0));
+		assertEquals(0, bucket.getRemaining(0));
+		
+		// one token back after one interval
+		assertEquals(0, bucket.tryConsume(interval));
+		assertEquals(interval, bucket.tryConsume(interval));
+		
+		// full again
+		assertEquals(2, bucket.getRemaining(3 * interval));
+		assertEquals(0, bucket.getNanosUntilFull(3 * interval));
+		assertTrue(bucket.isIdle(4 * interval, 0));
+	}
+	
+	private ServerWebExchange createForwardedExchange(String address, String forwardedFor) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("/items/paging")
+				.remoteAddress(new InetSocketAddress(address, 443))
+				.header(ItemRateLimitFilter.FORWARDED_FOR_HEADER, forwardedFor));
+	}
+	
+	private ServerWebExchange createExchange(String address, Principal principal) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/items/paging")
+				.remoteAddress(new InetSocketAddress(address, 443)));
+		
+		return principal == null ? exchange : exchange.mutate().principal(Mono.just(principal)).build();
+	}
+}
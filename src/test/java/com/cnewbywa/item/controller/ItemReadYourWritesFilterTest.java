@@ -0,0 +1,123 @@
+package com.cnewbywa.item.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.security.Principal;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.cnewbywa.item.configuration.ItemMongoProperties;
+import com.cnewbywa.item.repository.ReadYourWrites;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class ItemReadYourWritesFilterTest {
+
+	private static final String SUBJECT = "user1";
+	
+	private ItemReadYourWritesFilter filter = new ItemReadYourWritesFilter(createMongoProperties());
+	
+	@Test
+	void testFilter_Read() {
+		assertEquals(true, isReadFromPrimary(MockServerHttpRequest.get("/items/paging")
+				.header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, filter.createHint(System.currentTimeMillis() - 1000, SUBJECT)), SUBJECT));
+		
+		// older than the window
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items/paging")
+				.header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, filter.createHint(System.currentTimeMillis() - 101_000, SUBJECT)), SUBJECT));
+		
+		// later than now, a small clock difference between instances is allowed
+		assertEquals(true, isReadFromPrimary(MockServerHttpRequest.get("/items/paging")
+				.header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, filter.createHint(System.currentTimeMillis() + 1000, SUBJECT)), SUBJECT));
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items/paging")
+				.header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, filter.createHint(9999999999999L, SUBJECT)), SUBJECT));
+		
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items/paging").header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, "yesterday"), SUBJECT));
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items"), SUBJECT));
+	}
+	
+	@Test
+	void testFilter_ForgedHint() {
+		String now = String.valueOf(System.currentTimeMillis());
+		
+		// the current time alone, or with a signature of its own, does not move the reads to the primary
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items/paging").header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, now), SUBJECT));
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items/1")
+				.header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, now + ".c2lnbmF0dXJl"), SUBJECT));
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items/1")
+				.header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, new ItemReadYourWritesFilter(new ItemMongoProperties()).createHint(System.currentTimeMillis(), SUBJECT)), SUBJECT));
+		
+		// a hint issued to another subject or sent without a token
+		String hint = filter.createHint(System.currentTimeMillis(), SUBJECT);
+		
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items/1").header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, hint), "user2"));
+		assertEquals(false, isReadFromPrimary(MockServerHttpRequest.get("/items/paging").header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, hint), null));
+		
+		// a hint of another instance sharing the key
+		assertEquals(true, isReadFromPrimary(MockServerHttpRequest.get("/items/1")
+				.header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, new ItemReadYourWritesFilter(createMongoProperties()).createHint(System.currentTimeMillis(), SUBJECT)), SUBJECT));
+	}
+	
+	@Test
+	void testFilter_Write() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/items"));
+		
+		StepVerifier.create(filter.filter(withPrincipal(exchange, SUBJECT), chainExchange -> {
+			chainExchange.getResponse().setStatusCode(HttpStatus.CREATED);
+			
+			return chainExchange.getResponse().setComplete();
+		})).verifyComplete();
+		
+		String hint = exchange.getResponse().getHeaders().getFirst(ItemReadYourWritesFilter.LAST_WRITE_HEADER);
+		
+		assertNotNull(hint);
+		// the hint of the writer is honoured
+		assertEquals(true, isReadFromPrimary(MockServerHttpRequest.get("/items/1").header(ItemReadYourWritesFilter.LAST_WRITE_HEADER, hint), SUBJECT));
+		
+		exchange = MockServerWebExchange.from(MockServerHttpRequest.put("/items/1"));
+		
+		StepVerifier.create(filter.filter(withPrincipal(exchange, SUBJECT), chainExchange -> {
+			chainExchange.getResponse().setStatusCode(HttpStatus.PRECONDITION_FAILED);
+			
+			return chainExchange.getResponse().setComplete();
+		})).verifyComplete();
+		
+		assertNull(exchange.getResponse().getHeaders().getFirst(ItemReadYourWritesFilter.LAST_WRITE_HEADER));
+	}
+	
+	private boolean isReadFromPrimary(MockServerHttpRequest.BaseBuilder<?> request, String subject) {
+		AtomicBoolean fromPrimary = new AtomicBoolean();
+		WebFilterChain chain = exchange -> Mono.deferContextual(context -> {
+			fromPrimary.set(ReadYourWrites.isFromPrimary(context));
+			
+			return Mono.empty();
+		});
+		
+		StepVerifier.create(filter.filter(withPrincipal(MockServerWebExchange.from(request), subject), chain)).verifyComplete();
+		
+		return fromPrimary.get();
+	}
+	
+	private static ServerWebExchange withPrincipal(ServerWebExchange exchange, String subject) {
+		Principal principal = () -> subject;
+		
+		return subject == null ? exchange : exchange.mutate().principal(Mono.just(principal)).build();
+	}
+	
+	private static ItemMongoProperties createMongoProperties() {
+		ItemMongoProperties mongoProperties = new ItemMongoProperties();
+		
+		mongoProperties.setReadYourWritesKey("test-key");
+		
+		return mongoProperties;
+	}
+}
@@ -0,0 +1,127 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cnewbywa.item.configuration.ItemBatchProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ItemBatchLoaderTest {
+
+	@Captor
+	ArgumentCaptor<Collection<String>> itemIdsCaptor;
+	
+	@Mock
+	private ItemRepository itemRepository;
+	
+	private ItemBatchLoader itemBatchLoader;
+	
+	@AfterEach
+	void destroy() {
+		itemBatchLoader.destroy();
+	}
+	
+	@Test
+	void testLoad_ConcurrentLookupsUseOneQuery() {
+		itemBatchLoader = new ItemBatchLoader(itemRepository, properties(true, Duration.ofMillis(50), 10));
+		
+		when(itemRepository.findByItemIdIn(anyCollection())).thenReturn(Flux.just(item("item-1"), item("item-2")));
+		
+		List<Item> results = Flux.merge(itemBatchLoader.load("item-1"), itemBatchLoader.load("item-2"), itemBatchLoader.load("item-1"), itemBatchLoader.load("item-3"))
+				.collectList()
+				.block(Duration.ofSeconds(5));
+		
+		assertEquals(3, results.size());
+		
+		verify(itemRepository, times(1)).findByItemIdIn(itemIdsCaptor.capture());
+		verify(itemRepository, never()).findByItemId("item-1");
+		
+		assertEquals(Set.of("item-1", "item-2", "item-3"), Set.copyOf(itemIdsCaptor.getValue()));
+	}
+	
+	@Test
+	void testLoad_BatchIsResolvedWhenFull() {
+		itemBatchLoader = new ItemBatchLoader(itemRepository, properties(true, Duration.ofMinutes(1), 2));
+		
+		when(itemRepository.findByItemIdIn(anyCollection())).thenReturn(Flux.just(item("item-1")));
+		
+		List<Item> results = Flux.merge(itemBatchLoader.load("item-1"), itemBatchLoader.load("item-9"))
+				.collectList()
+				.block(Duration.ofSeconds(5));
+		
+		assertEquals(1, results.size());
+		assertEquals("item-1", results.get(0).getItemId());
+	}
+	
+	@Test
+	void testLoad_NotFound() {
+		itemBatchLoader = new ItemBatchLoader(itemRepository, properties(true, Duration.ofMillis(1), 10));
+		
+		when(itemRepository.findByItemIdIn(anyCollection())).thenReturn(Flux.empty());
+		
+		assertNull(itemBatchLoader.load("item-9").block(Duration.ofSeconds(5)));
+	}
+	
+	@Test
+	void testLoad_ErrorIsSignalledToEveryLookup() {
+		itemBatchLoader = new ItemBatchLoader(itemRepository, properties(true, Duration.ofMillis(50), 10));
+		
+		when(itemRepository.findByItemIdIn(anyCollection())).thenReturn(Flux.error(new IllegalStateException("db down")));
+		
+		StepVerifier.create(Flux.mergeDelayError(2, itemBatchLoader.load("item-1"), itemBatchLoader.load("item-2")))
+			.expectError(IllegalStateException.class)
+			.verify(Duration.ofSeconds(5));
+		
+		when(itemRepository.findByItemIdIn(anyCollection())).thenReturn(Flux.just(item("item-1")));
+		
+		assertEquals("item-1", itemBatchLoader.load("item-1").block(Duration.ofSeconds(5)).getItemId());
+	}
+	
+	@Test
+	void testLoad_Disabled() {
+		itemBatchLoader = new ItemBatchLoader(itemRepository, properties(false, Duration.ofMillis(1), 10));
+		
+		when(itemRepository.findByItemId("item-1")).thenReturn(Mono.just(item("item-1")));
+		
+		assertEquals("item-1", itemBatchLoader.load("item-1").block().getItemId());
+		
+		verify(itemRepository, never()).findByItemIdIn(anyCollection());
+	}
+	
+	private ItemBatchProperties properties(boolean enabled, Duration window, int maxSize) {
+		ItemBatchProperties properties = new ItemBatchProperties();
+		properties.setEnabled(enabled);
+		properties.setWindow(window);
+		properties.setMaxSize(maxSize);
+		
+		return properties;
+	}
+	
+	private Item item(String itemId) {
+		return Item.builder().itemId(itemId).name("Name of " + itemId).build();
+	}
+}
@@ -0,0 +1,237 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cnewbywa.item.configuration.ItemBulkProperties;
+import com.cnewbywa.item.model.BulkItemDto;
+import com.cnewbywa.item.model.BulkItemResultDto;
+import com.cnewbywa.item.model.BulkItemStatus;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemDto;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class ItemBulkServiceTest {
+
+	@Captor
+	ArgumentCaptor<List<Item>> itemsCaptor;
+	
+	@Mock
+	private ItemRepository itemRepository;
+	
+	@Mock
+	private ItemCountService itemCountService;
+	
+	@Mock
+	private ItemCache itemCache;
+	
+	@Mock
+	private ItemOutbox itemOutbox;
+	
+	@Mock
+	private ItemSuggestIndex itemSuggestIndex;
+	
+	private ItemBulkService itemBulkService;
+	
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setupEach() {
+		ItemBulkProperties properties = new ItemBulkProperties();
+		properties.setChunkSize(2);
+		
+		itemBulkService = new ItemBulkService(itemRepository, itemCountService, itemCache, properties, new ItemMetrics(new SimpleMeterRegistry()), itemOutbox, itemSuggestIndex, 
+				Validation.buildDefaultValidatorFactory().getValidator());
+		
+		lenient().when(itemOutbox.withEvents(any(Mono.class), any(Function.class))).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+	
+	@Test
+	void testAddItems() {
+		when(itemRepository.bulkInsert(anyList())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0, List.class).size()));
+		
+		Flux<ItemDto> items = Flux.just(new ItemDto("Item 1", "Description 1"), new ItemDto("Item 2", "Description 2"), new ItemDto("", "Description 3"));
+		
+		List<BulkItemResultDto> results = itemBulkService.addItems(items, "user1").collectList().block();
+		
+		assertEquals(3, results.size());
+		assertEquals(BulkItemStatus.CREATED, results.get(0).getStatus());
+		assertNotNull(results.get(0).getId());
+		assertEquals(BulkItemStatus.CREATED, results.get(1).getStatus());
+		assertEquals(BulkItemStatus.INVALID, results.get(2).getStatus());
+		
+		verify(itemRepository, times(1)).bulkInsert(itemsCaptor.capture());
+		verify(itemCountService).increment(2);
+		verify(itemSuggestIndex).put(results.get(0).getId(), "Item 1");
+		verify(itemSuggestIndex).put(results.get(1).getId(), "Item 2");
+		
+		List<Item> inserted = itemsCaptor.getValue();
+		
+		assertEquals(results.get(0).getId(), inserted.get(0).getItemId());
+		assertEquals("Item 1", inserted.get(0).getName());
+		assertEquals("user1", inserted.get(0).getCreatedBy());
+		assertNotNull(inserted.get(0).getCreateTime());
+	}
+	
+	@Test
+	void testUpdateItems() {
+		when(itemRepository.findVersionsByItemIdIn(anyCollection())).thenReturn(Flux.just(version("item-1", 0), version("item-2", 3)));
+		when(itemRepository.bulkUpdate(anyList())).thenReturn(Mono.just(1));
+		
+		Flux<BulkItemDto> items = Flux.just(
+				new BulkItemDto("item-1", "Item 1", "New description 1", null), 
+				new BulkItemDto("item-2", "Item 2", "New description 2", 2L), 
+				new BulkItemDto("item-3", "Item 3", "New description 3", null));
+		
+		List<BulkItemResultDto> results = itemBulkService.updateItems(items, "user1").collectList().block();
+		
+		assertEquals(3, results.size());
+		assertResult(results.get(0), "item-1", BulkItemStatus.UPDATED, 1L);
+		assertResult(results.get(1), "item-2", BulkItemStatus.VERSION_CONFLICT, 3L);
+		assertResult(results.get(2), "item-3", BulkItemStatus.NOT_FOUND, null);
+		
+		verify(itemRepository).bulkUpdate(itemsCaptor.capture());
+		verify(itemCache).invalidate("item-1");
+		verify(itemSuggestIndex).put("item-1", "Item 1");
+		verify(itemSuggestIndex, never()).put("item-2", "Item 2");
+		
+		assertEquals(1, itemsCaptor.getValue().size());
+		assertEquals("item-1", itemsCaptor.getValue().get(0).getItemId());
+		assertEquals(0L, itemsCaptor.getValue().get(0).getVersion());
+		assertEquals("user1", itemsCaptor.getValue().get(0).getUpdatedBy());
+	}
+	
+	@Test
+	void testUpdateItems_Invalid() {
+		when(itemRepository.findVersionsByItemIdIn(anyCollection())).thenReturn(Flux.just(version("item-1", 0)));
+		
+		Flux<BulkItemDto> items = Flux.just(
+				new BulkItemDto("item-1", "I1", "New description 1", null), 
+				new BulkItemDto("item-1", "Item 1", "x".repeat(501), null));
+		
+		List<BulkItemResultDto> results = itemBulkService.updateItems(items, "user1").collectList().block();
+		
+		assertResult(results.get(0), "item-1", BulkItemStatus.INVALID, null);
+		assertResult(results.get(1), "item-1", BulkItemStatus.INVALID, null);
+		
+		verify(itemRepository, never()).bulkUpdate(anyList());
+	}
+	
+	@Test
+	void testUpdateItems_RepeatedId() {
+		when(itemRepository.findVersionsByItemIdIn(anyCollection())).thenReturn(Flux.just(version("item-1", 0)));
+		when(itemRepository.bulkUpdate(anyList())).thenReturn(Mono.just(1));
+		
+		// the repeat is in the same chunk and in the next one
+		Flux<BulkItemDto> items = Flux.just(
+				new BulkItemDto("item-1", "Item 1", "New description 1", null), 
+				new BulkItemDto("item-1", "Item 1 again", "New description 2", null),
+				new BulkItemDto("item-1", "Item 1 once more", "New description 3", null));
+		
+		List<BulkItemResultDto> results = itemBulkService.updateItems(items, "user1").collectList().block();
+		
+		assertResult(results.get(0), "item-1", BulkItemStatus.UPDATED, 1L);
+		assertResult(results.get(1), "item-1", BulkItemStatus.INVALID, null);
+		assertResult(results.get(2), "item-1", BulkItemStatus.INVALID, null);
+		
+		verify(itemRepository).bulkUpdate(itemsCaptor.capture());
+		verify(itemSuggestIndex).put("item-1", "Item 1");
+		verify(itemSuggestIndex, never()).put("item-1", "Item 1 again");
+		
+		assertEquals(1, itemsCaptor.getValue().size());
+	}
+	
+	@Test
+	void testDeleteItems_RepeatedId() {
+		when(itemRepository.findVersionsByItemIdIn(anyCollection())).thenReturn(Flux.just(version("item-1", 0)));
+		when(itemRepository.bulkDelete(anyList())).thenReturn(Mono.just(1));
+		
+		Flux<BulkItemDto> items = Flux.just(BulkItemDto.builder().id("item-1").build(), BulkItemDto.builder().id("item-1").build());
+		
+		List<BulkItemResultDto> results = itemBulkService.deleteItems(items).collectList().block();
+		
+		assertResult(results.get(0), "item-1", BulkItemStatus.DELETED, null);
+		assertResult(results.get(1), "item-1", BulkItemStatus.INVALID, null);
+		
+		verify(itemRepository).bulkDelete(itemsCaptor.capture());
+		verify(itemCountService).decrement(1);
+		
+		assertEquals(1, itemsCaptor.getValue().size());
+	}
+	
+	@Test
+	void testUpdateItems_ConcurrentChange() {
+		when(itemRepository.findVersionsByItemIdIn(anyCollection()))
+			.thenReturn(Flux.just(version("item-1", 0), version("item-2", 0)))
+			.thenReturn(Flux.just(version("item-1", 1), version("item-2", 5)));
+		when(itemRepository.bulkUpdate(anyList())).thenReturn(Mono.just(1));
+		
+		Flux<BulkItemDto> items = Flux.just(
+				new BulkItemDto("item-1", "Item 1", "New description 1", null), 
+				new BulkItemDto("item-2", "Item 2", "New description 2", null));
+		
+		List<BulkItemResultDto> results = itemBulkService.updateItems(items, "user1").collectList().block();
+		
+		assertResult(results.get(0), "item-1", BulkItemStatus.UPDATED, 1L);
+		assertResult(results.get(1), "item-2", BulkItemStatus.VERSION_CONFLICT, 5L);
+	}
+	
+	@Test
+	void testDeleteItems() {
+		when(itemRepository.findVersionsByItemIdIn(anyCollection())).thenReturn(Flux.just(version("item-1", 0)));
+		when(itemRepository.bulkDelete(anyList())).thenReturn(Mono.just(1));
+		
+		Flux<BulkItemDto> items = Flux.just(BulkItemDto.builder().id("item-1").build(), BulkItemDto.builder().id("item-2").build());
+		
+		List<BulkItemResultDto> results = itemBulkService.deleteItems(items).collectList().block();
+		
+		assertResult(results.get(0), "item-1", BulkItemStatus.DELETED, null);
+		assertResult(results.get(1), "item-2", BulkItemStatus.NOT_FOUND, null);
+		
+		verify(itemCountService).decrement(1);
+		verify(itemCache).invalidate("item-1");
+		verify(itemCache, never()).invalidate("item-2");
+		verify(itemSuggestIndex).remove("item-1");
+		verify(itemSuggestIndex, never()).remove("item-2");
+	}
+	
+	private Item version(String itemId, long version) {
+		return Item.builder().itemId(itemId).version(version).build();
+	}
+	
+	private void assertResult(BulkItemResultDto result, String id, BulkItemStatus status, Long version) {
+		assertEquals(id, result.getId());
+		assertEquals(status, result.getStatus());
+		
+		if (version == null) {
+			assertNull(result.getVersion());
+		} else {
+			assertEquals(version, result.getVersion());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cnewbywa.item.configuration.ItemCacheProperties;
+import com.cnewbywa.item.model.ItemChange;
+import com.cnewbywa.item.model.ItemChangeType;
+import com.cnewbywa.item.model.ItemResponseDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ItemCacheTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	
+	private ItemCache itemCache;
+	
+	private AtomicInteger loads;
+	
+	@BeforeEach
+	void setupEach() {
+		meterRegistry = new SimpleMeterRegistry();
+		itemCache = new ItemCache(new ItemCacheProperties(), meterRegistry);
+		loads = new AtomicInteger();
+	}
+	
+	@Test
+	void testGet_ConcurrentMissesShareOneLoad() {
+		Sinks.One<ItemResponseDto> result = Sinks.one();
+		
+		Flux<ItemResponseDto> responses = Flux.range(0, 10)
+				.flatMap(i -> itemCache.get("item-1", itemId -> {
+					loads.incrementAndGet();
+					
+					return result.asMono();
+				}))
+				.cache();
+		
+		responses.subscribe();
+		
+		result.tryEmitValue(ItemResponseDto.builder().id("item-1").build());
+		
+		assertEquals(10, responses.count().block(Duration.ofSeconds(5)));
+		assertEquals(1, loads.get());
+	}
+	
+	@Test
+	void testGet_HitAfterLoadAndReloadAfterInvalidate() {
+		assertEquals("item-1", itemCache.get("item-1", this::load).block().getId());
+		assertEquals("item-1", itemCache.get("item-1", this::load).block().getId());
+		assertEquals(1, loads.get());
+		
+		itemCache.invalidate("item-1");
+		
+		itemCache.get("item-1", this::load).block();
+		
+		assertEquals(2, loads.get());
+		assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", ItemCache.CACHE_NAME).tag("result", "hit").functionCounter().count());
+		assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", ItemCache.CACHE_NAME).tag("result", "miss").functionCounter().count());
+	}
+	
+	@Test
+	void testGetIfPresent() {
+		assertNull(itemCache.getIfPresent("item-1").block());
+		
+		itemCache.get("item-1", this::load).block();
+		
+		assertEquals("item-1", itemCache.getIfPresent("item-1").block().getId());
+		assertEquals(1, loads.get());
+	}
+	
+	@Test
+	void testGet_EmptyLoadIsNotCached() {
+		assertNull(itemCache.get("missing", itemId -> {
+			loads.incrementAndGet();
+			
+			return Mono.empty();
+		}).block());
+		
+		itemCache.get("missing", this::load).block();
+		
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	void testGet_Disabled() {
+		ItemCacheProperties properties = new ItemCacheProperties();
+		properties.setEnabled(false);
+		
+		ItemCache disabledCache = new ItemCache(properties, meterRegistry);
+		
+		disabledCache.get("item-1", this::load).block();
+		disabledCache.get("item-1", this::load).block();
+		
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	void testOnItemChange() {
+		itemCache.get("item-1", this::load).block();
+		itemCache.get("item-2", this::load).block();
+		
+		itemCache.onItemChange(new ItemChange(ItemChangeType.UPDATE, "item-1", null));
+		
+		itemCache.get("item-1", this::load).block();
+		itemCache.get("item-2", this::load).block();
+		
+		assertEquals(3, loads.get());
+		
+		itemCache.onReset();
+		
+		itemCache.get("item-1", this::load).block();
+		itemCache.get("item-2", this::load).block();
+		
+		assertEquals(5, loads.get());
+	}
+	
+	private Mono<ItemResponseDto> load(String itemId) {
+		loads.incrementAndGet();
+		
+		return Mono.just(ItemResponseDto.builder().id(itemId).build());
+	}
+}
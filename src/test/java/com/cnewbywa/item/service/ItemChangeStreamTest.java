@@ -0,0 +1,140 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.PermissionDeniedDataAccessException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.cnewbywa.item.configuration.ItemChangeStreamProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemChange;
+import com.cnewbywa.item.model.ItemChangeType;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.OperationType;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ItemChangeStreamTest {
+
+	@Captor
+	ArgumentCaptor<ItemChange> changeCaptor;
+	
+	@Mock
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+	
+	@Mock
+	private ItemChangeHandler handler1;
+	
+	@Mock
+	private ItemChangeHandler handler2;
+	
+	private ItemChangeStream itemChangeStream;
+	
+	@BeforeEach
+	void setupEach() {
+		itemChangeStream = new ItemChangeStream(reactiveMongoTemplate, List.of(handler1, handler2), new ItemChangeStreamProperties());
+	}
+	
+	@Test
+	void testHandle_Update() {
+		Item item = Item.builder().itemId("item-1").name("Item 1").build();
+		
+		itemChangeStream.handle(OperationType.UPDATE, item, null);
+		
+		verify(handler1).onItemChange(changeCaptor.capture());
+		verify(handler2).onItemChange(changeCaptor.getValue());
+		
+		assertEquals(ItemChangeType.UPDATE, changeCaptor.getValue().type());
+		assertEquals("item-1", changeCaptor.getValue().itemId());
+		assertEquals(item, changeCaptor.getValue().item());
+	}
+	
+	@Test
+	void testHandle_DeleteWithPreImage() {
+		itemChangeStream.handle(OperationType.DELETE, null, Item.builder().itemId("item-1").build());
+		
+		verify(handler1).onItemChange(changeCaptor.capture());
+		
+		assertEquals(ItemChangeType.DELETE, changeCaptor.getValue().type());
+		assertEquals("item-1", changeCaptor.getValue().itemId());
+		assertNull(changeCaptor.getValue().item());
+	}
+	
+	@Test
+	void testHandle_UnknownItemResets() {
+		itemChangeStream.handle(OperationType.DELETE, null, null);
+		
+		verify(handler1).onReset();
+		verify(handler2).onReset();
+		verify(handler1, never()).onItemChange(changeCaptor.capture());
+	}
+	
+	@Test
+	void testHandle_FailingHandlerDoesNotStopOthers() {
+		doThrow(new IllegalStateException()).when(handler1).onItemChange(changeCaptor.capture());
+		
+		itemChangeStream.handle(OperationType.INSERT, Item.builder().itemId("item-1").build(), null);
+		
+		verify(handler2).onItemChange(changeCaptor.capture());
+	}
+	
+	@Test
+	void testEnablePreImages() {
+		when(reactiveMongoTemplate.getCollectionName(Item.class)).thenReturn("item");
+		when(reactiveMongoTemplate.collectionExists("item")).thenReturn(Mono.just(false));
+		when(reactiveMongoTemplate.createCollection("item")).thenReturn(Mono.empty());
+		when(reactiveMongoTemplate.executeCommand(any(Document.class))).thenReturn(Mono.just(new Document("ok", 1)));
+		
+		StepVerifier.create(itemChangeStream.enablePreImages()).verifyComplete();
+		
+		verify(reactiveMongoTemplate).createCollection("item");
+		verify(reactiveMongoTemplate).executeCommand(new Document("collMod", "item").append("changeStreamPreAndPostImages", new Document("enabled", true)));
+	}
+	
+	@Test
+	void testEnablePreImages_NotAllowed() {
+		when(reactiveMongoTemplate.getCollectionName(Item.class)).thenReturn("item");
+		when(reactiveMongoTemplate.collectionExists("item")).thenReturn(Mono.just(true));
+		when(reactiveMongoTemplate.executeCommand(any(Document.class))).thenReturn(Mono.error(new PermissionDeniedDataAccessException("Unauthorized", null)));
+		
+		StepVerifier.create(itemChangeStream.enablePreImages()).verifyComplete();
+		
+		verify(reactiveMongoTemplate, never()).createCollection("item");
+	}
+	
+	@Test
+	void testOnStreamError() {
+		itemChangeStream.onStreamError(new IllegalStateException("Connection closed"));
+		
+		verify(handler1, never()).onReset();
+		
+		BsonDocument response = new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(286)).append("errmsg", new BsonString("History lost"));
+		
+		itemChangeStream.onStreamError(new UncategorizedMongoDbException("History lost", new MongoCommandException(response, new ServerAddress())));
+		
+		verify(handler1).onReset();
+	}
+}
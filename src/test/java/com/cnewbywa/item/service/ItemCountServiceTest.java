@@ -0,0 +1,75 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cnewbywa.item.repository.ItemRepository;
+
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class ItemCountServiceTest {
+
+	@InjectMocks
+	private ItemCountService itemCountService;
+	
+	@Mock
+	private ItemRepository itemRepository;
+	
+	@Test
+	void testGetTotalCount_LoadsEstimatedCountOnce() {
+		when(itemRepository.estimatedCount()).thenReturn(Mono.just(5L));
+		
+		assertEquals(5L, itemCountService.getTotalCount(false).block());
+		assertEquals(5L, itemCountService.getTotalCount(false).block());
+		
+		verify(itemRepository, times(1)).estimatedCount();
+		verify(itemRepository, never()).count();
+	}
+	
+	@Test
+	void testGetTotalCount_FollowsWrites() {
+		when(itemRepository.estimatedCount()).thenReturn(Mono.just(5L));
+		
+		itemCountService.getTotalCount(false).block();
+		
+		itemCountService.increment();
+		itemCountService.increment();
+		itemCountService.decrement(1);
+		
+		assertEquals(6L, itemCountService.getTotalCount(false).block());
+	}
+	
+	@Test
+	void testGetTotalCount_Exact() {
+		when(itemRepository.count()).thenReturn(Mono.just(7L));
+		
+		assertEquals(7L, itemCountService.getTotalCount(true).block());
+		assertEquals(7L, itemCountService.getTotalCount(false).block());
+		
+		verify(itemRepository).count();
+		verify(itemRepository, never()).estimatedCount();
+	}
+	
+	@Test
+	void testReconcile_KeepsChangesMadeDuringQuery() {
+		when(itemRepository.estimatedCount()).thenReturn(Mono.fromCallable(() -> {
+			itemCountService.increment();
+			
+			return 5L;
+		}));
+		
+		itemCountService.reconcile();
+		
+		assertEquals(6L, itemCountService.getTotalCount(false).block());
+	}
+}
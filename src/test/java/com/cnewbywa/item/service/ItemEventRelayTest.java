@@ -0,0 +1,122 @@
+package com.cnewbywa.item.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.cnewbywa.item.configuration.ItemOutboxProperties;
+import com.cnewbywa.item.model.ItemEvent;
+import com.cnewbywa.item.model.ItemEventType;
+import com.cnewbywa.item.repository.ItemEventRepository;
+import com.mongodb.client.result.UpdateResult;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ItemEventRelayTest {
+
+	@Mock
+	private ItemEventRepository itemEventRepository;
+	
+	@Mock
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+	
+	@Mock
+	private ItemEventSink itemEventSink;
+	
+	private ItemEventRelay itemEventRelay;
+	
+	@BeforeEach
+	void setupEach() {
+		ItemOutboxProperties properties = new ItemOutboxProperties();
+		properties.setBatchSize(2);
+		
+		itemEventRelay = new ItemEventRelay(itemEventRepository, reactiveMongoTemplate, itemEventSink, properties);
+	}
+	
+	@Test
+	void testRelayAll() {
+		List<ItemEvent> batch1 = List.of(createEvent("1"), createEvent("2"));
+		List<ItemEvent> batch2 = List.of(createEvent("3"));
+		
+		when(reactiveMongoTemplate.upsert(any(Query.class), any(Update.class), eq(ItemEventRelay.LEASE_COLLECTION)))
+			.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+		when(itemEventRepository.findByPublishTimeIsNull(any(Pageable.class))).thenReturn(Flux.fromIterable(batch1), Flux.fromIterable(batch2));
+		when(itemEventSink.publish(anyList())).thenReturn(Mono.empty());
+		when(itemEventRepository.markPublished(anyList(), any(Instant.class))).thenReturn(Mono.just(2L), Mono.just(1L));
+		
+		StepVerifier.create(itemEventRelay.relayAll()).expectNext(3).verifyComplete();
+		
+		verify(itemEventSink).publish(batch1);
+		verify(itemEventSink).publish(batch2);
+		verify(itemEventRepository).markPublished(eq(List.of("1", "2")), any(Instant.class));
+		verify(itemEventRepository).markPublished(eq(List.of("3")), any(Instant.class));
+		verify(itemEventRepository, times(2)).findByPublishTimeIsNull(PageRequest.of(0, 2, ItemEventRelay.PUBLISH_ORDER));
+	}
+	
+	@Test
+	void testRelayAll_LeaseLost() {
+		List<ItemEvent> batch = List.of(createEvent("1"), createEvent("2"));
+		
+		when(reactiveMongoTemplate.upsert(any(Query.class), any(Update.class), eq(ItemEventRelay.LEASE_COLLECTION)))
+			.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)), Mono.error(new DuplicateKeyException("E11000 duplicate key error")));
+		when(itemEventRepository.findByPublishTimeIsNull(any(Pageable.class))).thenReturn(Flux.fromIterable(batch));
+		when(itemEventSink.publish(anyList())).thenReturn(Mono.empty());
+		when(itemEventRepository.markPublished(anyList(), any(Instant.class))).thenReturn(Mono.just(2L));
+		
+		StepVerifier.create(itemEventRelay.relayAll()).expectNext(2).verifyComplete();
+		
+		verify(itemEventRepository, times(1)).findByPublishTimeIsNull(any(Pageable.class));
+		verify(itemEventSink, times(1)).publish(anyList());
+	}
+	
+	@Test
+	void testRelayAll_PublishFails() {
+		List<ItemEvent> batch = List.of(createEvent("1"));
+		
+		when(reactiveMongoTemplate.upsert(any(Query.class), any(Update.class), eq(ItemEventRelay.LEASE_COLLECTION)))
+			.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+		when(itemEventRepository.findByPublishTimeIsNull(any(Pageable.class))).thenReturn(Flux.fromIterable(batch));
+		when(itemEventSink.publish(anyList())).thenReturn(Mono.error(new IllegalStateException("Broker not available")));
+		
+		StepVerifier.create(itemEventRelay.relayAll()).verifyError(IllegalStateException.class);
+		
+		verify(itemEventRepository, never()).markPublished(anyList(), any(Instant.class));
+	}
+	
+	@Test
+	void testRelayAll_LeaseHeldByOtherInstance() {
+		when(reactiveMongoTemplate.upsert(any(Query.class), any(Update.class), eq(ItemEventRelay.LEASE_COLLECTION)))
+			.thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error")));
+		
+		StepVerifier.create(itemEventRelay.relayAll()).expectNext(0).verifyComplete();
+		
+		verify(itemEventRepository, never()).findByPublishTimeIsNull(any(Pageable.class));
+		verify(itemEventSink, never()).publish(anyList());
+	}
+	
+	private ItemEvent createEvent(String id) {
+		return ItemEvent.builder().id(id).itemId("item" + id).type(ItemEventType.CREATED).eventTime(Instant.now()).build();
+	}
+}
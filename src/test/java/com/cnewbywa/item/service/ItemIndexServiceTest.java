@@ -0,0 +1,69 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.cnewbywa.item.configuration.ItemIndexProperties;
+import com.cnewbywa.item.error.UnsupportedSortException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ItemIndexServiceTest {
+
+	@Mock
+	private ReactiveMongoTemplate reactiveMongoTemplate;
+	
+	private ItemIndexProperties properties;
+	
+	private SimpleMeterRegistry meterRegistry;
+	
+	private ItemIndexService itemIndexService;
+	
+	@BeforeEach
+	void setupEach() {
+		properties = new ItemIndexProperties();
+		meterRegistry = new SimpleMeterRegistry();
+		itemIndexService = new ItemIndexService(reactiveMongoTemplate, properties, meterRegistry);
+	}
+	
+	@Test
+	void testIsSupported() {
+		assertTrue(itemIndexService.isSupported(Sort.by(Sort.Direction.DESC, "name")));
+		assertTrue(itemIndexService.isSupported(Sort.by(Sort.Direction.DESC, "name", "itemId")));
+		assertTrue(itemIndexService.isSupported(Sort.by(Sort.Direction.ASC, "createTime", "itemId")));
+		assertTrue(itemIndexService.isSupported(Sort.by(Sort.Direction.ASC, "itemId")));
+		assertTrue(itemIndexService.isSupported(Sort.unsorted()));
+		
+		assertFalse(itemIndexService.isSupported(Sort.by(Sort.Direction.ASC, "description")));
+		assertFalse(itemIndexService.isSupported(Sort.by(Sort.Direction.ASC, "name", "createTime")));
+		assertFalse(itemIndexService.isSupported(Sort.by(Sort.Order.asc("name"), Sort.Order.desc("itemId"))));
+	}
+	
+	@Test
+	void testCheckSort_Warns() {
+		assertDoesNotThrow(() -> itemIndexService.checkSort(Sort.by(Sort.Direction.ASC, "description")));
+		assertDoesNotThrow(() -> itemIndexService.checkSort(Sort.by(Sort.Direction.ASC, "name")));
+		
+		assertEquals(1.0, meterRegistry.get("item.sort.unindexed").counter().count());
+	}
+	
+	@Test
+	void testCheckSort_Strict() {
+		properties.setStrictSort(true);
+		
+		assertThrows(UnsupportedSortException.class, () -> itemIndexService.checkSort(Sort.by(Sort.Direction.ASC, "description")));
+		assertDoesNotThrow(() -> itemIndexService.checkSort(Sort.by(Sort.Direction.ASC, "name")));
+	}
+}
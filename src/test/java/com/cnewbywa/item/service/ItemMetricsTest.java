@@ -0,0 +1,68 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cnewbywa.item.error.ItemNotFoundException;
+import com.cnewbywa.item.error.ItemVersionConflictException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class ItemMetricsTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	
+	private ItemMetrics itemMetrics;
+	
+	@BeforeEach
+	void setupEach() {
+		meterRegistry = new SimpleMeterRegistry();
+		itemMetrics = new ItemMetrics(meterRegistry);
+	}
+	
+	@Test
+	void testTimed_Mono() {
+		StepVerifier.create(itemMetrics.timed("getItem", Mono.just("item"))).expectNext("item").verifyComplete();
+		StepVerifier.create(itemMetrics.timed("getItem", Mono.empty())).verifyComplete();
+		StepVerifier.create(itemMetrics.timed("getItem", Mono.error(new ItemNotFoundException("Item not found")))).verifyError(ItemNotFoundException.class);
+		StepVerifier.create(itemMetrics.timed("updateItem", Mono.error(new ItemVersionConflictException("Item version does not match"))))
+			.verifyError(ItemVersionConflictException.class);
+		StepVerifier.create(itemMetrics.timed("updateItem", Mono.error(new IllegalStateException()))).verifyError(IllegalStateException.class);
+		
+		assertEquals(1, getCount("getItem", "success"));
+		assertEquals(1, getCount("getItem", "empty"));
+		assertEquals(1, getCount("getItem", "not_found"));
+		assertEquals(1, getCount("updateItem", "version_conflict"));
+		assertEquals(1, getCount("updateItem", "error"));
+	}
+	
+	@Test
+	void testTimed_Flux() {
+		StepVerifier.create(itemMetrics.timed("getItems", Flux.just("item1", "item2"))).expectNext("item1", "item2").verifyComplete();
+		StepVerifier.create(itemMetrics.timed("getItems", Flux.just("item1", "item2")), 1).expectNext("item1").thenCancel().verify();
+		
+		assertEquals(1, getCount("getItems", "success"));
+		assertEquals(1, getCount("getItems", "cancelled"));
+	}
+	
+	@Test
+	void testTimed_OnSubscribe() {
+		Mono<String> timed = itemMetrics.timed("getItem", Mono.just("item"));
+		
+		assertEquals(0, meterRegistry.find(ItemMetrics.TIMER_NAME).timers().size());
+		
+		timed.block();
+		timed.block();
+		
+		assertEquals(2, getCount("getItem", "success"));
+	}
+	
+	private long getCount(String method, String outcome) {
+		return meterRegistry.get(ItemMetrics.TIMER_NAME).tag("method", method).tag("outcome", outcome).timer().count();
+	}
+}
@@ -0,0 +1,82 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cnewbywa.item.configuration.ItemOutboxProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemEvent;
+import com.cnewbywa.item.model.ItemEventType;
+import com.cnewbywa.item.repository.ItemEventRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ItemOutboxTest {
+
+	@Captor
+	ArgumentCaptor<List<ItemEvent>> eventsCaptor;
+	
+	@Mock
+	private ItemEventRepository itemEventRepository;
+	
+	@Test
+	void testWithEvents() {
+		ItemOutbox itemOutbox = new ItemOutbox(itemEventRepository, new ItemOutboxProperties(), Optional.empty());
+		Item item = Item.builder().name("Item 1").description("Description 1").version(2).build();
+		
+		when(itemEventRepository.insert(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0, List.class)));
+		
+		StepVerifier.create(itemOutbox.withEvents(Mono.just(item), written -> List.of(ItemEvent.of(ItemEventType.UPDATED, written, "user1"))))
+			.expectNext(item)
+			.verifyComplete();
+		
+		verify(itemEventRepository).insert(eventsCaptor.capture());
+		
+		ItemEvent event = eventsCaptor.getValue().get(0);
+		
+		assertEquals(item.getItemId(), event.getItemId());
+		assertEquals(ItemEventType.UPDATED, event.getType());
+		assertEquals(2L, event.getVersion());
+		assertEquals("user1", event.getUser());
+	}
+	
+	@Test
+	void testWithEvents_NoWrite() {
+		ItemOutbox itemOutbox = new ItemOutbox(itemEventRepository, new ItemOutboxProperties(), Optional.empty());
+		
+		StepVerifier.create(itemOutbox.withEvents(Mono.<Item>empty(), written -> List.of(ItemEvent.deleted(written)))).verifyComplete();
+		StepVerifier.create(itemOutbox.withEvents(Mono.just(0L), deleted -> List.<ItemEvent>of())).expectNext(0L).verifyComplete();
+		
+		verify(itemEventRepository, never()).insert(anyList());
+	}
+	
+	@Test
+	void testWithEvents_Disabled() {
+		ItemOutboxProperties properties = new ItemOutboxProperties();
+		properties.setEnabled(false);
+		
+		ItemOutbox itemOutbox = new ItemOutbox(itemEventRepository, properties, Optional.empty());
+		
+		StepVerifier.create(itemOutbox.withEvents(Mono.just(1L), deleted -> List.of(ItemEvent.deleted(Item.builder().itemId("item1").build()))))
+			.expectNext(1L)
+			.verifyComplete();
+		
+		verify(itemEventRepository, never()).insert(anyList());
+	}
+}
@@ -2,32 +2,56 @@ package com.cnewbywa.item.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import com.cnewbywa.item.error.InvalidCursorException;
+import com.cnewbywa.item.error.InvalidSearchException;
 import com.cnewbywa.item.error.ItemNotFoundException;
+import com.cnewbywa.item.error.ItemVersionConflictException;
 import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemCursor;
+import com.cnewbywa.item.model.ItemCursorResponseDto;
 import com.cnewbywa.item.model.ItemDto;
+import com.cnewbywa.item.model.ItemEvent;
+import com.cnewbywa.item.model.ItemEventType;
 import com.cnewbywa.item.model.ItemListResponseDto;
 import com.cnewbywa.item.model.ItemResponseDto;
+import com.cnewbywa.item.model.ItemSearchMode;
+import com.cnewbywa.item.model.ItemSuggestionDto;
+import com.cnewbywa.item.model.ItemVersion;
 import com.cnewbywa.item.model.ItemsResponseDto;
 import com.cnewbywa.item.repository.ItemRepository;
+import com.cnewbywa.item.repository.ReadYourWrites;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -44,14 +68,44 @@ class ItemServiceTest {
 	@Mock
 	private ItemRepository itemRepository;
 	
+	@Mock
+	private ItemCountService itemCountService;
+	
+	@Mock
+	private ItemCache itemCache;
+	
+	@Mock
+	private ItemBatchLoader itemBatchLoader;
+	
+	@Spy
+	private ItemMetrics itemMetrics = new ItemMetrics(new SimpleMeterRegistry());
+	
+	@Mock
+	private ItemOutbox itemOutbox;
+	
+	@Mock
+	private ItemSuggestIndex itemSuggestIndex;
+	
+	private List<ItemEvent> appendedEvents = new ArrayList<>();
+	
 	private String item1Id = UUID.randomUUID().toString();
 	private String item2Id = UUID.randomUUID().toString();
 	
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setupEach() {
+		lenient().when(itemCache.get(any(String.class), any(Function.class)))
+			.thenAnswer(invocation -> invocation.getArgument(1, Function.class).apply(invocation.getArgument(0)));
+		lenient().when(itemOutbox.withEvents(any(Mono.class), any(Function.class)))
+			.thenAnswer(invocation -> invocation.getArgument(0, Mono.class)
+					.doOnNext(result -> appendedEvents.addAll((List<ItemEvent>) invocation.getArgument(1, Function.class).apply(result))));
+	}
+	
 	@Test
 	void testGetItem_Success() {
 		Item dbItem = Item.builder().itemId(item1Id).build();
 		
-		when(itemRepository.findByItemId(item1Id)).thenReturn(Mono.just(dbItem));
+		when(itemBatchLoader.load(item1Id)).thenReturn(Mono.just(dbItem));
 		
 		Mono<ItemResponseDto> responseMono = itemService.getItem(item1Id);
 		
@@ -62,58 +116,100 @@ class ItemServiceTest {
 		assertNotNull(response);
 		assertEquals(item1Id, response.getId());
 			
-		verify(itemRepository).findByItemId(item1Id);
+		verify(itemBatchLoader).load(item1Id);
 	}
 	
 	@Test
 	void testGetItem_Failure() {
-		when(itemRepository.findByItemId(item1Id)).thenReturn(Mono.empty());
+		when(itemBatchLoader.load(item1Id)).thenReturn(Mono.empty());
 		
 		Mono<ItemResponseDto> responseMono = itemService.getItem(item1Id);
 		
 		StepVerifier.create(responseMono).expectError(ItemNotFoundException.class).verify();
 		
-		verify(itemRepository).findByItemId(item1Id);
+		verify(itemBatchLoader).load(item1Id);
+	}
+	
+	@Test
+	void testGetItem_ReadYourWrites() {
+		when(itemBatchLoader.load(item1Id)).thenReturn(Mono.just(Item.builder().itemId(item1Id).version(2).build()));
+		
+		assertEquals(2L, ReadYourWrites.fromPrimary(itemService.getItem(item1Id)).block().getVersion());
+		
+		verify(itemCache).invalidate(item1Id);
+	}
+	
+	@Test
+	void testGetItemVersion_ReadYourWrites() {
+		when(itemRepository.findVersionByItemId(item1Id)).thenReturn(Mono.just(Item.builder().itemId(item1Id).version(2).build()));
+		
+		assertEquals(2L, ReadYourWrites.fromPrimary(itemService.getItemVersion(item1Id)).block().version());
+		
+		verify(itemCache, never()).getIfPresent(item1Id);
+	}
+	
+	@Test
+	void testGetItemVersion_Cached() {
+		Instant updateTime = Instant.now();
+		
+		when(itemCache.getIfPresent(item1Id)).thenReturn(Mono.just(ItemResponseDto.builder().id(item1Id).version(3).updateTime(updateTime).build()));
+		
+		assertEquals(new ItemVersion(item1Id, 3, updateTime), itemService.getItemVersion(item1Id).block());
+		
+		verify(itemRepository, never()).findVersionByItemId(item1Id);
+	}
+	
+	@Test
+	void testGetItemVersion_FromDatabase() {
+		Instant updateTime = Instant.now();
+		
+		when(itemCache.getIfPresent(item1Id)).thenReturn(Mono.empty());
+		when(itemRepository.findVersionByItemId(item1Id)).thenReturn(Mono.just(Item.builder().itemId(item1Id).version(2).updateTime(updateTime).build()));
+		when(itemCache.getIfPresent(item2Id)).thenReturn(Mono.empty());
+		when(itemRepository.findVersionByItemId(item2Id)).thenReturn(Mono.empty());
+		
+		assertEquals(new ItemVersion(item1Id, 2, updateTime), itemService.getItemVersion(item1Id).block());
+		StepVerifier.create(itemService.getItemVersion(item2Id)).expectError(ItemNotFoundException.class).verify();
 	}
 	
 	@Test
 	void testGetItems() {
-		Item dbItem1 = Item.builder().itemId(item1Id).name("Item 1").createTime(Instant.now()).build();
-		Item dbItem2 = Item.builder().itemId(item2Id).name("Item 2").createTime(Instant.now()).build();
+		Document dbItem1 = new Document("itemId", item1Id).append("name", "Item 1").append("createTime", new Date());
+		Document dbItem2 = new Document("itemId", item2Id).append("name", "Item 2").append("createTime", new Date());
 		
 		Sort sort = Sort.by(new Sort.Order(Sort.Direction.ASC, "name"));
 		
-		when(itemRepository.findAll(sort)).thenReturn(Flux.just(dbItem1, dbItem2));
+		when(itemRepository.streamListItems(sort)).thenReturn(Flux.just(dbItem1, dbItem2));
 		
 		Flux<ItemListResponseDto> items = itemService.getItems(sort);
 		
 		StepVerifier.create(items)
 			.consumeNextWith(item -> {
-				assertEquals(dbItem1.getItemId(), item.getId());
-				assertEquals(dbItem1.getName(), item.getName());
+				assertEquals(item1Id, item.getId());
+				assertEquals("Item 1", item.getName());
 				assertNotNull(item.getCreateTime());
 			})
 			.consumeNextWith(item -> {
-				assertEquals(dbItem2.getItemId(), item.getId());
-				assertEquals(dbItem2.getName(), item.getName());
+				assertEquals(item2Id, item.getId());
+				assertEquals("Item 2", item.getName());
 				assertNotNull(item.getCreateTime());
 			})
 			.verifyComplete();
 		
-		verify(itemRepository).findAll(sort);
+		verify(itemRepository).streamListItems(sort);
 	}
 	
 	@Test
 	void testGetItemsWithPaging() {
-		Item dbItem1 = Item.builder().itemId(item1Id).name("Item 1").createTime(Instant.now()).build();
-		Item dbItem2 = Item.builder().itemId(item2Id).name("Item 2").createTime(Instant.now()).build();
+		Document dbItem1 = new Document("itemId", item1Id).append("name", "Item 1").append("createTime", new Date());
+		Document dbItem2 = new Document("itemId", item2Id).append("name", "Item 2").append("createTime", new Date());
 		
 		Pageable pageable = PageRequest.of(0, 10, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
 		
-		when(itemRepository.findBy(pageable)).thenReturn(Flux.just(dbItem1, dbItem2));
-		when(itemRepository.count()).thenReturn(Mono.just(3L));
+		when(itemRepository.findListItems(pageable)).thenReturn(Flux.just(dbItem1, dbItem2));
+		when(itemCountService.getTotalCount(false)).thenReturn(Mono.just(3L));
 		
-		Mono<ItemsResponseDto> responseMono = itemService.getItemsWithPaging(pageable);
+		Mono<ItemsResponseDto> responseMono = itemService.getItemsWithPaging(pageable, false);
 		
 		assertNotNull(responseMono);
 		
@@ -127,21 +223,21 @@ class ItemServiceTest {
 		assertListResponseDto(response.getItems().get(0), dbItem1);
 		assertListResponseDto(response.getItems().get(1), dbItem2);
 		
-		verify(itemRepository).findBy(pageable);
-		verify(itemRepository).count();
+		verify(itemRepository).findListItems(pageable);
+		verify(itemCountService).getTotalCount(false);
 	}
 	
 	@Test
 	void testGetItemsWithSkipAndTake() {
-		Item dbItem1 = Item.builder().itemId(item1Id).name("Item 1").createTime(Instant.now()).build();
-		Item dbItem2 = Item.builder().itemId(item2Id).name("Item 2").createTime(Instant.now()).build();
+		Document dbItem1 = new Document("itemId", item1Id).append("name", "Item 1").append("createTime", new Date());
+		Document dbItem2 = new Document("itemId", item2Id).append("name", "Item 2").append("createTime", new Date());
 		
 		Pageable pageable = PageRequest.of(0, 10, Sort.by(new Sort.Order(Sort.Direction.ASC, "name")));
 		
-		when(itemRepository.findAll(pageable.getSort())).thenReturn(Flux.just(dbItem1, dbItem2));
-		when(itemRepository.count()).thenReturn(Mono.just(3L));
+		when(itemRepository.streamListItems(pageable.getSort())).thenReturn(Flux.just(dbItem1, dbItem2));
+		when(itemCountService.getTotalCount(true)).thenReturn(Mono.just(3L));
 		
-		Mono<ItemsResponseDto> responseMono = itemService.getItemsWithSkipAndTake(pageable);
+		Mono<ItemsResponseDto> responseMono = itemService.getItemsWithSkipAndTake(pageable, true);
 		
 		assertNotNull(responseMono);
 		
@@ -155,8 +251,144 @@ class ItemServiceTest {
 		assertListResponseDto(response.getItems().get(0), dbItem1);
 		assertListResponseDto(response.getItems().get(1), dbItem2);
 		
-		verify(itemRepository).findAll(pageable.getSort());
-		verify(itemRepository).count();
+		verify(itemRepository).streamListItems(pageable.getSort());
+		verify(itemCountService).getTotalCount(true);
+	}
+	
+	@Test
+	void testGetItemsWithCursor_FirstPage() {
+		Document dbItem1 = new Document("itemId", item1Id).append("name", "Item 1").append("createTime", new Date());
+		Document dbItem2 = new Document("itemId", item2Id).append("name", "Item 2").append("createTime", new Date());
+		Document dbItem3 = new Document("itemId", UUID.randomUUID().toString()).append("name", "Item 3").append("createTime", new Date());
+		
+		Sort sort = Sort.by(new Sort.Order(Sort.Direction.ASC, "name"));
+		Sort keysetSort = sort.and(Sort.by(Sort.Direction.ASC, "itemId"));
+		
+		when(itemRepository.findByKeyset(eq(keysetSort), isNull(), eq(3))).thenReturn(Flux.just(dbItem1, dbItem2, dbItem3));
+		
+		ItemCursorResponseDto response = itemService.getItemsWithCursor(null, 2, sort).block();
+		
+		assertNotNull(response);
+		assertEquals(2, response.getAmount());
+		assertEquals(2, response.getItems().size());
+		assertEquals(item1Id, response.getItems().get(0).getId());
+		assertEquals(item2Id, response.getItems().get(1).getId());
+		assertNotNull(response.getItems().get(0).getCreateTime());
+		assertNotNull(response.getNextCursor());
+		assertEquals(List.of("Item 2", item2Id), ItemCursor.decode(response.getNextCursor(), keysetSort).getValues());
+	}
+	
+	@Test
+	void testGetItemsWithCursor_LastPage() {
+		Document dbItem2 = new Document("itemId", item2Id).append("name", "Item 2").append("createTime", new Date());
+		
+		Sort sort = Sort.by(new Sort.Order(Sort.Direction.ASC, "name"));
+		Sort keysetSort = sort.and(Sort.by(Sort.Direction.ASC, "itemId"));
+		
+		String cursor = ItemCursor.of(keysetSort, new Document("itemId", item1Id).append("name", "Item 1")).encode();
+		
+		when(itemRepository.findByKeyset(keysetSort, List.of("Item 1", item1Id), 3)).thenReturn(Flux.just(dbItem2));
+		
+		ItemCursorResponseDto response = itemService.getItemsWithCursor(cursor, 2, sort).block();
+		
+		assertNotNull(response);
+		assertEquals(1, response.getAmount());
+		assertEquals(item2Id, response.getItems().get(0).getId());
+		assertNull(response.getNextCursor());
+	}
+	
+	@Test
+	void testGetItemsWithCursor_InvalidCursor() {
+		Sort sort = Sort.by(new Sort.Order(Sort.Direction.ASC, "name"));
+		
+		String cursor = ItemCursor.of(Sort.by(Sort.Direction.DESC, "createTime", "itemId"), new Document("itemId", item1Id).append("createTime", new Date())).encode();
+		
+		StepVerifier.create(itemService.getItemsWithCursor(cursor, 2, sort)).expectError(InvalidCursorException.class).verify();
+		StepVerifier.create(itemService.getItemsWithCursor("not a cursor", 2, sort)).expectError(InvalidCursorException.class).verify();
+	}
+	
+	@Test
+	void testSearchItems_Prefix() {
+		Document dbItem1 = new Document("itemId", item1Id).append("name", "Élan 1").append("nameNormalized", "elan 1").append("createTime", new Date());
+		Document dbItem2 = new Document("itemId", item2Id).append("name", "Elan 2").append("nameNormalized", "elan 2").append("createTime", new Date());
+		
+		Sort sort = Sort.by(Sort.Direction.ASC, "nameNormalized", "itemId");
+		
+		when(itemRepository.findByNamePrefix(eq("elan"), eq(sort), isNull(), eq(2))).thenReturn(Flux.just(dbItem1, dbItem2));
+		
+		ItemCursorResponseDto response = itemService.searchItems(" ÉLAN ", ItemSearchMode.PREFIX, null, 1).block();
+		
+		assertNotNull(response);
+		assertEquals(1, response.getAmount());
+		assertEquals(item1Id, response.getItems().get(0).getId());
+		assertEquals(List.of("elan 1", item1Id), ItemCursor.decode(response.getNextCursor(), sort).getValues());
+		
+		when(itemRepository.findByNamePrefix("elan", sort, List.of("elan 1", item1Id), 2)).thenReturn(Flux.just(dbItem2));
+		
+		response = itemService.searchItems("élan", ItemSearchMode.PREFIX, response.getNextCursor(), 1).block();
+		
+		assertNotNull(response);
+		assertEquals(item2Id, response.getItems().get(0).getId());
+		assertNull(response.getNextCursor());
+	}
+	
+	@Test
+	void testSearchItems_Text() {
+		Document dbItem1 = new Document("itemId", item1Id).append("name", "Item 1").append("score", 10.5).append("createTime", new Date());
+		Document dbItem2 = new Document("itemId", item2Id).append("name", "Item 2").append("score", 1.1).append("createTime", new Date());
+		
+		when(itemRepository.findByText("red chair", 0, 2)).thenReturn(Flux.just(dbItem1, dbItem2));
+		when(itemRepository.findByText("red chair", 1, 2)).thenReturn(Flux.just(dbItem2));
+		
+		ItemCursorResponseDto response = itemService.searchItems("red chair", ItemSearchMode.TEXT, null, 1).block();
+		
+		assertNotNull(response);
+		assertEquals(item1Id, response.getItems().get(0).getId());
+		assertNotNull(response.getNextCursor());
+		
+		response = itemService.searchItems("red chair", ItemSearchMode.TEXT, response.getNextCursor(), 1).block();
+		
+		assertNotNull(response);
+		assertEquals(item2Id, response.getItems().get(0).getId());
+		assertNull(response.getNextCursor());
+	}
+	
+	@Test
+	void testSearchItems_Invalid() {
+		String prefixCursor = ItemCursor.of(Sort.by(Sort.Direction.ASC, "nameNormalized", "itemId"), new Document("itemId", item1Id).append("nameNormalized", "item")).encode();
+		
+		StepVerifier.create(itemService.searchItems(" ", ItemSearchMode.PREFIX, null, 20)).expectError(InvalidSearchException.class).verify();
+		StepVerifier.create(itemService.searchItems("a".repeat(101), ItemSearchMode.TEXT, null, 20)).expectError(InvalidSearchException.class).verify();
+		StepVerifier.create(itemService.searchItems("item", ItemSearchMode.TEXT, prefixCursor, 20)).expectError(InvalidCursorException.class).verify();
+		
+		verify(itemRepository, never()).findByText(any(String.class), any(Long.class), any(Integer.class));
+	}
+	
+	@Test
+	void testSuggestItems_FromIndex() {
+		when(itemSuggestIndex.isReady()).thenReturn(true);
+		when(itemSuggestIndex.suggest("ite", 10)).thenReturn(List.of(new ItemSuggestionDto(item1Id, "Item 1")));
+		
+		List<ItemSuggestionDto> suggestions = itemService.suggestItems("Ite", 10).collectList().block();
+		
+		assertEquals(1, suggestions.size());
+		assertEquals(item1Id, suggestions.get(0).getId());
+		
+		verify(itemRepository, never()).findByNamePrefix(any(String.class), any(Sort.class), any(), any(Integer.class));
+	}
+	
+	@Test
+	void testSuggestItems_FromDatabase() {
+		Document dbItem = new Document("itemId", item1Id).append("name", "Item 1").append("nameNormalized", "item 1");
+		
+		when(itemSuggestIndex.isReady()).thenReturn(false);
+		when(itemRepository.findByNamePrefix("ite", Sort.by("nameNormalized", "itemId"), null, ItemService.MAX_SUGGESTIONS)).thenReturn(Flux.just(dbItem));
+		
+		List<ItemSuggestionDto> suggestions = itemService.suggestItems("ITE", 1_000).collectList().block();
+		
+		assertEquals(1, suggestions.size());
+		assertEquals(item1Id, suggestions.get(0).getId());
+		assertEquals("Item 1", suggestions.get(0).getName());
 	}
 	
 	@Test
@@ -193,26 +425,30 @@ class ItemServiceTest {
 		assertNotNull(capturedItem);
 		assertNotNull(capturedItem.getItemId());
 		assertEquals(itemDto.getName(), capturedItem.getName());
+		assertEquals("item 1", capturedItem.getNameNormalized());
 		assertEquals(itemDto.getDescription(), capturedItem.getDescription());
 		assertEquals("user1", capturedItem.getCreatedBy());
+		
+		verify(itemCountService).increment();
+		verify(itemSuggestIndex).put(item1Id, "Item 1");
+		
+		assertEquals(1, appendedEvents.size());
+		assertEquals(ItemEventType.CREATED, appendedEvents.get(0).getType());
+		assertEquals(item1Id, appendedEvents.get(0).getItemId());
+		assertEquals("user1", appendedEvents.get(0).getUser());
 	}
 	
 	@Test
 	void testUpdateItem_Success() {
 		String name = "Item 1";
-		String description = "Description of item 1";
-		
-		Item item = Item.builder().itemId(item1Id).name(name).description(description).createTime(Instant.now()).createdBy("user1").build();
-		
-		Item modifiedItem = Item.builder().itemId(item1Id).name(name).description("New description of item 1").createTime(item.getCreateTime()).createdBy("user1").updateTime(Instant.now()).updatedBy("user1").build();
 		
-		when(itemRepository.findByItemId(item1Id)).thenReturn(Mono.just(item));
+		Item modifiedItem = Item.builder().itemId(item1Id).name(name).description("New description of item 1").createTime(Instant.now()).createdBy("user1").updateTime(Instant.now()).updatedBy("user1").version(1).build();
 		
-		when(itemRepository.save(any(Item.class))).thenReturn(Mono.just(modifiedItem));
+		when(itemRepository.findAndUpdate(item1Id, null, name, "New description of item 1", "user1")).thenReturn(Mono.just(modifiedItem));
 		
 		ItemDto itemDto = new ItemDto("Item 1", "New description of item 1");
 		
-		Mono<ItemResponseDto> responseMono = itemService.updateItem(item1Id, itemDto, "user1");
+		Mono<ItemResponseDto> responseMono = itemService.updateItem(item1Id, null, itemDto, "user1");
 		
 		// assert response
 		
@@ -227,44 +463,76 @@ class ItemServiceTest {
 		assertEquals("user1", response.getCreatedBy());
 		assertNotNull(response.getUpdateTime());
 		assertEquals("user1", response.getUpdatedBy());
+		assertEquals(1L, response.getVersion());
 		
-		verify(itemRepository).findByItemId(item1Id);
-		verify(itemRepository).save(itemCaptor.capture());
-		
-		// assert values in mocked save
-		
-		Item capturedItem = itemCaptor.getValue();
-		
-		assertNotNull(capturedItem);
-		assertEquals(item1Id, capturedItem.getItemId());
-		assertEquals(itemDto.getName(), capturedItem.getName());
-		assertEquals(itemDto.getDescription(), capturedItem.getDescription());
-		assertEquals("user1", capturedItem.getUpdatedBy());
+		verify(itemRepository).findAndUpdate(item1Id, null, name, "New description of item 1", "user1");
+		verify(itemRepository, never()).findByItemId(item1Id);
+		verify(itemRepository, never()).save(any(Item.class));
+		verify(itemCache).invalidate(item1Id);
 	}
 	
 	@Test
 	void testUpdateItem_Failure() {
 		ItemDto itemDto = new ItemDto("Item 9", "Description of item 9");
 		
-		when(itemRepository.findByItemId(item1Id)).thenReturn(Mono.empty());
+		when(itemRepository.findAndUpdate(item1Id, null, "Item 9", "Description of item 9", "user1")).thenReturn(Mono.empty());
 		
-		Mono<ItemResponseDto> responseMono = itemService.updateItem(item1Id, itemDto, "user1");
+		Mono<ItemResponseDto> responseMono = itemService.updateItem(item1Id, null, itemDto, "user1");
 		
 		StepVerifier.create(responseMono).expectError(ItemNotFoundException.class).verify();
 		
-		verify(itemRepository).findByItemId(item1Id);
+		verify(itemRepository).findAndUpdate(item1Id, null, "Item 9", "Description of item 9", "user1");
+	}
+	
+	@Test
+	void testUpdateItem_VersionConflict() {
+		ItemDto itemDto = new ItemDto("Item 1", "Description of item 1");
+		
+		when(itemRepository.findAndUpdate(item1Id, 2L, "Item 1", "Description of item 1", "user1")).thenReturn(Mono.empty());
+		when(itemRepository.existsByItemId(item1Id)).thenReturn(Mono.just(true));
+		
+		StepVerifier.create(itemService.updateItem(item1Id, 2L, itemDto, "user1")).expectError(ItemVersionConflictException.class).verify();
+	}
+	
+	@Test
+	void testUpdateItem_VersionGivenAndNotFound() {
+		ItemDto itemDto = new ItemDto("Item 1", "Description of item 1");
+		
+		when(itemRepository.findAndUpdate(item1Id, 2L, "Item 1", "Description of item 1", "user1")).thenReturn(Mono.empty());
+		when(itemRepository.existsByItemId(item1Id)).thenReturn(Mono.just(false));
+		
+		StepVerifier.create(itemService.updateItem(item1Id, 2L, itemDto, "user1")).expectError(ItemNotFoundException.class).verify();
 	}
 	
 	@Test
 	void testDeleteItem_Success() {
-		itemService.deleteItem(item1Id);
+		when(itemRepository.findAndDelete(item1Id)).thenReturn(Mono.just(Item.builder().itemId(item1Id).version(3).build()));
+		
+		itemService.deleteItem(item1Id).block();
+		
+		verify(itemRepository).findAndDelete(item1Id);
+		verify(itemCountService).decrement(1L);
+		verify(itemCache).invalidate(item1Id);
+		verify(itemSuggestIndex).remove(item1Id);
+		
+		assertEquals(1, appendedEvents.size());
+		assertEquals(ItemEventType.DELETED, appendedEvents.get(0).getType());
+		assertEquals(item1Id, appendedEvents.get(0).getItemId());
+		assertEquals(4L, appendedEvents.get(0).getVersion());
+	}
+	
+	@Test
+	void testDeleteItem_NotFound() {
+		when(itemRepository.findAndDelete(item1Id)).thenReturn(Mono.empty());
+		
+		itemService.deleteItem(item1Id).block();
 		
-		verify(itemRepository).deleteByItemId(item1Id);
+		assertEquals(0, appendedEvents.size());
 	}
 	
-	private void assertListResponseDto(ItemListResponseDto receivedItemListResponseDto, Item dbItem) {
-		assertEquals(dbItem.getItemId(), receivedItemListResponseDto.getId());
-		assertEquals(dbItem.getName(), receivedItemListResponseDto.getName());
+	private void assertListResponseDto(ItemListResponseDto receivedItemListResponseDto, Document dbItem) {
+		assertEquals(dbItem.getString("itemId"), receivedItemListResponseDto.getId());
+		assertEquals(dbItem.getString("name"), receivedItemListResponseDto.getName());
 		assertNotNull(receivedItemListResponseDto.getCreateTime());
 	}
 }
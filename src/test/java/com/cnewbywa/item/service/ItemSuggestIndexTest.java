@@ -0,0 +1,161 @@
+package com.cnewbywa.item.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import com.cnewbywa.item.configuration.ItemSuggestProperties;
+import com.cnewbywa.item.model.Item;
+import com.cnewbywa.item.model.ItemChange;
+import com.cnewbywa.item.model.ItemChangeType;
+import com.cnewbywa.item.model.ItemSuggestionDto;
+import com.cnewbywa.item.repository.ItemRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+@ExtendWith(MockitoExtension.class)
+class ItemSuggestIndexTest {
+
+	@Mock
+	private ItemRepository itemRepository;
+	
+	private ItemSuggestProperties properties;
+	
+	private SimpleMeterRegistry meterRegistry;
+	
+	private ItemSuggestIndex itemSuggestIndex;
+	
+	@BeforeEach
+	void setupEach() {
+		properties = new ItemSuggestProperties();
+		meterRegistry = new SimpleMeterRegistry();
+		itemSuggestIndex = new ItemSuggestIndex(itemRepository, properties, meterRegistry);
+	}
+	
+	@Test
+	void testLoad() {
+		when(itemRepository.streamListItems(Sort.unsorted())).thenReturn(Flux.just(
+				new Document("itemId", "item-1").append("name", "Chair"), 
+				new Document("itemId", "item-2").append("name", "Chaise longue")));
+		
+		assertFalse(itemSuggestIndex.isReady());
+		assertEquals(2L, itemSuggestIndex.load().block());
+		assertTrue(itemSuggestIndex.isReady());
+		assertEquals(2.0, meterRegistry.get("item.suggest.entries").gauge().value());
+		assertEquals(List.of("item-1", "item-2"), ids(itemSuggestIndex.suggest("cha", 10)));
+	}
+	
+	@Test
+	void testLoad_ChangedWhileLoading() {
+		when(itemRepository.streamListItems(Sort.unsorted())).thenReturn(Flux.just(
+				new Document("itemId", "item-1").append("name", "Chair"), 
+				new Document("itemId", "item-2").append("name", "Chaise longue"))
+				.doOnSubscribe(subscription -> {
+					itemSuggestIndex.remove("item-1");
+					itemSuggestIndex.put("item-2", "Sofa");
+				}));
+		
+		itemSuggestIndex.load().block();
+		
+		assertEquals(List.of(), ids(itemSuggestIndex.suggest("cha", 10)));
+		assertEquals(List.of("item-2"), ids(itemSuggestIndex.suggest("sofa", 10)));
+	}
+	
+	@Test
+	void testOnReset_CancelsRunningLoad() {
+		Sinks.Many<Document> firstScan = Sinks.many().unicast().onBackpressureBuffer();
+		
+		when(itemRepository.streamListItems(Sort.unsorted())).thenReturn(firstScan.asFlux(), 
+				Flux.just(new Document("itemId", "item-1").append("name", "Chair")));
+		
+		itemSuggestIndex.onReset();
+		itemSuggestIndex.onReset();
+		
+		assertTrue(itemSuggestIndex.isReady());
+		
+		firstScan.tryEmitNext(new Document("itemId", "item-2").append("name", "Chaise longue"));
+		firstScan.tryEmitComplete();
+		
+		assertTrue(itemSuggestIndex.isReady());
+		assertEquals(List.of("item-1"), ids(itemSuggestIndex.suggest("cha", 10)));
+	}
+	
+	@Test
+	void testSuggest() {
+		itemSuggestIndex.put("item-1", "Table");
+		itemSuggestIndex.put("item-2", "Tab");
+		itemSuggestIndex.put("item-3", "Tâble ronde");
+		itemSuggestIndex.put("item-4", "Lamp");
+		
+		assertEquals(List.of("item-2", "item-1", "item-3"), ids(itemSuggestIndex.suggest("tab", 10)));
+		assertEquals(List.of("item-2", "item-1"), ids(itemSuggestIndex.suggest("tab", 2)));
+		assertEquals("Tâble ronde", itemSuggestIndex.suggest("table ", 10).get(0).getName());
+		assertEquals(List.of(), ids(itemSuggestIndex.suggest("chair", 10)));
+	}
+	
+	@Test
+	void testPutAndRemove() {
+		itemSuggestIndex.put("item-1", "Table");
+		itemSuggestIndex.put("item-1", "Desk");
+		
+		assertEquals(List.of(), ids(itemSuggestIndex.suggest("tab", 10)));
+		assertEquals(List.of("item-1"), ids(itemSuggestIndex.suggest("desk", 10)));
+		
+		itemSuggestIndex.remove("item-1");
+		
+		assertEquals(List.of(), ids(itemSuggestIndex.suggest("desk", 10)));
+		assertEquals(0.0, meterRegistry.get("item.suggest.entries").gauge().value());
+	}
+	
+	@Test
+	void testOnItemChange() {
+		itemSuggestIndex.onItemChange(new ItemChange(ItemChangeType.INSERT, "item-1", Item.builder().itemId("item-1").name("Lamp").build()));
+		
+		assertEquals(List.of("item-1"), ids(itemSuggestIndex.suggest("la", 10)));
+		
+		// the item has already been changed again, the next change carries it
+		itemSuggestIndex.onItemChange(new ItemChange(ItemChangeType.UPDATE, "item-1", null));
+		
+		assertEquals(List.of("item-1"), ids(itemSuggestIndex.suggest("la", 10)));
+		
+		itemSuggestIndex.onItemChange(new ItemChange(ItemChangeType.DELETE, "item-1", null));
+		
+		assertEquals(List.of(), ids(itemSuggestIndex.suggest("la", 10)));
+	}
+	
+	@Test
+	void testOverflow() {
+		properties.setMaxEntries(2);
+		
+		when(itemRepository.streamListItems(Sort.unsorted())).thenReturn(Flux.just(
+				new Document("itemId", "item-1").append("name", "Chair"), 
+				new Document("itemId", "item-2").append("name", "Table"),
+				new Document("itemId", "item-3").append("name", "Lamp")));
+		
+		itemSuggestIndex.load().block();
+		
+		assertFalse(itemSuggestIndex.isReady());
+		assertEquals(0.0, meterRegistry.get("item.suggest.entries").gauge().value());
+		
+		itemSuggestIndex.put("item-4", "Desk");
+		
+		assertEquals(List.of(), ids(itemSuggestIndex.suggest("desk", 10)));
+	}
+	
+	private List<String> ids(List<ItemSuggestionDto> suggestions) {
+		return suggestions.stream().map(ItemSuggestionDto::getId).toList();
+	}
+}